@@ -0,0 +1,199 @@
+package com.example;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// Släpper igenom förfrågningar till BookingSystem enligt en global och en
+// per-rum token bucket. Överskjutande förfrågningar köas upp till maxWait
+// och avvisas sedan med BookingRejectedException.
+//
+// Bokningar som redan setts för ett rum hålls en kort tid, så att förfrågningar
+// mot en tid som vi vet är upptagen kan besvaras utan att rummet hämtas.
+// Avbokningar i BookingSystem tar bort kända bokningar direkt.
+public class AdmissionControlledBookingSystem {
+    private static final Duration KNOWN_BOOKING_TTL = Duration.ofSeconds(30);
+    // Så många rum-hinkar hålls innan fulla (oanvända) hinkar rensas bort
+    private static final int ROOM_BUCKET_SWEEP_THRESHOLD = 1_024;
+
+    private final BookingSystem bookingSystem;
+    private final TokenBucket globalBucket;
+    private final RateLimit roomLimit;
+    private final Duration maxWait;
+    private final Duration knownBookingTtl;
+    private final LongSupplier nanoTime;
+    private final Map<String, TokenBucket> roomBuckets = new ConcurrentHashMap<>();
+    private final Map<String, List<KnownBooking>> knownBookings = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRoomBucketSweep = new AtomicInteger(ROOM_BUCKET_SWEEP_THRESHOLD);
+
+    public AdmissionControlledBookingSystem(BookingSystem bookingSystem,
+                                            RateLimit globalLimit,
+                                            RateLimit roomLimit,
+                                            Duration maxWait) {
+        this(bookingSystem, globalLimit, roomLimit, maxWait, KNOWN_BOOKING_TTL, System::nanoTime);
+    }
+
+    AdmissionControlledBookingSystem(BookingSystem bookingSystem,
+                                     RateLimit globalLimit,
+                                     RateLimit roomLimit,
+                                     Duration maxWait,
+                                     Duration knownBookingTtl,
+                                     LongSupplier nanoTime) {
+        this.bookingSystem = bookingSystem;
+        this.globalBucket = new TokenBucket(globalLimit.burst(), globalLimit.permitsPerSecond(), nanoTime);
+        this.roomLimit = roomLimit;
+        this.maxWait = maxWait;
+        this.knownBookingTtl = knownBookingTtl;
+        this.nanoTime = nanoTime;
+        bookingSystem.addCancellationListener(booking -> forget(booking.getId()));
+    }
+
+    public boolean bookRoom(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        return tryBookRoom(roomId, startTime, endTime).isBooked();
+    }
+
+    public BookingResult tryBookRoom(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        // Samma fel som BookingSystem för ogiltiga argument, även när tiden är känd som bokad
+        bookingSystem.validateBookingRequest(roomId, startTime, endTime);
+        List<Booking> conflicts = knownConflicts(roomId, startTime, endTime);
+        if (!conflicts.isEmpty()) {
+            return BookingResult.rejected(new Availability(conflicts, null, null));
+        }
+
+        admit(roomId);
+        BookingResult result = bookingSystem.tryBookRoom(roomId, startTime, endTime);
+        remember(roomId, result);
+        return result;
+    }
+
+    // Idempotenta förfrågningar hoppar över kontrollen mot kända bokningar,
+    // annars skulle ett upprepat lyckat anrop se sin egen bokning som en krock
+    public BookingResult tryBookRoom(String idempotencyKey, String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        admit(roomId);
+        BookingResult result = bookingSystem.tryBookRoom(idempotencyKey, roomId, startTime, endTime);
+        remember(roomId, result);
+        return result;
+    }
+
+    public boolean cancelBooking(String bookingId) {
+        admit(null);
+        boolean cancelled = bookingSystem.cancelBooking(bookingId);
+        if (cancelled) {
+            forget(bookingId);
+        }
+        return cancelled;
+    }
+
+    public boolean cancelBooking(String idempotencyKey, String bookingId) {
+        admit(null);
+        boolean cancelled = bookingSystem.cancelBooking(idempotencyKey, bookingId);
+        if (cancelled) {
+            forget(bookingId);
+        }
+        return cancelled;
+    }
+
+    public List<Room> getAvailableRooms(LocalDateTime startTime, LocalDateTime endTime) {
+        admit(null);
+        return bookingSystem.getAvailableRooms(startTime, endTime);
+    }
+
+    private void admit(String roomId) {
+        long globalWait = globalBucket.reserve(maxWait);
+        if (globalWait < 0) {
+            throw new BookingRejectedException("För många förfrågningar, försök igen senare");
+        }
+        long roomWait = 0;
+        if (roomId != null) {
+            sweepIdleRoomBuckets();
+            TokenBucket roomBucket = roomBuckets.computeIfAbsent(roomId,
+                    id -> new TokenBucket(roomLimit.burst(), roomLimit.permitsPerSecond(), nanoTime));
+            roomWait = roomBucket.reserve(maxWait);
+            if (roomWait < 0) {
+                globalBucket.release();
+                throw new BookingRejectedException("För många förfrågningar för rummet, försök igen senare");
+            }
+        }
+        sleep(Math.max(globalWait, roomWait));
+    }
+
+    // Okända rum-id får också en hink innan BookingSystem hunnit avvisa dem.
+    // Den globala hinken begränsar hur snabbt nya hinkar skapas, och en full
+    // hink är likvärdig med en ny, så fulla hinkar kan tas bort när kartan växt.
+    private void sweepIdleRoomBuckets() {
+        int sweepAt = nextRoomBucketSweep.get();
+        if (roomBuckets.size() <= sweepAt || !nextRoomBucketSweep.compareAndSet(sweepAt, Integer.MAX_VALUE)) {
+            return;
+        }
+        roomBuckets.values().removeIf(TokenBucket::isFull);
+        nextRoomBucketSweep.set(Math.max(ROOM_BUCKET_SWEEP_THRESHOLD, roomBuckets.size() * 2));
+    }
+
+    int getRoomBucketCount() {
+        return roomBuckets.size();
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingRejectedException("Förfrågan avbröts i kön");
+        }
+    }
+
+    private List<Booking> knownConflicts(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        List<KnownBooking> known = knownBookings.get(roomId);
+        if (known == null) {
+            return List.of();
+        }
+        long now = nanoTime.getAsLong();
+        List<Booking> conflicts = new ArrayList<>();
+        synchronized (known) {
+            known.removeIf(entry -> entry.expiresAt - now <= 0);
+            for (KnownBooking entry : known) {
+                if (entry.booking.overlaps(startTime, endTime)) {
+                    conflicts.add(entry.booking);
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    private void remember(String roomId, BookingResult result) {
+        List<Booking> bookings = result.isBooked()
+                ? List.of(result.getBooking().orElseThrow())
+                : result.getConflicts();
+        if (bookings.isEmpty()) {
+            return;
+        }
+        long expiresAt = nanoTime.getAsLong() + knownBookingTtl.toNanos();
+        List<KnownBooking> known = knownBookings.computeIfAbsent(roomId, id -> new ArrayList<>());
+        synchronized (known) {
+            for (Booking booking : bookings) {
+                known.removeIf(entry -> entry.booking.getId().equals(booking.getId()));
+                known.add(new KnownBooking(booking, expiresAt));
+            }
+        }
+    }
+
+    private void forget(String bookingId) {
+        for (List<KnownBooking> known : knownBookings.values()) {
+            synchronized (known) {
+                known.removeIf(entry -> entry.booking.getId().equals(bookingId));
+            }
+        }
+    }
+
+    private record KnownBooking(Booking booking, long expiresAt) {
+    }
+}
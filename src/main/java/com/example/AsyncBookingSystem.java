@@ -0,0 +1,123 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Asynkron fasad över BookingSystem där varje anrop körs på en egen virtuell
+// tråd. Blockerande repository- och notifieringsanrop begränsas per backend,
+// och alla läsningar och ändringar av ett rums bokningar serialiseras per rum,
+// så att två samtidiga förfrågningar inte kan boka samma tid och avbokningar
+// och tillgänglighetskontroller inte krockar med pågående bokningar.
+public class AsyncBookingSystem implements AutoCloseable {
+    private final BookingSystem bookingSystem;
+    private final RoomRepository roomRepository;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RoomLocks roomLocks = RoomLocks.perRoom();
+
+    public AsyncBookingSystem(TimeProvider timeProvider,
+                              RoomRepository roomRepository,
+                              NotificationService notificationService,
+                              int maxRepositoryCalls,
+                              int maxNotificationCalls) {
+        this.roomRepository = new ConcurrencyLimitedRoomRepository(roomRepository, maxRepositoryCalls);
+        this.bookingSystem = new BookingSystem(timeProvider,
+                this.roomRepository,
+                new ConcurrencyLimitedNotificationService(notificationService, maxNotificationCalls),
+                roomLocks);
+    }
+
+    public CompletableFuture<Boolean> bookRoomAsync(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        return tryBookRoomAsync(roomId, startTime, endTime).thenApply(BookingResult::isBooked);
+    }
+
+    public CompletableFuture<BookingResult> tryBookRoomAsync(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        return submit(() -> bookingSystem.tryBookRoom(roomId, startTime, endTime));
+    }
+
+    public CompletableFuture<BookingResult> tryBookRoomAsync(String idempotencyKey, String roomId,
+                                                             LocalDateTime startTime, LocalDateTime endTime) {
+        return submit(() -> bookingSystem.tryBookRoom(idempotencyKey, roomId, startTime, endTime));
+    }
+
+    public CompletableFuture<Boolean> cancelBookingAsync(String bookingId) {
+        return submit(() -> bookingSystem.cancelBooking(bookingId));
+    }
+
+    public CompletableFuture<Boolean> cancelBookingAsync(String idempotencyKey, String bookingId) {
+        return submit(() -> bookingSystem.cancelBooking(idempotencyKey, bookingId));
+    }
+
+    public CompletableFuture<List<Room>> getAvailableRoomsAsync(LocalDateTime startTime, LocalDateTime endTime) {
+        return submit(() -> bookingSystem.getAvailableRooms(startTime, endTime));
+    }
+
+    // Hämtar rummen parallellt, ett anrop per rum. Om ett anrop misslyckas
+    // avbryts de övriga och felet returneras. Inga deluppgifter lever kvar
+    // efter att metoden är klar.
+    public CompletableFuture<List<Room>> getAvailableRoomsAsync(Collection<String> roomIds,
+                                                                LocalDateTime startTime,
+                                                                LocalDateTime endTime) {
+        return submit(() -> {
+            if (roomIds == null || startTime == null || endTime == null) {
+                throw new IllegalArgumentException("Måste ange rum samt både start- och sluttid");
+            }
+            if (endTime.isBefore(startTime)) {
+                throw new IllegalArgumentException("Sluttid måste vara efter starttid");
+            }
+            return findRooms(List.copyOf(roomIds)).stream()
+                    .filter(room -> roomLocks.withLock(room.getId(), () -> room.isAvailable(startTime, endTime)))
+                    .toList();
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private List<Room> findRooms(List<String> roomIds) {
+        Room[] found = new Room[roomIds.size()];
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            ExecutorCompletionService<Void> completion = new ExecutorCompletionService<>(scope);
+            List<Future<Void>> lookups = new ArrayList<>(roomIds.size());
+            for (int i = 0; i < roomIds.size(); i++) {
+                int index = i;
+                lookups.add(completion.submit(() -> {
+                    found[index] = roomRepository.findById(roomIds.get(index)).orElse(null);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < lookups.size(); i++) {
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    lookups.forEach(lookup -> lookup.cancel(true));
+                    throw new CompletionException(e.getCause());
+                } catch (InterruptedException e) {
+                    lookups.forEach(lookup -> lookup.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+            }
+        }
+        return Arrays.stream(found)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+}
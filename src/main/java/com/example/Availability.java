@@ -0,0 +1,49 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Resultatet av en tillgänglighetskontroll: krockande bokningar och
+// närmaste lediga tider med samma längd före och efter önskad tid
+public class Availability {
+    private static final Availability AVAILABLE = new Availability(List.of(), null, null);
+
+    private final List<Booking> conflicts;
+    private final TimeSlot earlierAlternative;
+    private final TimeSlot laterAlternative;
+
+    public Availability(List<Booking> conflicts, TimeSlot earlierAlternative, TimeSlot laterAlternative) {
+        this.conflicts = List.copyOf(conflicts);
+        this.earlierAlternative = earlierAlternative;
+        this.laterAlternative = laterAlternative;
+    }
+
+    public static Availability available() {
+        return AVAILABLE;
+    }
+
+    public boolean isAvailable() {
+        return conflicts.isEmpty();
+    }
+
+    public List<Booking> getConflicts() {
+        return conflicts;
+    }
+
+    public Optional<TimeSlot> getEarlierAlternative() {
+        return Optional.ofNullable(earlierAlternative);
+    }
+
+    public Optional<TimeSlot> getLaterAlternative() {
+        return Optional.ofNullable(laterAlternative);
+    }
+
+    // Tider före nutid går inte att boka och ska inte föreslås
+    public Availability notBefore(LocalDateTime time) {
+        if (earlierAlternative == null || !earlierAlternative.getStartTime().isBefore(time)) {
+            return this;
+        }
+        return new Availability(conflicts, null, laterAlternative);
+    }
+}
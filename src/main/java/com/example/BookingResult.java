@@ -0,0 +1,42 @@
+package com.example;
+
+import java.util.List;
+import java.util.Optional;
+
+public class BookingResult {
+    private final Booking booking;
+    private final Availability availability;
+
+    private BookingResult(Booking booking, Availability availability) {
+        this.booking = booking;
+        this.availability = availability;
+    }
+
+    public static BookingResult booked(Booking booking) {
+        return new BookingResult(booking, Availability.available());
+    }
+
+    public static BookingResult rejected(Availability availability) {
+        return new BookingResult(null, availability);
+    }
+
+    public boolean isBooked() {
+        return booking != null;
+    }
+
+    public Optional<Booking> getBooking() {
+        return Optional.ofNullable(booking);
+    }
+
+    public List<Booking> getConflicts() {
+        return availability.getConflicts();
+    }
+
+    public Optional<TimeSlot> getEarlierAlternative() {
+        return availability.getEarlierAlternative();
+    }
+
+    public Optional<TimeSlot> getLaterAlternative() {
+        return availability.getLaterAlternative();
+    }
+}
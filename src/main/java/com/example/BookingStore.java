@@ -0,0 +1,26 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+// Lagringsstrategi för ett rums bokningar
+public interface BookingStore extends AutoCloseable {
+    void add(Booking booking);
+    void remove(String bookingId);
+    boolean contains(String bookingId);
+    Optional<Booking> find(String bookingId);
+    boolean anyOverlap(LocalDateTime startTime, LocalDateTime endTime);
+    List<Booking> findOverlapping(LocalDateTime startTime, LocalDateTime endTime);
+    // Bokningar som börjar efter tiden, i stigande starttid
+    Iterator<Booking> startingAfter(LocalDateTime time);
+    // Bokningar som slutar före tiden, i fallande sluttid
+    Iterator<Booking> endingBefore(LocalDateTime time);
+    int size();
+
+    // Släpper lagrets resurser; lagret kan inte användas efteråt
+    @Override
+    default void close() {
+    }
+}
@@ -1,45 +1,83 @@
 package com.example;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class BookingSystem {
+    private static final int IDEMPOTENCY_CAPACITY = 10_000;
+    private static final Duration IDEMPOTENCY_TTL = Duration.ofHours(1);
+
     private final TimeProvider timeProvider;
     private final RoomRepository roomRepository;
     private final NotificationService notificationService;
+    private final IdempotencyCache<BookingResult> bookingResults;
+    private final IdempotencyCache<Boolean> cancellationResults;
+    private final List<Consumer<Booking>> cancellationListeners = new CopyOnWriteArrayList<>();
+    private final RoomLocks roomLocks;
 
     public BookingSystem(TimeProvider timeProvider,
                          RoomRepository roomRepository,
                          NotificationService notificationService) {
+        this(timeProvider, roomRepository, notificationService, RoomLocks.NONE);
+    }
+
+    // roomLocks skyddar varje rums bokningar när systemet anropas från flera
+    // trådar; null ger ingen låsning
+    BookingSystem(TimeProvider timeProvider,
+                  RoomRepository roomRepository,
+                  NotificationService notificationService,
+                  RoomLocks roomLocks) {
+        this.roomLocks = Objects.requireNonNullElse(roomLocks, RoomLocks.NONE);
         this.timeProvider = timeProvider;
         this.roomRepository = roomRepository;
         this.notificationService = notificationService;
+        this.bookingResults = new IdempotencyCache<>(IDEMPOTENCY_CAPACITY, IDEMPOTENCY_TTL, timeProvider);
+        this.cancellationResults = new IdempotencyCache<>(IDEMPOTENCY_CAPACITY, IDEMPOTENCY_TTL, timeProvider);
     }
 
     public boolean bookRoom(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
-        if (startTime == null || endTime == null || roomId == null) {
-            throw new IllegalArgumentException("Bokning kräver giltiga start- och sluttider samt rum-id");
-        }
+        return tryBookRoom(roomId, startTime, endTime).isBooked();
+    }
 
-        if (startTime.isBefore(timeProvider.getCurrentTime())) {
-            throw new IllegalArgumentException("Kan inte boka tid i dåtid");
-        }
+    // Upprepade anrop med samma nyckel ger det första anropets resultat
+    // utan att rummet eller notifieringstjänsten anropas igen. En nyckel som
+    // återanvänds med annat rum eller andra tider avvisas med IllegalArgumentException
+    public boolean bookRoom(String idempotencyKey, String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        return tryBookRoom(idempotencyKey, roomId, startTime, endTime).isBooked();
+    }
 
-        if (endTime.isBefore(startTime)) {
-            throw new IllegalArgumentException("Sluttid måste vara efter starttid");
-        }
+    public BookingResult tryBookRoom(String idempotencyKey, String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        return bookingResults.getOrCompute(idempotencyKey, new BookingRequest(roomId, startTime, endTime),
+                () -> tryBookRoom(roomId, startTime, endTime));
+    }
+
+    // Som bookRoom, men vid krock returneras de blockerande bokningarna
+    // och närmaste lediga alternativ från samma sökning
+    public BookingResult tryBookRoom(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime now = validateBookingRequest(roomId, startTime, endTime);
 
         Room room = roomRepository.findById(roomId)
                 .orElseThrow(() -> new IllegalArgumentException("Rummet existerar inte"));
 
-        if (!room.isAvailable(startTime, endTime)) {
-            return false;
+        BookingResult result = roomLocks.withLock(roomId, () -> {
+            Availability availability = room.checkAvailability(startTime, endTime);
+            if (!availability.isAvailable()) {
+                return BookingResult.rejected(availability.notBefore(now));
+            }
+
+            Booking booking = new Booking(UUID.randomUUID().toString(), roomId, startTime, endTime);
+            room.addBooking(booking);
+            roomRepository.save(room);
+            return BookingResult.booked(booking);
+        });
+        if (!result.isBooked()) {
+            return result;
         }
-
-        Booking booking = new Booking(UUID.randomUUID().toString(), roomId, startTime, endTime);
-        room.addBooking(booking);
-        roomRepository.save(room);
+        Booking booking = result.getBooking().orElseThrow();
 
         try {
             notificationService.sendBookingConfirmation(booking);
@@ -47,7 +85,30 @@ public class BookingSystem {
             // Fortsätt även om notifieringen misslyckas
         }
 
-        return true;
+        return result;
+    }
+
+    // Kontrollerar argumenten till en bokning utan att hämta rummet och
+    // returnerar tiden kontrollen gjordes mot
+    LocalDateTime validateBookingRequest(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime == null || endTime == null || roomId == null) {
+            throw new IllegalArgumentException("Bokning kräver giltiga start- och sluttider samt rum-id");
+        }
+
+        LocalDateTime now = timeProvider.getCurrentTime();
+        if (startTime.isBefore(now)) {
+            throw new IllegalArgumentException("Kan inte boka tid i dåtid");
+        }
+
+        if (endTime.isBefore(startTime)) {
+            throw new IllegalArgumentException("Sluttid måste vara efter starttid");
+        }
+        return now;
+    }
+
+    // Anropas med varje avbokad bokning, oavsett vem som avbokade den
+    public void addCancellationListener(Consumer<Booking> listener) {
+        cancellationListeners.add(listener);
     }
 
     public List<Room> getAvailableRooms(LocalDateTime startTime, LocalDateTime endTime) {
@@ -60,24 +121,50 @@ public class BookingSystem {
         }
 
         return roomRepository.findAll().stream()
-                .filter(room -> room.isAvailable(startTime, endTime))
+                .filter(room -> roomLocks.withLock(room.getId(), () -> room.isAvailable(startTime, endTime)))
                 .collect(Collectors.toList());
     }
 
+    public boolean cancelBooking(String idempotencyKey, String bookingId) {
+        return cancellationResults.getOrCompute(idempotencyKey, bookingId, () -> cancelBooking(bookingId));
+    }
+
     public boolean cancelBooking(String bookingId) {
         if (bookingId == null) {
             throw new IllegalArgumentException("Boknings-id kan inte vara null");
         }
 
-        Optional<Room> roomWithBooking = roomRepository.findAll().stream()
-                .filter(room -> room.hasBooking(bookingId))
-                .findFirst();
-
-        if (roomWithBooking.isEmpty()) {
+        Booking booking = removeBooking(bookingId);
+        if (booking == null) {
             return false;
         }
 
-        Room room = roomWithBooking.get();
+        cancellationListeners.forEach(listener -> listener.accept(booking));
+
+        try {
+            notificationService.sendCancellationConfirmation(booking);
+        } catch (NotificationException e) {
+            // Fortsätt även om notifieringen misslyckas
+        }
+
+        return true;
+    }
+
+    // Tar bort bokningen ur det rum som har den och returnerar den, annars null
+    private Booking removeBooking(String bookingId) {
+        for (Room room : roomRepository.findAll()) {
+            Booking booking = roomLocks.withLock(room.getId(), () -> removeBooking(room, bookingId));
+            if (booking != null) {
+                return booking;
+            }
+        }
+        return null;
+    }
+
+    private Booking removeBooking(Room room, String bookingId) {
+        if (!room.hasBooking(bookingId)) {
+            return null;
+        }
         Booking booking = room.getBooking(bookingId);
 
         if (booking.getStartTime().isBefore(timeProvider.getCurrentTime())) {
@@ -86,14 +173,11 @@ public class BookingSystem {
 
         room.removeBooking(bookingId);
         roomRepository.save(room);
+        return booking;
+    }
 
-        try {
-            notificationService.sendCancellationConfirmation(booking);
-        } catch (NotificationException e) {
-            // Fortsätt även om notifieringen misslyckas
-        }
-
-        return true;
+    // Parametrarna som en idempotensnyckel knyts till
+    private record BookingRequest(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
     }
 }
 
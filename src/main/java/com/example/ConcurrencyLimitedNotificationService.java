@@ -0,0 +1,46 @@
+package com.example;
+
+import java.util.concurrent.Semaphore;
+
+// Begränsar antalet samtidiga anrop mot en blockerande NotificationService
+public class ConcurrencyLimitedNotificationService implements NotificationService {
+    private final NotificationService delegate;
+    private final Semaphore permits;
+
+    public ConcurrencyLimitedNotificationService(NotificationService delegate, int maxConcurrentCalls) {
+        if (maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("Antalet samtidiga anrop måste vara positivt");
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    @Override
+    public void sendBookingConfirmation(Booking booking) throws NotificationException {
+        acquire();
+        try {
+            delegate.sendBookingConfirmation(booking);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void sendCancellationConfirmation(Booking booking) throws NotificationException {
+        acquire();
+        try {
+            delegate.sendCancellationConfirmation(booking);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() throws NotificationException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NotificationException("Avbruten i väntan på notifieringstjänsten");
+        }
+    }
+}
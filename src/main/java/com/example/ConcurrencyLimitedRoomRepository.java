@@ -0,0 +1,52 @@
+package com.example;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+// Begränsar antalet samtidiga anrop mot ett blockerande RoomRepository
+public class ConcurrencyLimitedRoomRepository implements RoomRepository {
+    private final RoomRepository delegate;
+    private final Semaphore permits;
+
+    public ConcurrencyLimitedRoomRepository(RoomRepository delegate, int maxConcurrentCalls) {
+        if (maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("Antalet samtidiga anrop måste vara positivt");
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    @Override
+    public Optional<Room> findById(String id) {
+        return limited(() -> delegate.findById(id));
+    }
+
+    @Override
+    public List<Room> findAll() {
+        return limited(delegate::findAll);
+    }
+
+    @Override
+    public void save(Room room) {
+        limited(() -> {
+            delegate.save(room);
+            return null;
+        });
+    }
+
+    private <T> T limited(Supplier<T> call) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Avbruten i väntan på rumsregistret", e);
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
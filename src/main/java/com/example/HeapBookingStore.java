@@ -0,0 +1,104 @@
+package com.example;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+public class HeapBookingStore implements BookingStore {
+    private final Map<String, Booking> bookings = new HashMap<>();
+    private final NavigableMap<LocalDateTime, List<Booking>> byStartTime = new TreeMap<>();
+    private final NavigableMap<LocalDateTime, List<Booking>> byEndTime = new TreeMap<>();
+    // Längsta bokningen avgör hur långt bakåt en överlappande bokning kan börja.
+    // Värdet krymper aldrig, vilket bara gör sökfönstret bredare än nödvändigt.
+    private Duration longestBooking = Duration.ZERO;
+
+    @Override
+    public void add(Booking booking) {
+        remove(booking.getId());
+        bookings.put(booking.getId(), booking);
+        byStartTime.computeIfAbsent(booking.getStartTime(), start -> new ArrayList<>(1)).add(booking);
+        byEndTime.computeIfAbsent(booking.getEndTime(), end -> new ArrayList<>(1)).add(booking);
+        Duration length = Duration.between(booking.getStartTime(), booking.getEndTime());
+        if (length.compareTo(longestBooking) > 0) {
+            longestBooking = length;
+        }
+    }
+
+    @Override
+    public void remove(String bookingId) {
+        Booking removed = bookings.remove(bookingId);
+        if (removed == null) {
+            return;
+        }
+        removeFrom(byStartTime, removed.getStartTime(), removed);
+        removeFrom(byEndTime, removed.getEndTime(), removed);
+    }
+
+    @Override
+    public boolean contains(String bookingId) {
+        return bookings.containsKey(bookingId);
+    }
+
+    @Override
+    public Optional<Booking> find(String bookingId) {
+        return Optional.ofNullable(bookings.get(bookingId));
+    }
+
+    @Override
+    public boolean anyOverlap(LocalDateTime startTime, LocalDateTime endTime) {
+        return candidates(startTime, endTime).values().stream()
+                .flatMap(List::stream)
+                .anyMatch(booking -> booking.overlaps(startTime, endTime));
+    }
+
+    @Override
+    public List<Booking> findOverlapping(LocalDateTime startTime, LocalDateTime endTime) {
+        return candidates(startTime, endTime).values().stream()
+                .flatMap(List::stream)
+                .filter(booking -> booking.overlaps(startTime, endTime))
+                .toList();
+    }
+
+    @Override
+    public Iterator<Booking> startingAfter(LocalDateTime time) {
+        return flatten(byStartTime.tailMap(time, false).values());
+    }
+
+    @Override
+    public Iterator<Booking> endingBefore(LocalDateTime time) {
+        return flatten(byEndTime.headMap(time, false).descendingMap().values());
+    }
+
+    @Override
+    public int size() {
+        return bookings.size();
+    }
+
+    private NavigableMap<LocalDateTime, List<Booking>> candidates(LocalDateTime startTime, LocalDateTime endTime) {
+        if (endTime.isBefore(startTime)) {
+            return byStartTime.headMap(endTime, true);
+        }
+        return byStartTime.subMap(startTime.minus(longestBooking), true, endTime, true);
+    }
+
+    private static void removeFrom(NavigableMap<LocalDateTime, List<Booking>> index, LocalDateTime key,
+                                   Booking booking) {
+        List<Booking> sameTime = index.get(key);
+        sameTime.remove(booking);
+        if (sameTime.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static Iterator<Booking> flatten(Collection<List<Booking>> bookings) {
+        return bookings.stream().flatMap(List::stream).iterator();
+    }
+}
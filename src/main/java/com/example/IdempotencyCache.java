@@ -0,0 +1,116 @@
+package com.example;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Begränsad cache av resultat per idempotensnyckel. Poster tas bort när
+// de blivit för gamla eller när cachen är full (äldsta först).
+// Samtidiga anrop med samma nyckel väntar på det första anropets resultat.
+// Nyckeln knyts till begärans parametrar, så att en återanvänd nyckel med
+// andra parametrar avvisas i stället för att ge ett resultat som inte gäller den.
+public class IdempotencyCache<V> {
+    private final int maxEntries;
+    private final Duration timeToLive;
+    private final TimeProvider timeProvider;
+    private final Map<String, Entry<V>> entries = new LinkedHashMap<>();
+
+    public IdempotencyCache(int maxEntries, Duration timeToLive, TimeProvider timeProvider) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cachen måste rymma minst en post");
+        }
+        if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Livslängden måste vara positiv");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.timeProvider = timeProvider;
+    }
+
+    public V getOrCompute(String key, Object request, Supplier<V> operation) {
+        if (key == null) {
+            throw new IllegalArgumentException("Idempotensnyckel kan inte vara null");
+        }
+
+        Entry<V> entry;
+        boolean firstCall = false;
+        synchronized (this) {
+            LocalDateTime now = timeProvider.getCurrentTime();
+            evictExpired(now);
+            entry = entries.get(key);
+            if (entry != null && !Objects.equals(entry.request, request)) {
+                throw new IllegalArgumentException("Idempotensnyckeln har redan använts för en annan begäran");
+            }
+            if (entry == null) {
+                entry = new Entry<>(request, new CompletableFuture<>(), now.plus(timeToLive));
+                entries.put(key, entry);
+                evictOverflow();
+                firstCall = true;
+            }
+        }
+
+        if (!firstCall) {
+            return await(entry.result);
+        }
+
+        try {
+            V value = operation.get();
+            entry.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // Misslyckade anrop sparas inte, så att ett nytt försök körs på riktigt
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Posterna ligger i insättningsordning och har samma livslängd,
+    // så de äldsta ligger först
+    private void evictExpired(LocalDateTime now) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt.isAfter(now)) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record Entry<V>(Object request, CompletableFuture<V> result, LocalDateTime expiresAt) {
+    }
+}
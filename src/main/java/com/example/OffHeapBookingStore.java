@@ -0,0 +1,527 @@
+package com.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+// Lagrar bokningar som poster med fast bredd utanför heapen.
+// Booking-objekt skapas först när en bokning efterfrågas.
+// Posterna hålls sorterade på starttid. Ett index sorterat på boknings-id
+// pekar ut dem och ett index sorterat på sluttid gör att bokningar kan gås
+// igenom bakåt i tiden, så att uppslag, överlappssökningar och sökningar
+// efter lediga tider görs med binärsökning i stället för att gå igenom
+// alla poster.
+// Segmenten ägs av en arena som lagret håller själv, så minnet frigörs
+// först när lagret stängs och lagret måste därför alltid stängas.
+public class OffHeapBookingStore implements BookingStore {
+    static final long RECORD_SIZE = 48;
+    static final long ID_ENTRY_SIZE = 32;
+    static final long END_ENTRY_SIZE = 40;
+
+    private static final long ID_MSB = 0;
+    private static final long ID_LSB = 8;
+    private static final long START_SECONDS = 16;
+    private static final long END_SECONDS = 24;
+    private static final long ROOM_ORDINAL = 32;
+    private static final long START_NANOS = 36;
+    private static final long END_NANOS = 40;
+
+    // Indexposten: id och starttid, som räcker för att hitta posten
+    private static final long ENTRY_START_SECONDS = 16;
+    private static final long ENTRY_START_NANOS = 24;
+
+    // Sluttidsindexet: hela bokningen, så att den kan återskapas direkt
+    private static final long BY_END_END_SECONDS = 0;
+    private static final long BY_END_START_SECONDS = 8;
+    private static final long BY_END_ID_MSB = 16;
+    private static final long BY_END_ID_LSB = 24;
+    private static final long BY_END_END_NANOS = 32;
+    private static final long BY_END_START_NANOS = 36;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final String roomId;
+    private final int roomOrdinal;
+    // Äger de aktuella segmenten; byts ut vid tillväxt och stängs av close
+    private Arena arena;
+    private MemorySegment records;
+    private MemorySegment ids;
+    private MemorySegment ends;
+    private int capacity;
+    private int count;
+    // Längsta bokningen i hela sekunder, avrundat uppåt; avgör hur långt
+    // före en sökning en överlappande bokning kan börja
+    private long longestSeconds;
+    private boolean closed;
+
+    public OffHeapBookingStore(String roomId, int roomOrdinal) {
+        this(roomId, roomOrdinal, DEFAULT_CAPACITY);
+    }
+
+    public OffHeapBookingStore(String roomId, int roomOrdinal, int initialCapacity) {
+        if (roomId == null) {
+            throw new IllegalArgumentException("Rum-id kan inte vara null");
+        }
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Kapaciteten måste vara positiv");
+        }
+        this.roomId = roomId;
+        this.roomOrdinal = roomOrdinal;
+        this.arena = Arena.ofShared();
+        this.records = allocate(arena, initialCapacity * RECORD_SIZE);
+        this.ids = allocate(arena, initialCapacity * ID_ENTRY_SIZE);
+        this.ends = allocate(arena, initialCapacity * END_ENTRY_SIZE);
+        this.capacity = initialCapacity;
+    }
+
+    @Override
+    public void add(Booking booking) {
+        ensureOpen();
+        UUID id = parseId(booking.getId());
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        int idIndex = searchId(msb, lsb);
+        if (idIndex >= 0) {
+            removeAt(idIndex);
+            idIndex = searchId(msb, lsb);
+        }
+        ensureCapacity(count + 1);
+
+        long startSeconds = booking.getStartTime().toEpochSecond(ZoneOffset.UTC);
+        int startNanos = booking.getStartTime().getNano();
+        long endSeconds = booking.getEndTime().toEpochSecond(ZoneOffset.UTC);
+        int endNanos = booking.getEndTime().getNano();
+
+        int index = upperBound(startSeconds, startNanos);
+        makeRoom(records, index, RECORD_SIZE);
+        long offset = index * RECORD_SIZE;
+        records.set(ValueLayout.JAVA_LONG, offset + ID_MSB, msb);
+        records.set(ValueLayout.JAVA_LONG, offset + ID_LSB, lsb);
+        records.set(ValueLayout.JAVA_LONG, offset + START_SECONDS, startSeconds);
+        records.set(ValueLayout.JAVA_LONG, offset + END_SECONDS, endSeconds);
+        records.set(ValueLayout.JAVA_INT, offset + ROOM_ORDINAL, roomOrdinal);
+        records.set(ValueLayout.JAVA_INT, offset + START_NANOS, startNanos);
+        records.set(ValueLayout.JAVA_INT, offset + END_NANOS, endNanos);
+
+        int entry = -idIndex - 1;
+        makeRoom(ids, entry, ID_ENTRY_SIZE);
+        long entryOffset = entry * ID_ENTRY_SIZE;
+        ids.set(ValueLayout.JAVA_LONG, entryOffset + ID_MSB, msb);
+        ids.set(ValueLayout.JAVA_LONG, entryOffset + ID_LSB, lsb);
+        ids.set(ValueLayout.JAVA_LONG, entryOffset + ENTRY_START_SECONDS, startSeconds);
+        ids.set(ValueLayout.JAVA_INT, entryOffset + ENTRY_START_NANOS, startNanos);
+
+        int byEnd = upperBoundEnd(endSeconds, endNanos);
+        makeRoom(ends, byEnd, END_ENTRY_SIZE);
+        long byEndOffset = byEnd * END_ENTRY_SIZE;
+        ends.set(ValueLayout.JAVA_LONG, byEndOffset + BY_END_END_SECONDS, endSeconds);
+        ends.set(ValueLayout.JAVA_LONG, byEndOffset + BY_END_START_SECONDS, startSeconds);
+        ends.set(ValueLayout.JAVA_LONG, byEndOffset + BY_END_ID_MSB, msb);
+        ends.set(ValueLayout.JAVA_LONG, byEndOffset + BY_END_ID_LSB, lsb);
+        ends.set(ValueLayout.JAVA_INT, byEndOffset + BY_END_END_NANOS, endNanos);
+        ends.set(ValueLayout.JAVA_INT, byEndOffset + BY_END_START_NANOS, startNanos);
+
+        count++;
+        longestSeconds = Math.max(longestSeconds, endSeconds - startSeconds + 1);
+    }
+
+    @Override
+    public void remove(String bookingId) {
+        ensureOpen();
+        int idIndex = indexOf(bookingId);
+        if (idIndex >= 0) {
+            removeAt(idIndex);
+        }
+    }
+
+    @Override
+    public boolean contains(String bookingId) {
+        ensureOpen();
+        return indexOf(bookingId) >= 0;
+    }
+
+    @Override
+    public Optional<Booking> find(String bookingId) {
+        ensureOpen();
+        int idIndex = indexOf(bookingId);
+        return idIndex < 0 ? Optional.empty() : Optional.of(materialize(recordIndexOf(idIndex)));
+    }
+
+    @Override
+    public boolean anyOverlap(LocalDateTime startTime, LocalDateTime endTime) {
+        ensureOpen();
+        long startSeconds = startTime.toEpochSecond(ZoneOffset.UTC);
+        int startNanos = startTime.getNano();
+        long endSeconds = endTime.toEpochSecond(ZoneOffset.UTC);
+        int endNanos = endTime.getNano();
+        int to = upperBound(endSeconds, endNanos);
+        for (int i = lowerBound(startSeconds - longestSeconds, startNanos); i < to; i++) {
+            if (overlaps(i * RECORD_SIZE, startSeconds, startNanos, endSeconds, endNanos)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<Booking> findOverlapping(LocalDateTime startTime, LocalDateTime endTime) {
+        ensureOpen();
+        long startSeconds = startTime.toEpochSecond(ZoneOffset.UTC);
+        int startNanos = startTime.getNano();
+        long endSeconds = endTime.toEpochSecond(ZoneOffset.UTC);
+        int endNanos = endTime.getNano();
+        List<Booking> overlapping = new ArrayList<>();
+        int to = upperBound(endSeconds, endNanos);
+        for (int i = lowerBound(startSeconds - longestSeconds, startNanos); i < to; i++) {
+            if (overlaps(i * RECORD_SIZE, startSeconds, startNanos, endSeconds, endNanos)) {
+                overlapping.add(materialize(i));
+            }
+        }
+        return overlapping;
+    }
+
+    @Override
+    public Iterator<Booking> startingAfter(LocalDateTime time) {
+        ensureOpen();
+        int from = upperBound(time.toEpochSecond(ZoneOffset.UTC), time.getNano());
+        return new Iterator<>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Booking next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return materialize(next++);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Booking> endingBefore(LocalDateTime time) {
+        ensureOpen();
+        int from = lowerBoundEnd(time.toEpochSecond(ZoneOffset.UTC), time.getNano()) - 1;
+        return new Iterator<>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Booking next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return materializeByEnd(next--);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    public int getRoomOrdinal() {
+        return roomOrdinal;
+    }
+
+    // Stänger lagrets arena så att minnet frigörs direkt i stället för när GC hinner
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        arena.close();
+        arena = null;
+        records = MemorySegment.NULL;
+        ids = MemorySegment.NULL;
+        ends = MemorySegment.NULL;
+        capacity = 0;
+        count = 0;
+    }
+
+    // Samma semantik som Booking.overlaps: sluttid inte före start och starttid inte efter slut
+    private boolean overlaps(long offset, long startSeconds, int startNanos, long endSeconds, int endNanos) {
+        int endVsStart = compare(
+                records.get(ValueLayout.JAVA_LONG, offset + END_SECONDS),
+                records.get(ValueLayout.JAVA_INT, offset + END_NANOS),
+                startSeconds, startNanos);
+        if (endVsStart < 0) {
+            return false;
+        }
+        int startVsEnd = compare(
+                records.get(ValueLayout.JAVA_LONG, offset + START_SECONDS),
+                records.get(ValueLayout.JAVA_INT, offset + START_NANOS),
+                endSeconds, endNanos);
+        return startVsEnd <= 0;
+    }
+
+    private static int compare(long seconds, int nanos, long otherSeconds, int otherNanos) {
+        int result = Long.compare(seconds, otherSeconds);
+        return result != 0 ? result : Integer.compare(nanos, otherNanos);
+    }
+
+    private int compareStart(int index, long seconds, int nanos) {
+        long offset = index * RECORD_SIZE;
+        return compare(
+                records.get(ValueLayout.JAVA_LONG, offset + START_SECONDS),
+                records.get(ValueLayout.JAVA_INT, offset + START_NANOS),
+                seconds, nanos);
+    }
+
+    // Första posten som börjar vid eller efter angiven tid
+    private int lowerBound(long seconds, int nanos) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareStart(mid, seconds, nanos) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Första posten som börjar efter angiven tid
+    private int upperBound(long seconds, int nanos) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareStart(mid, seconds, nanos) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareEnd(int index, long seconds, int nanos) {
+        long offset = index * END_ENTRY_SIZE;
+        return compare(
+                ends.get(ValueLayout.JAVA_LONG, offset + BY_END_END_SECONDS),
+                ends.get(ValueLayout.JAVA_INT, offset + BY_END_END_NANOS),
+                seconds, nanos);
+    }
+
+    // Första posten i sluttidsindexet som slutar vid eller efter angiven tid
+    private int lowerBoundEnd(long seconds, int nanos) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareEnd(mid, seconds, nanos) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Första posten i sluttidsindexet som slutar efter angiven tid
+    private int upperBoundEnd(long seconds, int nanos) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareEnd(mid, seconds, nanos) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Indexpostens position, eller -(insättningspunkt) - 1 om id saknas
+    private int searchId(long msb, long lsb) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long offset = mid * ID_ENTRY_SIZE;
+            int result = Long.compare(ids.get(ValueLayout.JAVA_LONG, offset + ID_MSB), msb);
+            if (result == 0) {
+                result = Long.compare(ids.get(ValueLayout.JAVA_LONG, offset + ID_LSB), lsb);
+            }
+            if (result < 0) {
+                low = mid + 1;
+            } else if (result > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int indexOf(String bookingId) {
+        UUID id = tryParseId(bookingId);
+        return id == null ? -1 : searchId(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    // Letar upp posten via indexpostens starttid; bara poster med samma starttid jämförs
+    private int recordIndexOf(int idIndex) {
+        long entryOffset = idIndex * ID_ENTRY_SIZE;
+        long msb = ids.get(ValueLayout.JAVA_LONG, entryOffset + ID_MSB);
+        long lsb = ids.get(ValueLayout.JAVA_LONG, entryOffset + ID_LSB);
+        long startSeconds = ids.get(ValueLayout.JAVA_LONG, entryOffset + ENTRY_START_SECONDS);
+        int startNanos = ids.get(ValueLayout.JAVA_INT, entryOffset + ENTRY_START_NANOS);
+        for (int i = lowerBound(startSeconds, startNanos); i < count; i++) {
+            long offset = i * RECORD_SIZE;
+            if (records.get(ValueLayout.JAVA_LONG, offset + ID_MSB) == msb
+                    && records.get(ValueLayout.JAVA_LONG, offset + ID_LSB) == lsb) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Indexet pekar på en post som saknas");
+    }
+
+    private int endIndexOf(int recordIndex) {
+        long offset = recordIndex * RECORD_SIZE;
+        long msb = records.get(ValueLayout.JAVA_LONG, offset + ID_MSB);
+        long lsb = records.get(ValueLayout.JAVA_LONG, offset + ID_LSB);
+        long endSeconds = records.get(ValueLayout.JAVA_LONG, offset + END_SECONDS);
+        int endNanos = records.get(ValueLayout.JAVA_INT, offset + END_NANOS);
+        for (int i = lowerBoundEnd(endSeconds, endNanos); i < count; i++) {
+            long byEndOffset = i * END_ENTRY_SIZE;
+            if (ends.get(ValueLayout.JAVA_LONG, byEndOffset + BY_END_ID_MSB) == msb
+                    && ends.get(ValueLayout.JAVA_LONG, byEndOffset + BY_END_ID_LSB) == lsb) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Indexet pekar på en post som saknas");
+    }
+
+    private void removeAt(int idIndex) {
+        int index = recordIndexOf(idIndex);
+        closeGap(ends, endIndexOf(index), END_ENTRY_SIZE);
+        closeGap(records, index, RECORD_SIZE);
+        closeGap(ids, idIndex, ID_ENTRY_SIZE);
+        count--;
+    }
+
+    // Flyttar posterna från position index ett steg bakåt
+    private void makeRoom(MemorySegment segment, int index, long entrySize) {
+        if (index < count) {
+            MemorySegment.copy(segment, index * entrySize, segment, (index + 1) * entrySize,
+                    (count - index) * entrySize);
+        }
+    }
+
+    // Flyttar posterna efter position index ett steg framåt så att de ligger tätt
+    private void closeGap(MemorySegment segment, int index, long entrySize) {
+        int last = count - 1;
+        if (index < last) {
+            MemorySegment.copy(segment, (index + 1) * entrySize, segment, index * entrySize,
+                    (last - index) * entrySize);
+        }
+    }
+
+    private Booking materialize(int index) {
+        long offset = index * RECORD_SIZE;
+        UUID id = new UUID(
+                records.get(ValueLayout.JAVA_LONG, offset + ID_MSB),
+                records.get(ValueLayout.JAVA_LONG, offset + ID_LSB));
+        LocalDateTime start = LocalDateTime.ofEpochSecond(
+                records.get(ValueLayout.JAVA_LONG, offset + START_SECONDS),
+                records.get(ValueLayout.JAVA_INT, offset + START_NANOS),
+                ZoneOffset.UTC);
+        LocalDateTime end = LocalDateTime.ofEpochSecond(
+                records.get(ValueLayout.JAVA_LONG, offset + END_SECONDS),
+                records.get(ValueLayout.JAVA_INT, offset + END_NANOS),
+                ZoneOffset.UTC);
+        return new Booking(id.toString(), roomId, start, end);
+    }
+
+    private Booking materializeByEnd(int index) {
+        long offset = index * END_ENTRY_SIZE;
+        UUID id = new UUID(
+                ends.get(ValueLayout.JAVA_LONG, offset + BY_END_ID_MSB),
+                ends.get(ValueLayout.JAVA_LONG, offset + BY_END_ID_LSB));
+        LocalDateTime start = LocalDateTime.ofEpochSecond(
+                ends.get(ValueLayout.JAVA_LONG, offset + BY_END_START_SECONDS),
+                ends.get(ValueLayout.JAVA_INT, offset + BY_END_START_NANOS),
+                ZoneOffset.UTC);
+        LocalDateTime end = LocalDateTime.ofEpochSecond(
+                ends.get(ValueLayout.JAVA_LONG, offset + BY_END_END_SECONDS),
+                ends.get(ValueLayout.JAVA_INT, offset + BY_END_END_NANOS),
+                ZoneOffset.UTC);
+        return new Booking(id.toString(), roomId, start, end);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity * 2);
+        Arena newArena = Arena.ofShared();
+        MemorySegment newRecords = allocate(newArena, newCapacity * RECORD_SIZE);
+        MemorySegment newIds = allocate(newArena, newCapacity * ID_ENTRY_SIZE);
+        MemorySegment newEnds = allocate(newArena, newCapacity * END_ENTRY_SIZE);
+        MemorySegment.copy(records, 0, newRecords, 0, count * RECORD_SIZE);
+        MemorySegment.copy(ids, 0, newIds, 0, count * ID_ENTRY_SIZE);
+        MemorySegment.copy(ends, 0, newEnds, 0, count * END_ENTRY_SIZE);
+        records = newRecords;
+        ids = newIds;
+        ends = newEnds;
+        capacity = newCapacity;
+        // De ersatta segmenten frigörs direkt när deras arena stängs
+        Arena oldArena = arena;
+        arena = newArena;
+        oldArena.close();
+    }
+
+    // Arenan är delad eftersom rummet kan användas från flera trådar under sina lås
+    private static MemorySegment allocate(Arena arena, long bytes) {
+        return arena.allocate(bytes, Long.BYTES);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Lagret är stängt");
+        }
+    }
+
+    private static UUID parseId(String bookingId) {
+        UUID id = tryParseId(bookingId);
+        if (id == null) {
+            throw new IllegalArgumentException("Boknings-id måste vara ett UUID");
+        }
+        return id;
+    }
+
+    private static UUID tryParseId(String bookingId) {
+        if (bookingId == null) {
+            return null;
+        }
+        try {
+            UUID id = UUID.fromString(bookingId);
+            // Endast kanoniska UUID kan återskapas exakt från posten
+            return id.toString().equals(bookingId) ? id : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example;
+
+public record RateLimit(int burst, double permitsPerSecond) {
+    public RateLimit {
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst måste vara positiv");
+        }
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Takten måste vara positiv");
+        }
+    }
+}
@@ -1,23 +1,99 @@
 package com.example;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 
-public class Room {
+public class Room implements AutoCloseable {
     private final String id;
     private final String name;
-    private final Set<Booking> bookings = new HashSet<>();
+    private final BookingStore bookings;
 
     public Room(String id, String name) {
+        this(id, name, new HeapBookingStore());
+    }
+
+    public Room(String id, String name, BookingStore bookings) {
         this.id = id;
         this.name = name;
+        this.bookings = bookings;
     }
 
     public boolean isAvailable(LocalDateTime startTime, LocalDateTime endTime) {
+        return !bookings.anyOverlap(startTime, endTime);
+    }
+
+    public Availability checkAvailability(LocalDateTime startTime, LocalDateTime endTime) {
+        List<Booking> conflicts = bookings.findOverlapping(startTime, endTime);
+        if (conflicts.isEmpty()) {
+            return Availability.available();
+        }
+        Duration length = Duration.between(startTime, endTime);
+        return new Availability(conflicts,
+                findEarlierSlot(startTime, conflicts, length),
+                findLaterSlot(endTime, conflicts, length));
+    }
+
+    // Går igenom bokningarna efter önskad tid i startordning en gång och
+    // flyttar förslaget förbi varje bokning som krockar med det
+    private TimeSlot findLaterSlot(LocalDateTime requestedEnd, List<Booking> conflicts, Duration length) {
+        LocalDateTime start = firstFreeAfter(latestEnd(conflicts));
+        Iterator<Booking> following = bookings.startingAfter(requestedEnd);
+        while (following.hasNext()) {
+            Booking next = following.next();
+            LocalDateTime end = start.plus(length);
+            if (next.getStartTime().isAfter(end)) {
+                break;
+            }
+            if (next.overlaps(start, end)) {
+                start = firstFreeAfter(next.getEndTime());
+            }
+        }
+        return new TimeSlot(start, start.plus(length));
+    }
+
+    // Samma sak bakåt i tiden, med bokningarna före önskad tid i fallande slutordning
+    private TimeSlot findEarlierSlot(LocalDateTime requestedStart, List<Booking> conflicts, Duration length) {
+        LocalDateTime end = lastFreeBefore(earliestStart(conflicts));
+        Iterator<Booking> preceding = bookings.endingBefore(requestedStart);
+        while (preceding.hasNext()) {
+            Booking previous = preceding.next();
+            LocalDateTime start = end.minus(length);
+            if (previous.getEndTime().isBefore(start)) {
+                break;
+            }
+            if (previous.overlaps(start, end)) {
+                end = lastFreeBefore(previous.getStartTime());
+            }
+        }
+        return new TimeSlot(end.minus(length), end);
+    }
+
+    // Booking.overlaps räknar en bokning som slutar exakt när en annan börjar
+    // som krock, så närmaste lediga tidpunkt ligger ett steg (1 ns, den minsta
+    // skillnad LocalDateTime kan uttrycka) efter sluttiden respektive före starttiden
+    private static LocalDateTime firstFreeAfter(LocalDateTime endTime) {
+        return endTime.plusNanos(1);
+    }
+
+    private static LocalDateTime lastFreeBefore(LocalDateTime startTime) {
+        return startTime.minusNanos(1);
+    }
+
+    private static LocalDateTime latestEnd(List<Booking> bookings) {
+        return bookings.stream()
+                .map(Booking::getEndTime)
+                .max(Comparator.naturalOrder())
+                .orElseThrow();
+    }
+
+    private static LocalDateTime earliestStart(List<Booking> bookings) {
         return bookings.stream()
-                .noneMatch(booking ->
-                        booking.overlaps(startTime, endTime));
+                .map(Booking::getStartTime)
+                .min(Comparator.naturalOrder())
+                .orElseThrow();
     }
 
     public void addBooking(Booking booking) {
@@ -25,21 +101,24 @@ public class Room {
     }
 
     public void removeBooking(String bookingId) {
-        bookings.removeIf(booking -> booking.getId().equals(bookingId));
+        bookings.remove(bookingId);
     }
 
     public boolean hasBooking(String bookingId) {
-        return bookings.stream()
-                .anyMatch(booking -> booking.getId().equals(bookingId));
+        return bookings.contains(bookingId);
     }
 
     public Booking getBooking(String bookingId) {
-        return bookings.stream()
-                .filter(booking -> booking.getId().equals(bookingId))
-                .findFirst()
+        return bookings.find(bookingId)
                 .orElseThrow(() -> new IllegalArgumentException("Bokning finns inte"));
     }
 
+    // Stänger rummets bokningslager, t.ex. när rummet tas bort
+    @Override
+    public void close() {
+        bookings.close();
+    }
+
     public String getId() {
         return id;
     }
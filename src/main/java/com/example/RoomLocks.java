@@ -0,0 +1,35 @@
+package com.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Serialiserar läsningar och ändringar av ett rums bokningar. Room och
+// bokningslagren är inte trådsäkra, så samtidiga anropare måste gå via samma lås.
+interface RoomLocks {
+    RoomLocks NONE = new RoomLocks() {
+        @Override
+        public <T> T withLock(String roomId, Supplier<T> operation) {
+            return operation.get();
+        }
+    };
+
+    <T> T withLock(String roomId, Supplier<T> operation);
+
+    static RoomLocks perRoom() {
+        Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+        return new RoomLocks() {
+            @Override
+            public <T> T withLock(String roomId, Supplier<T> operation) {
+                ReentrantLock lock = locks.computeIfAbsent(roomId, id -> new ReentrantLock());
+                lock.lock();
+                try {
+                    return operation.get();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.example;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+// Token bucket med reservation: ett anrop kan reservera en token som
+// blir tillgänglig inom maxväntetiden och får då veta hur länge det ska vänta
+public class TokenBucket {
+    private final double capacity;
+    private final double nanosPerToken;
+    private final LongSupplier nanoTime;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(int capacity, double tokensPerSecond) {
+        this(capacity, tokensPerSecond, System::nanoTime);
+    }
+
+    TokenBucket(int capacity, double tokensPerSecond, LongSupplier nanoTime) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Kapaciteten måste vara positiv");
+        }
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Påfyllnadstakten måste vara positiv");
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = Duration.ofSeconds(1).toNanos() / tokensPerSecond;
+        this.nanoTime = nanoTime;
+        this.tokens = capacity;
+        this.lastRefill = nanoTime.getAsLong();
+    }
+
+    public boolean tryAcquire() {
+        return reserve(Duration.ZERO) == 0;
+    }
+
+    // Returnerar väntetiden i nanosekunder, eller -1 om ingen token
+    // blir ledig inom maxWait
+    public synchronized long reserve(Duration maxWait) {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long waitNanos = (long) Math.ceil((1 - tokens) * nanosPerToken);
+        if (waitNanos > maxWait.toNanos()) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    // En full hink beter sig som en nyskapad och kan kastas
+    synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    // Lämnar tillbaka en token som inte användes
+    public synchronized void release() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) / nanosPerToken);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Immutable fixed-point monetary amount.
+ * <p>
+ * The amount is stored as a {@code long} number of minor units (e.g. öre or cents)
+ * of its currency, which keeps arithmetic exact and avoids the drift of
+ * {@code double} as well as the allocation cost of {@link BigDecimal}.
+ * Hot paths can work directly on minor units through the static helpers
+ * and only create a {@code Money} at API boundaries.
+ * <p>
+ * Arithmetic between amounts requires matching currencies and throws
+ * {@link ArithmeticException} on overflow.
+ *
+ * @param minorUnits the amount in minor units of the currency
+ * @param currency   the currency of the amount
+ */
+public record Money(long minorUnits, Currency currency) implements Comparable<Money> {
+
+    /**
+     * Currency used when an amount is given as a plain number.
+     */
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("SEK");
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L};
+
+    // Below this many minor units a scaled double is accurate to well within ROUNDING_MARGIN
+    private static final double FAST_ROUNDING_LIMIT = 1e9;
+    private static final double ROUNDING_MARGIN = 1e-6;
+
+    public Money {
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency cannot be null");
+        }
+    }
+
+    /**
+     * Creates an amount from minor units.
+     *
+     * @param minorUnits the amount in minor units
+     * @param currency   the currency
+     * @return the amount
+     */
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * Creates an amount from a decimal number, rounded half-even to the
+     * currency's minor unit.
+     *
+     * @param amount   the amount in major units
+     * @param currency the currency
+     * @return the amount
+     * @throws IllegalArgumentException if the amount is not a finite number
+     */
+    public static Money of(double amount, Currency currency) {
+        return new Money(toMinorUnits(amount, currency), currency);
+    }
+
+    /**
+     * Creates an amount in {@link #DEFAULT_CURRENCY} from a decimal number.
+     *
+     * @param amount the amount in major units
+     * @return the amount
+     */
+    public static Money of(double amount) {
+        return of(amount, DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Creates an amount from a decimal number, rounded half-even to the
+     * currency's minor unit.
+     *
+     * @param amount   the amount in major units
+     * @param currency the currency
+     * @return the amount
+     */
+    public static Money of(BigDecimal amount, Currency currency) {
+        return new Money(amount.movePointRight(fractionDigits(currency))
+                .setScale(0, RoundingMode.HALF_EVEN)
+                .longValueExact(), currency);
+    }
+
+    /**
+     * Returns a zero amount in the given currency.
+     *
+     * @param currency the currency
+     * @return the zero amount
+     */
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long factor) {
+        return new Money(Math.multiplyExact(minorUnits, factor), currency);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    /**
+     * Returns the amount in major units as a {@code double}, for APIs that
+     * still take floating-point amounts.
+     *
+     * @return the amount in major units
+     */
+    public double toDouble() {
+        return toDouble(minorUnits, currency);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+
+    /**
+     * Converts a decimal amount to minor units, rounded half-even.
+     *
+     * @param amount   the amount in major units
+     * @param currency the currency
+     * @return the amount in minor units
+     * @throws IllegalArgumentException if the amount is not a finite number
+     */
+    public static long toMinorUnits(double amount, Currency currency) {
+        if (!Double.isFinite(amount)) {
+            throw new IllegalArgumentException("Amount must be a finite number");
+        }
+        // Fast path without BigDecimal when the amount is clearly off a half-way point
+        double scaled = amount * POWERS_OF_TEN[fractionDigits(currency)];
+        double nearest = Math.rint(scaled);
+        if (Math.abs(scaled) < FAST_ROUNDING_LIMIT && Math.abs(scaled - nearest) < 0.5 - ROUNDING_MARGIN) {
+            return (long) nearest;
+        }
+        return BigDecimal.valueOf(amount)
+                .movePointRight(fractionDigits(currency))
+                .setScale(0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+    }
+
+    /**
+     * Converts minor units to a decimal amount in major units.
+     *
+     * @param minorUnits the amount in minor units
+     * @param currency   the currency
+     * @return the amount in major units
+     */
+    public static double toDouble(long minorUnits, Currency currency) {
+        return (double) minorUnits / POWERS_OF_TEN[fractionDigits(currency)];
+    }
+
+    private static int fractionDigits(Currency currency) {
+        // Pseudo-currencies report -1; treat them as having no minor unit
+        return Math.max(0, currency.getDefaultFractionDigits());
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link NotificationService} that queues payment confirmations and sends
+ * them in batches over one reused {@link MailConnection}.
+ * <p>
+ * Callers neither render templates nor open connections: a confirmation is
+ * queued and the call returns. A virtual thread collects queued confirmations
+ * for up to the flush window, or until a batch is full, renders them with a
+ * pre-compiled {@link ConfirmationTemplate} and sends the batch in one call.
+ * The connection is opened on first use and kept open; if a send fails, the
+ * connection is replaced and the batch is sent once more. A batch that fails
+ * again is logged and dropped, so confirmations that must not be lost should
+ * go through the repository outbox instead (see {@link ConfirmationOutboxRelay}).
+ * The relay uses {@link #deliverPaymentConfirmations(List)}, which waits for
+ * the batches and throws if a confirmation was dropped, so it never marks a
+ * lost confirmation as sent.
+ * <p>
+ * The queue is bounded; when it is full, callers wait for room. {@link #close()}
+ * sends everything still queued and then closes the connection.
+ */
+public final class BatchingNotificationService implements NotificationService, AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(BatchingNotificationService.class.getName());
+
+    // Room for this many full batches before callers have to wait
+    private static final int QUEUED_BATCHES = 64;
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final MailRelay mailRelay;
+    private final ConfirmationTemplate template;
+    private final long flushWindowNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Pending> queue;
+    private final Thread flusher;
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder failedMessages = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+
+    private volatile boolean running = true;
+    private MailConnection connection;
+
+    /**
+     * Creates the service and starts its flusher thread.
+     *
+     * @param mailRelay    the relay to send through
+     * @param template     the confirmation template
+     * @param flushWindow  how long confirmations are collected before a batch is sent, must be positive
+     * @param maxBatchSize the maximum number of messages per batch, must be positive
+     */
+    public BatchingNotificationService(MailRelay mailRelay, ConfirmationTemplate template,
+                                       Duration flushWindow, int maxBatchSize) {
+        if (mailRelay == null || template == null) {
+            throw new IllegalArgumentException("Mail relay and template cannot be null");
+        }
+        if (flushWindow == null || flushWindow.isNegative() || flushWindow.isZero()) {
+            throw new IllegalArgumentException("Flush window must be positive");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive");
+        }
+        this.mailRelay = mailRelay;
+        this.template = template;
+        this.flushWindowNanos = flushWindow.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new LinkedBlockingQueue<>(maxBatchSize * QUEUED_BATCHES);
+        this.flusher = Thread.ofVirtual().name("payment-confirmation-flusher").start(this::run);
+    }
+
+    @Override
+    public void sendPaymentConfirmation(String email, double amount) {
+        sendPaymentConfirmation(email, Money.of(amount));
+    }
+
+    /**
+     * Queues a confirmation for the next batch.
+     *
+     * @param email  the recipient's email address
+     * @param amount the payment amount to include in the confirmation
+     * @throws IllegalStateException if the service is closed
+     */
+    @Override
+    public void sendPaymentConfirmation(String email, Money amount) {
+        enqueue(new PaymentRequest(amount, email));
+    }
+
+    @Override
+    public void sendPaymentConfirmations(List<PaymentRequest> payments) {
+        for (PaymentRequest payment : payments) {
+            enqueue(payment);
+        }
+    }
+
+    /**
+     * Queues confirmations and waits until their batches have been sent.
+     *
+     * @param payments the successful payments to confirm
+     * @throws IllegalStateException if the service is closed, the calling thread is
+     *                               interrupted, or a confirmation was dropped because
+     *                               its batch failed twice
+     */
+    @Override
+    public void deliverPaymentConfirmations(List<PaymentRequest> payments) {
+        CompletableFuture<?>[] delivered = new CompletableFuture<?>[payments.size()];
+        for (int i = 0; i < delivered.length; i++) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            enqueue(new Pending(payments.get(i), future));
+            delivered[i] = future;
+        }
+        try {
+            CompletableFuture.allOf(delivered).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while delivering payment confirmations", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to deliver payment confirmations", e.getCause());
+        }
+    }
+
+    public long getSentMessageCount() {
+        return sentMessages.sum();
+    }
+
+    /**
+     * Returns the number of messages dropped, because their batch failed twice
+     * or because the service was interrupted while sending them.
+     *
+     * @return the failed message count
+     */
+    public long getFailedMessageCount() {
+        return failedMessages.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Returns the number of connections opened to the relay so far.
+     *
+     * @return the connection count
+     */
+    public long getConnectionCount() {
+        return connections.sum();
+    }
+
+    /**
+     * Stops accepting confirmations, sends the queued ones and closes the connection.
+     * <p>
+     * If the calling thread is interrupted while waiting, the flusher is
+     * interrupted too: the confirmations still queued are dropped, the
+     * connection is closed all the same, and the interrupt status is restored.
+     */
+    @Override
+    public void close() {
+        running = false;
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                flusher.interrupt();
+            }
+        }
+        // Confirmations queued by callers that raced with close
+        List<Pending> late = new ArrayList<>();
+        queue.drainTo(late);
+        if (interrupted) {
+            drop(late, new InterruptedException("Notification service closed while interrupted"));
+        } else {
+            for (int from = 0; from < late.size(); from += maxBatchSize) {
+                deliver(late.subList(from, Math.min(from + maxBatchSize, late.size())));
+            }
+        }
+        closeConnection();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(PaymentRequest payment) {
+        enqueue(new Pending(payment, null));
+    }
+
+    private void enqueue(Pending pending) {
+        if (!running) {
+            throw new IllegalStateException("Notification service is closed");
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a payment confirmation", e);
+        }
+        // close() may have drained the queue for the last time between the check and the put;
+        // if the confirmation is still queued then, nobody will send it
+        if (!running && queue.remove(pending)) {
+            throw new IllegalStateException("Notification service is closed");
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending first = queue.poll(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushWindowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = running ? deadline - System.nanoTime() : 0;
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                deliver(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            queue.drainTo(batch);
+            LOGGER.log(System.Logger.Level.WARNING,
+                    "Confirmation flusher interrupted, {0} queued confirmations dropped", batch.size());
+            drop(batch, e);
+        } finally {
+            closeConnection();
+        }
+    }
+
+    private void deliver(List<Pending> batch) {
+        List<MailMessage> messages = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            messages.add(template.render(pending.payment.email(), pending.payment.amount()));
+        }
+        try {
+            send(messages);
+        } catch (RuntimeException first) {
+            // The connection may have gone stale; retry once on a fresh one
+            closeConnection();
+            try {
+                send(messages);
+            } catch (RuntimeException e) {
+                closeConnection();
+                LOGGER.log(System.Logger.Level.WARNING, "Failed to send " + messages.size()
+                        + " payment confirmations", e);
+                drop(batch, e);
+                return;
+            }
+        }
+        batches.increment();
+        sentMessages.add(messages.size());
+        for (Pending pending : batch) {
+            if (pending.delivered != null) {
+                pending.delivered.complete(null);
+            }
+        }
+    }
+
+    private void drop(List<Pending> dropped, Throwable cause) {
+        failedMessages.add(dropped.size());
+        for (Pending pending : dropped) {
+            if (pending.delivered != null) {
+                pending.delivered.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private void send(List<MailMessage> messages) {
+        if (connection == null) {
+            connection = mailRelay.connect();
+            connections.increment();
+        }
+        connection.send(messages);
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    // A queued confirmation; a class rather than a record so that queue.remove() matches by identity
+    private static final class Pending {
+
+        final PaymentRequest payment;
+        final CompletableFuture<Void> delivered;
+
+        Pending(PaymentRequest payment, CompletableFuture<Void> delivered) {
+            this.payment = payment;
+            this.delivered = delivered;
+        }
+    }
+}
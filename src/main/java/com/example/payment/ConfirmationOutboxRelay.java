@@ -0,0 +1,209 @@
+package com.example.payment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background relay that delivers the pending payment confirmations of a
+ * {@link OutboxPaymentRepository} through a {@link NotificationService}.
+ * <p>
+ * Each round fetches up to {@code batchSize} pending confirmations, sends them
+ * with one {@link NotificationService#deliverPaymentConfirmations(List)} call,
+ * which returns only once they were sent, and marks them as sent. If the bulk
+ * send fails, the batch is retried one confirmation at a time so that a single
+ * bad address does not hold back the others. Confirmations that still fail are
+ * retried in later rounds, with an exponentially growing pause between rounds,
+ * and are marked as failed after {@code maxAttempts} attempts.
+ * <p>
+ * Delivery is at least once: a confirmation may be sent again if marking it
+ * as sent fails, or if a failed bulk send had already delivered part of the batch.
+ * <p>
+ * The relay runs on a virtual thread between {@link #start()} and {@link #close()};
+ * {@link #drainOnce()} runs a single round on the calling thread.
+ */
+public final class ConfirmationOutboxRelay implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(ConfirmationOutboxRelay.class.getName());
+    private static final int MAX_BACKOFF_FACTOR = 64;
+
+    private final OutboxPaymentRepository paymentRepository;
+    private final NotificationService notificationService;
+    private final int batchSize;
+    private final long pollIntervalNanos;
+    private final int maxAttempts;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Map<Long, Integer> failedAttempts = new HashMap<>();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * Creates a relay.
+     *
+     * @param paymentRepository   the repository holding the outbox
+     * @param notificationService the service used to send confirmations
+     * @param batchSize           the maximum number of confirmations per round (must be > 0)
+     * @param pollInterval        the pause between rounds when the outbox is drained
+     * @param maxAttempts         the number of attempts before a confirmation is given up (must be > 0)
+     * @throws IllegalArgumentException if an argument is invalid
+     */
+    public ConfirmationOutboxRelay(OutboxPaymentRepository paymentRepository, NotificationService notificationService,
+                                   int batchSize, Duration pollInterval, int maxAttempts) {
+        if (paymentRepository == null || notificationService == null) {
+            throw new IllegalArgumentException("Repository and notification service cannot be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (pollInterval == null || pollInterval.isNegative() || pollInterval.isZero()) {
+            throw new IllegalArgumentException("Poll interval must be positive");
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive");
+        }
+        this.paymentRepository = paymentRepository;
+        this.notificationService = notificationService;
+        this.batchSize = batchSize;
+        this.pollIntervalNanos = pollInterval.toNanos();
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Starts draining the outbox on a virtual thread.
+     *
+     * @throws IllegalStateException if the relay is already running
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Relay is already running");
+        }
+        running = true;
+        worker = Thread.ofVirtual().name("confirmation-outbox-relay").start(this::run);
+    }
+
+    /**
+     * Wakes the relay up so that it drains the outbox without waiting for the poll interval.
+     */
+    public void wakeUp() {
+        Thread current = worker;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    /**
+     * Runs one round: fetches, sends and marks one batch of pending confirmations.
+     *
+     * @return the number of confirmations sent
+     */
+    public int drainOnce() {
+        return drainBatch().sent();
+    }
+
+    /**
+     * Stops the relay and waits for the current round to finish.
+     */
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = worker;
+            worker = null;
+        }
+        if (current == null) {
+            return;
+        }
+        LockSupport.unpark(current);
+        try {
+            current.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long backoffNanos = pollIntervalNanos;
+        while (running) {
+            Round round;
+            try {
+                round = drainBatch();
+            } catch (RuntimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Failed to drain confirmation outbox", e);
+                round = new Round(0, 0, 1);
+            }
+            if (round.failed() > 0) {
+                LockSupport.parkNanos(backoffNanos);
+                backoffNanos = Math.min(backoffNanos * 2, pollIntervalNanos * MAX_BACKOFF_FACTOR);
+            } else {
+                backoffNanos = pollIntervalNanos;
+                if (round.fetched() < batchSize) {
+                    LockSupport.parkNanos(pollIntervalNanos);
+                }
+            }
+        }
+    }
+
+    private Round drainBatch() {
+        drainLock.lock();
+        try {
+            return drainBatchLocked();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private Round drainBatchLocked() {
+        List<PaymentConfirmation> pending = paymentRepository.findPendingConfirmations(batchSize);
+        if (pending.isEmpty()) {
+            return new Round(0, 0, 0);
+        }
+        List<PaymentConfirmation> sent = new ArrayList<>(pending.size());
+        List<PaymentConfirmation> failed = new ArrayList<>();
+        try {
+            notificationService.deliverPaymentConfirmations(
+                    pending.stream().map(PaymentConfirmation::payment).toList());
+            sent.addAll(pending);
+        } catch (RuntimeException batchFailure) {
+            for (PaymentConfirmation confirmation : pending) {
+                try {
+                    notificationService.deliverPaymentConfirmations(List.of(confirmation.payment()));
+                    sent.add(confirmation);
+                } catch (RuntimeException e) {
+                    failed.add(confirmation);
+                }
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            paymentRepository.markConfirmationsSent(sent);
+            for (PaymentConfirmation confirmation : sent) {
+                failedAttempts.remove(confirmation.id());
+            }
+        }
+        List<PaymentConfirmation> givenUp = new ArrayList<>();
+        for (PaymentConfirmation confirmation : failed) {
+            int attempts = failedAttempts.merge(confirmation.id(), 1, Integer::sum);
+            if (attempts >= maxAttempts) {
+                givenUp.add(confirmation);
+            }
+        }
+        if (!givenUp.isEmpty()) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                    "Giving up on {0} payment confirmations after {1} attempts", givenUp.size(), maxAttempts);
+            paymentRepository.markConfirmationsFailed(givenUp);
+            for (PaymentConfirmation confirmation : givenUp) {
+                failedAttempts.remove(confirmation.id());
+            }
+        }
+        return new Round(pending.size(), sent.size(), failed.size());
+    }
+
+    private record Round(int fetched, int sent, int failed) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pre-compiled subject and body templates for payment confirmations.
+ * <p>
+ * Templates may contain the placeholders {@code {email}} and {@code {amount}};
+ * the amount is rendered as {@link Money#toString()}, e.g. {@code 100.00 SEK}.
+ * Patterns are parsed once by {@link #compile(String, String)}, so rendering
+ * only appends the literal parts and values to a presized builder.
+ * Instances are immutable and thread-safe.
+ */
+public final class ConfirmationTemplate {
+
+    private enum Placeholder { EMAIL, AMOUNT }
+
+    private final Object[] subjectParts;
+    private final Object[] bodyParts;
+    private final int subjectLength;
+    private final int bodyLength;
+
+    private ConfirmationTemplate(Object[] subjectParts, Object[] bodyParts) {
+        this.subjectParts = subjectParts;
+        this.bodyParts = bodyParts;
+        this.subjectLength = literalLength(subjectParts);
+        this.bodyLength = literalLength(bodyParts);
+    }
+
+    /**
+     * Compiles subject and body patterns.
+     *
+     * @param subject the subject pattern
+     * @param body    the body pattern
+     * @return the compiled template
+     * @throws IllegalArgumentException if a pattern is null or has an unknown or unclosed placeholder
+     */
+    public static ConfirmationTemplate compile(String subject, String body) {
+        return new ConfirmationTemplate(parse(subject), parse(body));
+    }
+
+    /**
+     * Renders the confirmation for one payment.
+     *
+     * @param email  the recipient's email address
+     * @param amount the payment amount
+     * @return the rendered message
+     */
+    public MailMessage render(String email, Money amount) {
+        String formattedAmount = amount.toString();
+        return new MailMessage(email,
+                render(subjectParts, subjectLength, email, formattedAmount),
+                render(bodyParts, bodyLength, email, formattedAmount));
+    }
+
+    private static String render(Object[] parts, int literalLength, String email, String amount) {
+        StringBuilder text = new StringBuilder(literalLength + email.length() + amount.length());
+        for (Object part : parts) {
+            if (part == Placeholder.EMAIL) {
+                text.append(email);
+            } else if (part == Placeholder.AMOUNT) {
+                text.append(amount);
+            } else {
+                text.append((String) part);
+            }
+        }
+        return text.toString();
+    }
+
+    private static Object[] parse(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Template pattern cannot be null");
+        }
+        List<Object> parts = new ArrayList<>();
+        int literalStart = 0;
+        int open = pattern.indexOf('{');
+        while (open >= 0) {
+            int close = pattern.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in template: " + pattern);
+            }
+            Placeholder placeholder = switch (pattern.substring(open + 1, close)) {
+                case "email" -> Placeholder.EMAIL;
+                case "amount" -> Placeholder.AMOUNT;
+                default -> throw new IllegalArgumentException(
+                        "Unknown placeholder: " + pattern.substring(open, close + 1));
+            };
+            if (open > literalStart) {
+                parts.add(pattern.substring(literalStart, open));
+            }
+            parts.add(placeholder);
+            literalStart = close + 1;
+            open = pattern.indexOf('{', literalStart);
+        }
+        if (literalStart < pattern.length()) {
+            parts.add(pattern.substring(literalStart));
+        }
+        return parts.toArray();
+    }
+
+    private static int literalLength(Object[] parts) {
+        int length = 0;
+        for (Object part : parts) {
+            if (part instanceof String literal) {
+                length += literal.length();
+            }
+        }
+        return length;
+    }
+}
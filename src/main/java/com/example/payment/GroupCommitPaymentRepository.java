@@ -0,0 +1,301 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link PaymentRepository} decorator that merges concurrent single-payment
+ * writes into one {@link PaymentRepository#savePayments(List, String)} call.
+ * <p>
+ * The first caller to find no open batch becomes its leader. It keeps the
+ * batch open for at most the commit window, or until the batch is full, and
+ * then writes it; the other callers add their payment to the open batch and
+ * wait. Batches are written one at a time, so while one batch is being
+ * written the next one keeps collecting payments. This trades at most one
+ * commit window of extra latency for one commit per batch instead of one
+ * per payment.
+ * <p>
+ * Every {@code savePayment} call returns only after its payment has been
+ * written. If writing a batch fails, every caller of that batch gets the
+ * exception, even though payments of other statuses in the same batch may
+ * have been written. {@code double} amounts are converted with
+ * {@link Money#of(double)}. All other operations are passed straight through.
+ * <p>
+ * For an {@link OutboxPaymentRepository}, use {@link Outbox}: it also merges
+ * {@code savePaymentWithConfirmation} calls, which a processor in outbox mode
+ * makes instead of {@code savePayment}, into
+ * {@link OutboxPaymentRepository#savePaymentsWithConfirmations(List, String)} calls.
+ */
+public sealed class GroupCommitPaymentRepository implements PaymentRepository
+        permits GroupCommitPaymentRepository.Outbox {
+
+    private final PaymentRepository delegate;
+    private final long commitWindowNanos;
+    private final int maxBatchSize;
+    private final ReentrantLock batchLock = new ReentrantLock();
+    private final Condition batchFull = batchLock.newCondition();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder payments = new LongAdder();
+
+    private Batch openBatch;
+
+    /**
+     * Creates a group-commit decorator.
+     *
+     * @param delegate     the repository to write batches to
+     * @param commitWindow how long a batch stays open for more payments, must be positive
+     * @param maxBatchSize the number of payments after which a batch is written at once, must be positive
+     */
+    public GroupCommitPaymentRepository(PaymentRepository delegate, Duration commitWindow, int maxBatchSize) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Repository cannot be null");
+        }
+        if (commitWindow == null || commitWindow.isNegative() || commitWindow.isZero()) {
+            throw new IllegalArgumentException("Commit window must be positive");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive");
+        }
+        this.delegate = delegate;
+        this.commitWindowNanos = commitWindow.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void savePayment(double amount, String status) {
+        savePayment(Money.of(amount), status);
+    }
+
+    /**
+     * Adds the payment to the open batch and waits until the batch has been written.
+     *
+     * @param amount the payment amount to save
+     * @param status the status of the payment (e.g., "SUCCESS", "FAILURE")
+     * @throws RuntimeException the exception thrown while writing the batch
+     */
+    @Override
+    public void savePayment(Money amount, String status) {
+        commit(amount, status, null);
+    }
+
+    // Adds the payment to the open batch, with a confirmation unless the email is null,
+    // and waits until the batch has been written
+    void commit(Money amount, String status, String email) {
+        Batch batch;
+        boolean leader = false;
+        batchLock.lock();
+        try {
+            if (openBatch == null) {
+                openBatch = new Batch();
+                leader = true;
+            }
+            batch = openBatch;
+            batch.add(amount, status, email);
+            if (batch.size == maxBatchSize) {
+                openBatch = null;
+                batchFull.signalAll();
+            }
+        } finally {
+            batchLock.unlock();
+        }
+
+        if (leader) {
+            awaitWindow(batch);
+            write(batch);
+        }
+        await(batch.written);
+    }
+
+    /**
+     * Returns the number of batches written so far.
+     *
+     * @return the batch count
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Returns the number of payments written through batches so far.
+     *
+     * @return the payment count
+     */
+    public long getPaymentCount() {
+        return payments.sum();
+    }
+
+    @Override
+    public void savePayments(List<Money> amounts, String status) {
+        delegate.savePayments(amounts, status);
+    }
+
+    @Override
+    public Optional<PaymentApiResponse> findResponseByIdempotencyKey(String idempotencyKey) {
+        return delegate.findResponseByIdempotencyKey(idempotencyKey);
+    }
+
+    @Override
+    public void saveResponseForIdempotencyKey(String idempotencyKey, PaymentApiResponse response) {
+        delegate.saveResponseForIdempotencyKey(idempotencyKey, response);
+    }
+
+    // Waits until the batch is full or the window has passed; the other
+    // callers depend on the leader, so an interrupt only ends the wait early
+    private void awaitWindow(Batch batch) {
+        boolean interrupted = false;
+        batchLock.lock();
+        try {
+            long remaining = commitWindowNanos;
+            while (openBatch == batch && remaining > 0) {
+                try {
+                    remaining = batchFull.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    break;
+                }
+            }
+        } finally {
+            batchLock.unlock();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Batch batch) {
+        writeLock.lock();
+        try {
+            // Sealed only now, so the batch keeps growing while the previous one is written
+            batchLock.lock();
+            try {
+                if (openBatch == batch) {
+                    openBatch = null;
+                }
+            } finally {
+                batchLock.unlock();
+            }
+            for (Map.Entry<String, List<Money>> group : batch.amountsByStatus.entrySet()) {
+                delegate.savePayments(group.getValue(), group.getKey());
+            }
+            for (Map.Entry<String, List<PaymentRequest>> group : batch.confirmationsByStatus.entrySet()) {
+                // Only Outbox adds confirmations, and its delegate is an outbox repository
+                ((OutboxPaymentRepository) delegate).savePaymentsWithConfirmations(group.getValue(), group.getKey());
+            }
+            batches.increment();
+            payments.add(batch.size);
+            batch.written.complete(null);
+        } catch (RuntimeException | Error e) {
+            batch.written.completeExceptionally(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void await(CompletableFuture<Void> written) {
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // Guarded by batchLock until sealed, then only read by the leader
+    private static final class Batch {
+
+        private final Map<String, List<Money>> amountsByStatus = new LinkedHashMap<>();
+        private final Map<String, List<PaymentRequest>> confirmationsByStatus = new LinkedHashMap<>();
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+        private int size;
+
+        void add(Money amount, String status, String email) {
+            if (email == null) {
+                amountsByStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(amount);
+            } else {
+                confirmationsByStatus.computeIfAbsent(status, s -> new ArrayList<>())
+                        .add(new PaymentRequest(amount, email));
+            }
+            size++;
+        }
+    }
+
+    /**
+     * Group-commit decorator for an {@link OutboxPaymentRepository}.
+     * <p>
+     * Besides single payments, it merges concurrent
+     * {@link #savePaymentWithConfirmation(Money, String, String)} calls into one
+     * {@link OutboxPaymentRepository#savePaymentsWithConfirmations(List, String)}
+     * call per status and batch, with the same commit window and batch size.
+     * The other outbox operations are passed straight through.
+     */
+    public static final class Outbox extends GroupCommitPaymentRepository implements OutboxPaymentRepository {
+
+        private final OutboxPaymentRepository delegate;
+
+        /**
+         * Creates a group-commit decorator for an outbox repository.
+         *
+         * @param delegate     the repository to write batches to
+         * @param commitWindow how long a batch stays open for more payments, must be positive
+         * @param maxBatchSize the number of payments after which a batch is written at once, must be positive
+         */
+        public Outbox(OutboxPaymentRepository delegate, Duration commitWindow, int maxBatchSize) {
+            super(delegate, commitWindow, maxBatchSize);
+            this.delegate = delegate;
+        }
+
+        /**
+         * Adds the payment and its confirmation to the open batch and waits until
+         * the batch has been written.
+         *
+         * @param amount the payment amount to save
+         * @param status the status of the payment (e.g., "SUCCESS", "FAILURE")
+         * @param email  the customer's email address for the confirmation
+         * @throws RuntimeException the exception thrown while writing the batch
+         */
+        @Override
+        public void savePaymentWithConfirmation(Money amount, String status, String email) {
+            if (email == null || email.isBlank()) {
+                throw new IllegalArgumentException("Email cannot be null or blank");
+            }
+            commit(amount, status, email);
+        }
+
+        @Override
+        public void savePaymentsWithConfirmations(List<PaymentRequest> payments, String status) {
+            delegate.savePaymentsWithConfirmations(payments, status);
+        }
+
+        @Override
+        public List<PaymentConfirmation> findPendingConfirmations(int limit) {
+            return delegate.findPendingConfirmations(limit);
+        }
+
+        @Override
+        public void markConfirmationsSent(List<PaymentConfirmation> confirmations) {
+            delegate.markConfirmationsSent(confirmations);
+        }
+
+        @Override
+        public void markConfirmationsFailed(List<PaymentConfirmation> confirmations) {
+            delegate.markConfirmationsFailed(confirmations);
+        }
+    }
+}
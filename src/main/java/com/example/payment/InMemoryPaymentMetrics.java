@@ -0,0 +1,116 @@
+package com.example.payment;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link PaymentMetrics} kept in memory: a latency histogram and error count
+ * per stage, payment outcome counters, and in-flight gauges for payments and
+ * for each stage.
+ * <p>
+ * Updates go to striped {@link LongAdder}s and lock-free histograms, so many
+ * processing threads can share one instance without contending.
+ */
+public final class InMemoryPaymentMetrics implements PaymentMetrics {
+
+    private final LatencyHistogram[] stageLatencies = new LatencyHistogram[PaymentStage.values().length];
+    private final LongAdder[] stageErrors = newAdders(PaymentStage.values().length);
+    private final LongAdder[] stagesInFlight = newAdders(PaymentStage.values().length);
+    private final LongAdder paymentsInFlight = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public InMemoryPaymentMetrics() {
+        for (int i = 0; i < stageLatencies.length; i++) {
+            stageLatencies[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void paymentStarted() {
+        paymentsInFlight.increment();
+    }
+
+    @Override
+    public void paymentCompleted(boolean success) {
+        paymentsInFlight.decrement();
+        (success ? successes : failures).increment();
+    }
+
+    @Override
+    public void paymentFailed(RuntimeException exception) {
+        paymentsInFlight.decrement();
+        errors.increment();
+    }
+
+    @Override
+    public void stageStarted(PaymentStage stage) {
+        stagesInFlight[stage.ordinal()].increment();
+    }
+
+    @Override
+    public void stageCompleted(PaymentStage stage, long elapsedNanos, boolean failed) {
+        stagesInFlight[stage.ordinal()].decrement();
+        stageLatencies[stage.ordinal()].record(elapsedNanos);
+        if (failed) {
+            stageErrors[stage.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Returns the latencies of a stage's calls, including failed ones.
+     *
+     * @param stage the stage
+     * @return the live latency histogram
+     */
+    public LatencyHistogram getLatency(PaymentStage stage) {
+        return stageLatencies[stage.ordinal()];
+    }
+
+    public long getStageErrorCount(PaymentStage stage) {
+        return stageErrors[stage.ordinal()].sum();
+    }
+
+    public long getStagesInFlight(PaymentStage stage) {
+        return stagesInFlight[stage.ordinal()].sum();
+    }
+
+    public long getPaymentsInFlight() {
+        return paymentsInFlight.sum();
+    }
+
+    /**
+     * Returns the number of payments the gateway approved.
+     *
+     * @return the success count
+     */
+    public long getSuccessCount() {
+        return successes.sum();
+    }
+
+    /**
+     * Returns the number of payments the gateway declined.
+     *
+     * @return the failure count
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the number of payments whose charge threw.
+     *
+     * @return the error count
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,468 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link PaymentRepository} that appends payments to a local binary ledger file.
+ * <p>
+ * The file starts with a 16-byte header followed by fixed-width 24-byte records:
+ * <pre>
+ *  0  long  write time, epoch milliseconds
+ *  8  long  amount in minor units
+ * 16  3 × byte  ISO 4217 currency code
+ * 19  byte  {@link PaymentStatus#code()}
+ * 20  int   CRC32C of bytes 0-19
+ * </pre>
+ * All values are little-endian. Records are only ever appended, so the
+ * position of a record is its sequence number. Each write call appends all
+ * its records with one positional write and is then synced according to the
+ * {@link SyncPolicy}; wrapping the ledger in a {@link GroupCommitPaymentRepository}
+ * therefore syncs once per batch instead of once per payment. On opening, a
+ * torn or partially written tail left by a crash is cut off.
+ * <p>
+ * Scans and aggregates map the written part of the file into memory and read
+ * the records in place, so they neither load the ledger onto the heap nor
+ * block writers. Every record's checksum is verified as it is read; a scan
+ * that reaches a corrupt record fails with an {@link IllegalStateException}
+ * naming its sequence number rather than returning incomplete totals.
+ * Writes are serialized. Outbox and idempotency operations are not supported.
+ */
+public final class LedgerPaymentRepository implements PaymentRepository, AutoCloseable {
+
+    /**
+     * When written records are forced to the storage device.
+     */
+    public enum SyncPolicy {
+        /** Force data and file metadata after every write call. */
+        DATA_AND_METADATA,
+        /** Force data after every write call; the file length may still lag behind after a crash. */
+        DATA,
+        /** Leave syncing to the operating system, except on {@link #sync()} and {@link #close()}. */
+        NONE
+    }
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 24;
+
+    private static final long MAGIC = 0x3147_4445_4C59_4150L; // "PAYLEDG1" read little-endian
+    private static final int VERSION = 1;
+
+    private static final int TIMESTAMP = 0;
+    private static final int AMOUNT = 8;
+    private static final int CURRENCY = 16;
+    private static final int STATUS = 19;
+    private static final int CHECKSUM = 20;
+
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Scans checksum records through byte buffer views of this many bytes, below the 2 GiB buffer limit
+    private static final long SCAN_WINDOW_SIZE = (long) RECORD_SIZE << 20;
+
+    private final FileChannel channel;
+    private final SyncPolicy syncPolicy;
+    private final Clock clock;
+    private final CRC32C checksum = new CRC32C();
+
+    // Written under the monitor; read without it by scans, which only need a committed prefix
+    private volatile long recordCount;
+    private boolean closed;
+
+    /**
+     * Opens or creates a ledger file.
+     *
+     * @param file       the ledger file
+     * @param syncPolicy when written records are forced to the storage device
+     * @throws IllegalArgumentException if the file is not a payment ledger
+     * @throws UncheckedIOException     if the file cannot be opened
+     */
+    public LedgerPaymentRepository(Path file, SyncPolicy syncPolicy) {
+        this(file, syncPolicy, Clock.systemUTC());
+    }
+
+    LedgerPaymentRepository(Path file, SyncPolicy syncPolicy, Clock clock) {
+        if (file == null || syncPolicy == null) {
+            throw new IllegalArgumentException("File and sync policy cannot be null");
+        }
+        this.syncPolicy = syncPolicy;
+        this.clock = clock;
+        try {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open payment ledger " + file, e);
+        }
+        try {
+            this.recordCount = openLedger();
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException("Cannot read payment ledger " + file, e);
+        } catch (RuntimeException e) {
+            closeQuietly();
+            throw e;
+        }
+    }
+
+    @Override
+    public void savePayment(double amount, String status) {
+        savePayment(Money.of(amount), status);
+    }
+
+    @Override
+    public void savePayment(Money amount, String status) {
+        savePayments(List.of(amount), PaymentStatus.fromName(status));
+    }
+
+    @Override
+    public void savePayments(List<Money> amounts, String status) {
+        savePayments(amounts, PaymentStatus.fromName(status));
+    }
+
+    /**
+     * Appends payments with one write and syncs them according to the sync policy.
+     *
+     * @param amounts the payment amounts
+     * @param status  the status of the payments
+     * @throws IllegalStateException if the ledger is closed
+     * @throws UncheckedIOException  if the write or sync fails; the records are then not part of the ledger
+     */
+    public synchronized void savePayments(List<Money> amounts, PaymentStatus status) {
+        if (amounts == null || status == null) {
+            throw new IllegalArgumentException("Amounts and status cannot be null");
+        }
+        ensureOpen();
+        if (amounts.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(amounts.size() * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long now = clock.millis();
+        for (Money amount : amounts) {
+            encode(buffer, now, amount, status);
+        }
+        buffer.flip();
+
+        long position = HEADER_SIZE + recordCount * RECORD_SIZE;
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            sync(syncPolicy);
+        } catch (IOException e) {
+            // Cut off whatever part was written, so a reopened ledger does not see it either
+            try {
+                channel.truncate(position);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("Cannot append to payment ledger", e);
+        }
+        recordCount += amounts.size();
+    }
+
+    /**
+     * Forces all written records to the storage device, regardless of the sync policy.
+     */
+    public synchronized void sync() {
+        ensureOpen();
+        try {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync payment ledger", e);
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Calls the action for every record from the given sequence number on, in order.
+     * Records appended during the scan are not included.
+     *
+     * @param fromSequence the first sequence number to read, e.g. the count seen by the previous reconciliation
+     * @param action       receives each record
+     * @throws IllegalStateException if a record is corrupt; the records before it have been passed to the action
+     */
+    public void forEachRecord(long fromSequence, Consumer<? super PaymentLedgerRecord> action) {
+        if (fromSequence < 0) {
+            throw new IllegalArgumentException("Sequence cannot be negative");
+        }
+        scan(fromSequence, (records, sequence, offset) -> action.accept(new PaymentLedgerRecord(
+                sequence,
+                Instant.ofEpochMilli(records.get(LONG, offset + TIMESTAMP)),
+                Money.ofMinor(records.get(LONG, offset + AMOUNT), currencyAt(records, offset)),
+                PaymentStatus.fromCode(records.get(ValueLayout.JAVA_BYTE, offset + STATUS)))));
+    }
+
+    /**
+     * Sums the payments in one currency per status.
+     *
+     * @param currency the currency to sum; payments in other currencies are skipped
+     * @return totals for every status that has payments in the currency
+     * @throws IllegalStateException if a record is corrupt
+     */
+    public Map<PaymentStatus, LedgerTotals> totalsByStatus(Currency currency) {
+        byte[] code = currencyCode(currency);
+        long[] counts = new long[PaymentStatus.values().length];
+        long[] sums = new long[counts.length];
+        scan(0, (records, sequence, offset) -> {
+            if (hasCurrency(records, offset, code)) {
+                int status = PaymentStatus.fromCode(records.get(ValueLayout.JAVA_BYTE, offset + STATUS)).ordinal();
+                counts[status]++;
+                sums[status] = Math.addExact(sums[status], records.get(LONG, offset + AMOUNT));
+            }
+        });
+
+        Map<PaymentStatus, LedgerTotals> totals = new EnumMap<>(PaymentStatus.class);
+        for (PaymentStatus status : PaymentStatus.values()) {
+            if (counts[status.ordinal()] > 0) {
+                totals.put(status, new LedgerTotals(counts[status.ordinal()],
+                        Money.ofMinor(sums[status.ordinal()], currency)));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Sums the payments with one status and currency per calendar day.
+     *
+     * @param status   the status to sum
+     * @param currency the currency to sum
+     * @param zone     the time zone that defines the days
+     * @return totals per day, in date order, for days that have matching payments
+     * @throws IllegalStateException if a record is corrupt
+     */
+    public SortedMap<LocalDate, LedgerTotals> dailyTotals(PaymentStatus status, Currency currency, ZoneId zone) {
+        if (status == null || zone == null) {
+            throw new IllegalArgumentException("Status and zone cannot be null");
+        }
+        byte[] code = currencyCode(currency);
+        byte statusCode = status.code();
+        SortedMap<LocalDate, long[]> countsAndSums = new TreeMap<>();
+        DayCursor day = new DayCursor(zone);
+        scan(0, (records, sequence, offset) -> {
+            if (records.get(ValueLayout.JAVA_BYTE, offset + STATUS) == statusCode
+                    && hasCurrency(records, offset, code)) {
+                long[] countAndSum = countsAndSums.computeIfAbsent(
+                        day.dateOf(records.get(LONG, offset + TIMESTAMP)), d -> new long[2]);
+                countAndSum[0]++;
+                countAndSum[1] = Math.addExact(countAndSum[1], records.get(LONG, offset + AMOUNT));
+            }
+        });
+
+        SortedMap<LocalDate, LedgerTotals> totals = new TreeMap<>();
+        countsAndSums.forEach((date, countAndSum) ->
+                totals.put(date, new LedgerTotals(countAndSum[0], Money.ofMinor(countAndSum[1], currency))));
+        return totals;
+    }
+
+    /**
+     * Syncs and closes the ledger file.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (channel) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close payment ledger", e);
+        }
+    }
+
+    private long openLedger() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            return 0;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (!readFully(header, 0) || header.flip().getLong() != MAGIC) {
+            throw new IllegalArgumentException("Not a payment ledger file");
+        }
+        if (header.getInt() != VERSION || header.getInt() != RECORD_SIZE) {
+            throw new IllegalArgumentException("Unsupported payment ledger version");
+        }
+
+        long count = (size - HEADER_SIZE) / RECORD_SIZE;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (count > 0 && !isIntact(record, HEADER_SIZE + (count - 1) * RECORD_SIZE)) {
+            count--;
+        }
+        long validSize = HEADER_SIZE + count * RECORD_SIZE;
+        if (validSize < size) {
+            channel.truncate(validSize);
+            channel.force(true);
+        }
+        return count;
+    }
+
+    private boolean isIntact(ByteBuffer record, long position) throws IOException {
+        record.clear();
+        if (!readFully(record, position)) {
+            return false;
+        }
+        checksum.reset();
+        checksum.update(record.array(), 0, CHECKSUM);
+        return record.getInt(CHECKSUM) == (int) checksum.getValue();
+    }
+
+    // Returns false if the file ends before the buffer is full
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void encode(ByteBuffer buffer, long timestamp, Money amount, PaymentStatus status) {
+        int start = buffer.position();
+        buffer.putLong(timestamp)
+                .putLong(amount.minorUnits())
+                .put(currencyCode(amount.currency()))
+                .put(status.code());
+        checksum.reset();
+        checksum.update(buffer.array(), start, CHECKSUM);
+        buffer.putInt((int) checksum.getValue());
+    }
+
+    private void scan(long fromSequence, RecordVisitor visitor) {
+        long count = recordCount;
+        if (fromSequence >= count) {
+            return;
+        }
+        ensureOpen();
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment records = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + fromSequence * RECORD_SIZE, (count - fromSequence) * RECORD_SIZE, arena);
+            CRC32C recordChecksum = new CRC32C();
+            ByteBuffer window = null;
+            long windowStart = 0;
+            long offset = 0;
+            for (long sequence = fromSequence; sequence < count; sequence++, offset += RECORD_SIZE) {
+                if (window == null || offset - windowStart >= window.capacity()) {
+                    windowStart = offset;
+                    window = records.asSlice(offset, Math.min(SCAN_WINDOW_SIZE, records.byteSize() - offset))
+                            .asByteBuffer();
+                }
+                int position = (int) (offset - windowStart);
+                window.limit(position + CHECKSUM).position(position);
+                recordChecksum.reset();
+                recordChecksum.update(window);
+                if ((int) recordChecksum.getValue() != records.get(INT, offset + CHECKSUM)) {
+                    throw new IllegalStateException("Payment ledger record " + sequence + " is corrupt");
+                }
+                visitor.visit(records, sequence, offset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map payment ledger", e);
+        }
+    }
+
+    private void sync(SyncPolicy policy) throws IOException {
+        switch (policy) {
+            case DATA_AND_METADATA -> channel.force(true);
+            case DATA -> channel.force(false);
+            case NONE -> {
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Payment ledger is closed");
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // the original failure is more useful to the caller
+        }
+    }
+
+    private static byte[] currencyCode(Currency currency) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency cannot be null");
+        }
+        return currency.getCurrencyCode().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static boolean hasCurrency(MemorySegment records, long offset, byte[] code) {
+        return records.get(ValueLayout.JAVA_BYTE, offset + CURRENCY) == code[0]
+                && records.get(ValueLayout.JAVA_BYTE, offset + CURRENCY + 1) == code[1]
+                && records.get(ValueLayout.JAVA_BYTE, offset + CURRENCY + 2) == code[2];
+    }
+
+    private static Currency currencyAt(MemorySegment records, long offset) {
+        byte[] code = new byte[3];
+        MemorySegment.copy(records, ValueLayout.JAVA_BYTE, offset + CURRENCY, code, 0, code.length);
+        return Currency.getInstance(new String(code, StandardCharsets.US_ASCII));
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(MemorySegment records, long sequence, long offset);
+    }
+
+    /**
+     * Maps timestamps to dates, recomputing the day boundaries only when a
+     * timestamp falls outside the current day. Records are appended in time
+     * order, so this is rare.
+     */
+    private static final class DayCursor {
+
+        private final ZoneId zone;
+        private LocalDate date;
+        private long dayStart = Long.MAX_VALUE;
+        private long dayEnd = Long.MIN_VALUE;
+
+        DayCursor(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        LocalDate dateOf(long epochMillis) {
+            if (epochMillis < dayStart || epochMillis >= dayEnd) {
+                date = LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+                dayStart = date.atStartOfDay(zone).toInstant().toEpochMilli();
+                dayEnd = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            }
+            return date;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+/**
+ * Number and sum of the payments in one group of a ledger aggregate.
+ *
+ * @param count the number of payments
+ * @param total the sum of their amounts
+ */
+public record LedgerTotals(long count, Money total) {
+}
@@ -0,0 +1,24 @@
+package com.example.payment;
+
+import java.util.List;
+
+/**
+ * An open connection to a mail relay. Connections are expensive to open and
+ * are meant to be reused for many messages; they are not thread-safe.
+ */
+public interface MailConnection extends AutoCloseable {
+
+    /**
+     * Sends messages over this connection, e.g. pipelined in one SMTP session.
+     *
+     * @param messages the messages to send
+     * @throws RuntimeException if the relay rejects the messages or the connection breaks
+     */
+    void send(List<MailMessage> messages);
+
+    /**
+     * Closes the connection. Must not throw.
+     */
+    @Override
+    void close();
+}
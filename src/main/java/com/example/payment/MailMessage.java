@@ -0,0 +1,11 @@
+package com.example.payment;
+
+/**
+ * A rendered email, ready to be handed to a {@link MailConnection}.
+ *
+ * @param to      the recipient's email address
+ * @param subject the subject line
+ * @param body    the plain-text body
+ */
+public record MailMessage(String to, String subject, String body) {
+}
@@ -0,0 +1,16 @@
+package com.example.payment;
+
+/**
+ * Factory for connections to a mail relay.
+ */
+@FunctionalInterface
+public interface MailRelay {
+
+    /**
+     * Opens a new connection, including any handshake and authentication.
+     *
+     * @return the open connection
+     * @throws RuntimeException if the relay cannot be reached
+     */
+    MailConnection connect();
+}
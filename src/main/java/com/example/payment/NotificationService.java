@@ -1,5 +1,9 @@
 package com.example.payment;
 
+import com.example.money.Money;
+
+import java.util.List;
+
 /**
  * Interface for sending payment-related notifications.
  * Abstracts the notification mechanism to allow different implementations
@@ -13,4 +17,48 @@ public interface NotificationService {
      * @param amount the payment amount to include in the confirmation
      */
     void sendPaymentConfirmation(String email, double amount);
+
+    /**
+     * Sends a payment confirmation notification for a fixed-point amount.
+     * <p>
+     * The default implementation converts the amount to {@code double} and delegates
+     * to {@link #sendPaymentConfirmation(String, double)}.
+     *
+     * @param email  the recipient's email address
+     * @param amount the payment amount to include in the confirmation
+     */
+    default void sendPaymentConfirmation(String email, Money amount) {
+        sendPaymentConfirmation(email, amount.toDouble());
+    }
+
+    /**
+     * Sends payment confirmations for several payments at once.
+     * <p>
+     * The default implementation sends each confirmation through
+     * {@link #sendPaymentConfirmation(String, Money)}; services that can
+     * hand off messages in bulk should override it.
+     *
+     * @param payments the successful payments to confirm
+     */
+    default void sendPaymentConfirmations(List<PaymentRequest> payments) {
+        for (PaymentRequest payment : payments) {
+            sendPaymentConfirmation(payment.email(), payment.amount());
+        }
+    }
+
+    /**
+     * Sends payment confirmations and returns only once they have been handed
+     * to the mail system, so callers such as {@link ConfirmationOutboxRelay}
+     * can tell delivered confirmations from lost ones.
+     * <p>
+     * The default implementation calls {@link #sendPaymentConfirmations(List)},
+     * which is enough for services that send synchronously; services that
+     * queue confirmations must override it.
+     *
+     * @param payments the successful payments to confirm
+     * @throws RuntimeException if any of the confirmations could not be sent
+     */
+    default void deliverPaymentConfirmations(List<PaymentRequest> payments) {
+        sendPaymentConfirmations(payments);
+    }
 }
@@ -0,0 +1,65 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+import java.util.List;
+
+/**
+ * {@link PaymentRepository} that also acts as a transactional outbox for
+ * payment confirmations.
+ * <p>
+ * {@link #savePaymentWithConfirmation(Money, String, String)} stores the
+ * payment and a pending confirmation atomically, and a
+ * {@link ConfirmationOutboxRelay} later delivers the pending confirmations.
+ * A processor built with {@link PaymentProcessor.Builder#useOutbox(OutboxPaymentRepository)}
+ * records its payments this way instead of sending confirmations itself.
+ */
+public interface OutboxPaymentRepository extends PaymentRepository {
+
+    /**
+     * Saves a payment record together with a pending confirmation, atomically.
+     *
+     * @param amount the payment amount to save
+     * @param status the status of the payment (e.g., "SUCCESS", "FAILURE")
+     * @param email  the customer's email address for the confirmation
+     */
+    void savePaymentWithConfirmation(Money amount, String status, String email);
+
+    /**
+     * Saves several payment records together with their pending confirmations.
+     * <p>
+     * The default implementation saves each payment through
+     * {@link #savePaymentWithConfirmation(Money, String, String)}.
+     *
+     * @param payments the payments to save
+     * @param status   the status of the payments (e.g., "SUCCESS", "FAILURE")
+     */
+    default void savePaymentsWithConfirmations(List<PaymentRequest> payments, String status) {
+        for (PaymentRequest payment : payments) {
+            savePaymentWithConfirmation(payment.amount(), status, payment.email());
+        }
+    }
+
+    /**
+     * Returns the oldest confirmations that have not been sent yet.
+     *
+     * @param limit the maximum number of confirmations to return
+     * @return up to {@code limit} pending confirmations, oldest first
+     */
+    List<PaymentConfirmation> findPendingConfirmations(int limit);
+
+    /**
+     * Removes sent confirmations from the outbox.
+     *
+     * @param confirmations the confirmations that were sent
+     */
+    void markConfirmationsSent(List<PaymentConfirmation> confirmations);
+
+    /**
+     * Removes confirmations that could not be sent from the pending outbox,
+     * e.g. by moving them to a dead-letter table.
+     *
+     * @param confirmations the confirmations that were given up on
+     */
+    void markConfirmationsFailed(List<PaymentConfirmation> confirmations);
+}
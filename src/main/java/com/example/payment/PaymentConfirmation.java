@@ -0,0 +1,22 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+/**
+ * A payment confirmation waiting in the outbox of a {@link PaymentRepository}.
+ *
+ * @param id     the outbox entry id assigned by the repository
+ * @param amount the confirmed payment amount
+ * @param email  the customer's email address
+ */
+public record PaymentConfirmation(long id, Money amount, String email) {
+
+    /**
+     * Returns the payment this confirmation is for.
+     *
+     * @return the confirmed payment
+     */
+    public PaymentRequest payment() {
+        return new PaymentRequest(amount, email);
+    }
+}
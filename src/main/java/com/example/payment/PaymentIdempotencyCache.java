@@ -0,0 +1,136 @@
+package com.example.payment;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded in-memory cache of responses per idempotency key for {@link PaymentProcessor}.
+ * <p>
+ * Concurrent calls with the same key wait for the first call. The first call
+ * may publish its response before it finishes, e.g. right after the charge,
+ * so that waiting and later calls get the response while the rest of the
+ * payment is still being recorded. A call that throws before publishing is
+ * forgotten, so a retry runs again; a published response is kept even if the
+ * call throws afterwards.
+ * <p>
+ * Entries expire a fixed time after they were created, measured on a
+ * monotonic nanosecond clock, and the oldest entries are evicted when the
+ * cache is full.
+ *
+ * @param <V> the type of the cached responses
+ */
+final class PaymentIdempotencyCache<V> {
+
+    private final int maxEntries;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry<V>> entries = new LinkedHashMap<>();
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries the maximum number of keys, must be positive
+     * @param timeToLive how long a key is remembered, must be positive
+     * @param nanoClock  the monotonic clock, e.g. {@code System::nanoTime}
+     */
+    PaymentIdempotencyCache(int maxEntries, Duration timeToLive, LongSupplier nanoClock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Idempotency capacity must be positive");
+        }
+        if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Idempotency time to live must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the response remembered for a key, or computes it.
+     *
+     * @param key       the idempotency key
+     * @param operation computes the response; may publish it early through the given consumer
+     * @return the remembered or computed response
+     */
+    V getOrCompute(String key, Function<Consumer<V>, V> operation) {
+        Entry<V> entry;
+        boolean firstCall = false;
+        synchronized (this) {
+            long now = nanoClock.getAsLong();
+            evictExpired(now);
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry<>(new CompletableFuture<>(), now + timeToLiveNanos);
+                entries.put(key, entry);
+                evictOverflow();
+                firstCall = true;
+            }
+        }
+
+        if (!firstCall) {
+            return await(entry.result);
+        }
+
+        CompletableFuture<V> result = entry.result;
+        try {
+            V value = operation.apply(result::complete);
+            result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            if (!result.isDone()) {
+                synchronized (this) {
+                    entries.remove(key, entry);
+                }
+                result.completeExceptionally(e);
+            }
+            throw e;
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    // Entries are in insertion order and share one time to live, so the oldest come first
+    private void evictExpired(long now) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAtNanos - now > 0) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record Entry<V>(CompletableFuture<V> result, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+import java.time.Instant;
+
+/**
+ * A payment read back from a {@link LedgerPaymentRepository}.
+ *
+ * @param sequence  the zero-based position of the payment in the ledger
+ * @param timestamp when the payment was written, with millisecond precision
+ * @param amount    the payment amount
+ * @param status    the payment status
+ */
+public record PaymentLedgerRecord(long sequence, Instant timestamp, Money amount, PaymentStatus status) {
+}
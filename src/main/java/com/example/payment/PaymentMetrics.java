@@ -0,0 +1,60 @@
+package com.example.payment;
+
+/**
+ * Receives measurements from a {@link PaymentProcessor}.
+ * <p>
+ * Every method has an empty default, so implementations only override what
+ * they record. Methods are called on the processing threads, including
+ * virtual threads, and must be thread-safe and cheap. {@link #NOOP} is the
+ * default for processors built without metrics.
+ */
+public interface PaymentMetrics {
+
+    /**
+     * Metrics that record nothing.
+     */
+    PaymentMetrics NOOP = new PaymentMetrics() {
+    };
+
+    /**
+     * Called when the processor starts processing a payment.
+     */
+    default void paymentStarted() {
+    }
+
+    /**
+     * Called when the gateway has answered a charge, with its verdict. Failures
+     * while saving or confirming the payment afterwards do not change the
+     * outcome; they are reported through {@link #stageCompleted} only.
+     *
+     * @param success {@link PaymentApiResponse#success()} of the charge
+     */
+    default void paymentCompleted(boolean success) {
+    }
+
+    /**
+     * Called instead of {@link #paymentCompleted(boolean)} when charging a payment threw.
+     *
+     * @param exception the exception thrown to the caller
+     */
+    default void paymentFailed(RuntimeException exception) {
+    }
+
+    /**
+     * Called before a stage calls its dependency.
+     *
+     * @param stage the stage
+     */
+    default void stageStarted(PaymentStage stage) {
+    }
+
+    /**
+     * Called after a stage's call returned or threw.
+     *
+     * @param stage        the stage
+     * @param elapsedNanos the duration of the call
+     * @param failed       true if the call threw
+     */
+    default void stageCompleted(PaymentStage stage, long elapsedNanos, boolean failed) {
+    }
+}
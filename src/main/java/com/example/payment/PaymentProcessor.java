@@ -1,16 +1,88 @@
 package com.example.payment;
 
+import com.example.money.Money;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
 /**
  * Processes payment transactions by coordinating payment gateway operations,
  * data persistence, and customer notifications.
  * <p>
  * This class follows the Dependency Injection pattern, accepting all dependencies
  * through its constructor to ensure testability.
+ * <p>
+ * A processor built with {@link Builder#useOutbox(OutboxPaymentRepository)} does not send
+ * confirmations itself. It saves each successful payment together with a pending
+ * confirmation through {@link OutboxPaymentRepository#savePaymentWithConfirmation(Money, String, String)},
+ * and a {@link ConfirmationOutboxRelay} delivers them in the background. A
+ * notification outage then neither fails the payment nor slows it down.
+ * <p>
+ * Payments processed with an idempotency key are charged at most once per key
+ * while the key is remembered: concurrent duplicates wait for the first call,
+ * and later duplicates get its response without reaching the gateway.
+ * <p>
+ * Payment outcomes and the latency of every stage (charge, save, notify) are
+ * reported to the {@link PaymentMetrics} set with {@link Builder#metrics(PaymentMetrics)};
+ * by default nothing is recorded.
+ * <p>
+ * Confirmations of asynchronous payments are sent on background virtual threads,
+ * at most {@link Builder#maxBackgroundConfirmations(int)} at a time, so the
+ * mailer's latency never reaches the payment. Beyond that limit, and after
+ * {@link #close()}, confirmations are dropped with a warning and counted in
+ * {@link #getDroppedConfirmationCount()}; use the outbox where confirmations
+ * must not be lost. {@link #close()} waits for the confirmations still in flight.
  */
-public class PaymentProcessor {
+public class PaymentProcessor implements AutoCloseable {
+
+    /**
+     * Number of payments charged per {@link PaymentService#chargeBatch(List)} call
+     * by {@link #processPayments(List)}.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Default number of idempotency keys remembered in memory.
+     */
+    public static final int DEFAULT_IDEMPOTENCY_CAPACITY = 10_000;
+
+    /**
+     * Default time an idempotency key is remembered in memory.
+     */
+    public static final Duration DEFAULT_IDEMPOTENCY_TTL = Duration.ofHours(1);
+
+    /**
+     * Default number of confirmations sent in the background at the same time.
+     */
+    public static final int DEFAULT_MAX_BACKGROUND_CONFIRMATIONS = 1_000;
+
+    private static final System.Logger LOGGER = System.getLogger(PaymentProcessor.class.getName());
+
+    // Starts one virtual thread per task; background confirmations are bounded by a semaphore
+    private static final Executor VIRTUAL_THREADS = Thread::startVirtualThread;
+
     private final PaymentService paymentService;
     private final PaymentRepository paymentRepository;
     private final NotificationService notificationService;
+    // Null unless confirmations go through the outbox; then it is also the payment repository
+    private final OutboxPaymentRepository outboxRepository;
+    private final PaymentIdempotencyCache<PaymentApiResponse> idempotentResponses;
+    private final PaymentMetrics metrics;
+    private final int maxBackgroundConfirmations;
+    private final Semaphore backgroundConfirmations;
+    private final LongAdder droppedConfirmations = new LongAdder();
+    private volatile boolean closed;
 
     /**
      * Constructs a PaymentProcessor with the specified dependencies.
@@ -23,9 +95,34 @@ public class PaymentProcessor {
             PaymentService paymentService,
             PaymentRepository paymentRepository,
             NotificationService notificationService) {
-        this.paymentService = paymentService;
-        this.paymentRepository = paymentRepository;
-        this.notificationService = notificationService;
+        this(builder(paymentService, paymentRepository, notificationService));
+    }
+
+    private PaymentProcessor(Builder builder) {
+        this.paymentService = builder.paymentService;
+        this.paymentRepository = builder.paymentRepository;
+        this.notificationService = builder.notificationService;
+        this.outboxRepository = builder.outboxRepository;
+        this.idempotentResponses = new PaymentIdempotencyCache<>(
+                builder.idempotencyCapacity, builder.idempotencyTtl, builder.nanoClock);
+        this.metrics = builder.metrics;
+        this.maxBackgroundConfirmations = builder.maxBackgroundConfirmations;
+        this.backgroundConfirmations = new Semaphore(builder.maxBackgroundConfirmations);
+    }
+
+    /**
+     * Starts building a PaymentProcessor with optional settings.
+     *
+     * @param paymentService      the service for processing payment transactions
+     * @param paymentRepository   the repository for persisting payment records
+     * @param notificationService the service for sending notifications
+     * @return a builder with default settings
+     */
+    public static Builder builder(
+            PaymentService paymentService,
+            PaymentRepository paymentRepository,
+            NotificationService notificationService) {
+        return new Builder(paymentService, paymentRepository, notificationService);
     }
 
     /**
@@ -45,13 +142,503 @@ public class PaymentProcessor {
      * @throws RuntimeException if the payment service is unavailable
      */
     public boolean processPayment(double amount, String email) {
-        PaymentApiResponse response = paymentService.charge(amount);
+        return process(() -> paymentService.charge(amount),
+                () -> recordSuccessfulPayment(amount, email, Confirmation.SEND)).success();
+    }
 
+    /**
+     * Processes a payment transaction for the specified fixed-point amount.
+     * <p>
+     * Behaves like {@link #processPayment(double, String)}, but passes the exact
+     * amount through the {@link Money} overloads of the payment interfaces.
+     *
+     * @param amount the amount to charge
+     * @param email the customer's email address for confirmation
+     * @return true if the payment was successful, false otherwise
+     * @throws RuntimeException if the payment service is unavailable
+     */
+    public boolean processPayment(Money amount, String email) {
+        return process(() -> paymentService.charge(amount),
+                () -> recordSuccessfulPayment(amount, email, Confirmation.SEND)).success();
+    }
+
+    /**
+     * Processes a payment at most once per idempotency key.
+     * <p>
+     * The first call with a key charges, saves and notifies like
+     * {@link #processPayment(Money, String)}. Calls with the same key that
+     * arrive while it is running wait for its response, and later calls get
+     * the same response without charging again, including a declined one.
+     * Keys are remembered in memory for a limited time and, beyond that,
+     * looked up through {@link PaymentRepository#findResponseByIdempotencyKey(String)}.
+     * The default implementations of the repository's idempotency methods store
+     * nothing, so with a repository that does not override them a key is only
+     * remembered in memory, and a retry after it expired charges again.
+     * <p>
+     * The response is remembered in memory as soon as the charge returns, and
+     * then stored through
+     * {@link PaymentRepository#saveResponseForIdempotencyKey(String, PaymentApiResponse)},
+     * before the payment is saved. A retry while the key is remembered therefore
+     * never charges twice, even if saving the payment or the response fails; a
+     * failure to store the response is logged, like a failed confirmation, and
+     * does not fail the call. If the charge throws, nothing is remembered and a
+     * retry with the same key charges again. The key identifies the payment; a
+     * retry is expected to carry the same amount and email.
+     *
+     * @param idempotencyKey the client's key for this payment
+     * @param amount the amount to charge
+     * @param email the customer's email address for confirmation
+     * @return the response of the charge made for this key
+     * @throws IllegalArgumentException if the key is null or blank
+     * @throws RuntimeException if the payment service is unavailable, or if saving
+     *                          the charged payment fails; a retry then gets the response
+     */
+    public PaymentApiResponse processPayment(String idempotencyKey, Money amount, String email) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key cannot be null or blank");
+        }
+        return idempotentResponses.getOrCompute(idempotencyKey, publish -> {
+            Optional<PaymentApiResponse> stored = paymentRepository.findResponseByIdempotencyKey(idempotencyKey);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+
+            return process(() -> paymentService.charge(amount), response -> {
+                publish.accept(response);
+                storeIdempotentResponse(idempotencyKey, response);
+            }, () -> recordSuccessfulPayment(amount, email, Confirmation.SEND_AND_LOG_FAILURE));
+        });
+    }
+
+    /**
+     * Processes a payment asynchronously on a virtual thread.
+     * <p>
+     * The returned future completes after the charge and, for a successful
+     * payment, after the payment record has been saved. The confirmation is
+     * sent afterwards on its own virtual thread and is not awaited, so checkout
+     * latency only includes the gateway and the repository. If the background
+     * limit is reached or the processor is closed, the confirmation is dropped
+     * and counted instead; a failure to send it is logged. Neither affects the result.
+     *
+     * @param amount the amount to charge
+     * @param email the customer's email address for confirmation
+     * @return a future completing with true if the payment was successful, false otherwise;
+     *         completes exceptionally if the payment service or repository fails
+     */
+    public CompletableFuture<Boolean> processPaymentAsync(double amount, String email) {
+        return CompletableFuture.supplyAsync(() -> process(() -> paymentService.charge(amount),
+                        () -> recordSuccessfulPayment(amount, email, Confirmation.SEND_IN_BACKGROUND)).success(),
+                VIRTUAL_THREADS);
+    }
+
+    /**
+     * Processes a fixed-point payment asynchronously on a virtual thread.
+     * <p>
+     * Behaves like {@link #processPaymentAsync(double, String)}, but passes the
+     * exact amount through the {@link Money} overloads of the payment interfaces.
+     *
+     * @param amount the amount to charge
+     * @param email the customer's email address for confirmation
+     * @return a future completing with true if the payment was successful, false otherwise;
+     *         completes exceptionally if the payment service or repository fails
+     */
+    public CompletableFuture<Boolean> processPaymentAsync(Money amount, String email) {
+        return CompletableFuture.supplyAsync(() -> process(() -> paymentService.charge(amount),
+                        () -> recordSuccessfulPayment(amount, email, Confirmation.SEND_IN_BACKGROUND)).success(),
+                VIRTUAL_THREADS);
+    }
+
+    /**
+     * Processes many payments in batches.
+     * <p>
+     * Equivalent to {@link #processPayments(List, int)} with {@link #DEFAULT_BATCH_SIZE}.
+     *
+     * @param requests the payments to process
+     * @return one response per request, in the same order
+     */
+    public List<PaymentApiResponse> processPayments(List<PaymentRequest> requests) {
+        return processPayments(requests, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Processes many payments in batches of the given size.
+     * <p>
+     * Each batch is charged with one {@link PaymentService#chargeBatch(List)} call.
+     * The successful payments of a batch are saved with one
+     * {@link PaymentRepository#savePayments(List, String)} call and confirmed with
+     * one {@link NotificationService#sendPaymentConfirmations(List)} call.
+     * <p>
+     * If the gateway rejects a batch as a whole, every payment in that batch is
+     * reported as failed and processing continues with the next batch. The
+     * payments are not retried one by one, because the gateway may already
+     * have charged some of them.
+     * <p>
+     * If saving or confirming the successful payments of a batch fails, the
+     * failure is logged and processing continues with the next batch. Those
+     * payments were charged, so their responses stay successful but carry a
+     * message naming the step that failed.
+     *
+     * @param requests  the payments to process
+     * @param batchSize the maximum number of payments per gateway call (must be > 0)
+     * @return one response per request, in the same order
+     * @throws IllegalArgumentException if requests is null or batchSize is not positive
+     * @throws IllegalStateException    if the gateway returns the wrong number of responses
+     */
+    public List<PaymentApiResponse> processPayments(List<PaymentRequest> requests, int batchSize) {
+        if (requests == null) {
+            throw new IllegalArgumentException("Requests cannot be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        List<PaymentApiResponse> responses = new ArrayList<>(requests.size());
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            List<PaymentRequest> batch = requests.subList(from, Math.min(from + batchSize, requests.size()));
+            responses.addAll(processBatch(batch));
+        }
+        return responses;
+    }
+
+    /**
+     * Returns the number of confirmations of asynchronous payments that were
+     * not sent because the background limit was reached or the processor was closed.
+     *
+     * @return the dropped confirmation count
+     */
+    public long getDroppedConfirmationCount() {
+        return droppedConfirmations.sum();
+    }
+
+    /**
+     * Waits until no confirmation is being sent in the background.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if all background confirmations finished, false if the timeout elapsed first
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean awaitBackgroundConfirmations(Duration timeout) throws InterruptedException {
+        if (!backgroundConfirmations.tryAcquire(maxBackgroundConfirmations, timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        backgroundConfirmations.release(maxBackgroundConfirmations);
+        return true;
+    }
+
+    /**
+     * Stops sending confirmations in the background and waits for those still in flight.
+     * The processor keeps processing payments; confirmations of asynchronous payments
+     * are then dropped, while synchronous payments still send theirs.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            backgroundConfirmations.acquire(maxBackgroundConfirmations);
+            backgroundConfirmations.release(maxBackgroundConfirmations);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private PaymentApiResponse process(Supplier<PaymentApiResponse> charge, Runnable recordSuccess) {
+        return process(charge, response -> { }, recordSuccess);
+    }
+
+    // Charges one payment, hands the response to charged and records the payment if successful.
+    // The metrics get the charge's outcome; a failure after the charge is only a stage error,
+    // since the customer has been charged all the same
+    private PaymentApiResponse process(Supplier<PaymentApiResponse> charge, Consumer<PaymentApiResponse> charged,
+                                       Runnable recordSuccess) {
+        metrics.paymentStarted();
+        PaymentApiResponse response;
+        try {
+            response = callStage(PaymentStage.CHARGE, charge);
+        } catch (RuntimeException e) {
+            metrics.paymentFailed(e);
+            throw e;
+        }
+        metrics.paymentCompleted(response.success());
+        charged.accept(response);
         if (response.success()) {
-            paymentRepository.savePayment(amount, "SUCCESS");
-            notificationService.sendPaymentConfirmation(email, amount);
+            recordSuccess.run();
+        }
+        return response;
+    }
+
+    // The response is already remembered in memory, so a failure here must not fail the charged payment
+    private void storeIdempotentResponse(String idempotencyKey, PaymentApiResponse response) {
+        try {
+            runStage(PaymentStage.SAVE,
+                    () -> paymentRepository.saveResponseForIdempotencyKey(idempotencyKey, response));
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Failed to store the response for idempotency key "
+                    + idempotencyKey, e);
+        }
+    }
+
+    private void recordSuccessfulPayment(double amount, String email, Confirmation confirmation) {
+        if (outboxRepository != null) {
+            runStage(PaymentStage.SAVE,
+                    () -> outboxRepository.savePaymentWithConfirmation(Money.of(amount), "SUCCESS", email));
+        } else {
+            runStage(PaymentStage.SAVE, () -> paymentRepository.savePayment(amount, "SUCCESS"));
+            confirm(() -> notificationService.sendPaymentConfirmation(email, amount), confirmation);
+        }
+    }
+
+    private void recordSuccessfulPayment(Money amount, String email, Confirmation confirmation) {
+        if (outboxRepository != null) {
+            runStage(PaymentStage.SAVE,
+                    () -> outboxRepository.savePaymentWithConfirmation(amount, "SUCCESS", email));
+        } else {
+            runStage(PaymentStage.SAVE, () -> paymentRepository.savePayment(amount, "SUCCESS"));
+            confirm(() -> notificationService.sendPaymentConfirmation(email, amount), confirmation);
+        }
+    }
+
+    private void confirm(Runnable send, Confirmation confirmation) {
+        Runnable stage = () -> runStage(PaymentStage.NOTIFY, send);
+        switch (confirmation) {
+            case SEND -> stage.run();
+            case SEND_AND_LOG_FAILURE -> sendLoggingFailure(stage);
+            case SEND_IN_BACKGROUND -> sendConfirmationInBackground(stage);
+        }
+    }
+
+    private <T> T callStage(PaymentStage stage, Supplier<T> call) {
+        metrics.stageStarted(stage);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            metrics.stageCompleted(stage, System.nanoTime() - start, failed);
+        }
+    }
+
+    private void runStage(PaymentStage stage, Runnable call) {
+        callStage(stage, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    // At the limit, or once closed, the calling thread sends the confirmation itself
+    private void sendConfirmationInBackground(Runnable send) {
+        if (closed || !backgroundConfirmations.tryAcquire()) {
+            // Sending here would put the mailer's latency back on the payment
+            droppedConfirmations.increment();
+            LOGGER.log(System.Logger.Level.WARNING, closed
+                    ? "Processor closed, payment confirmation dropped"
+                    : "Background confirmation limit reached, payment confirmation dropped");
+            return;
+        }
+        VIRTUAL_THREADS.execute(() -> {
+            try {
+                sendLoggingFailure(send);
+            } finally {
+                backgroundConfirmations.release();
+            }
+        });
+    }
+
+    private static void sendLoggingFailure(Runnable send) {
+        try {
+            send.run();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Failed to send payment confirmation", e);
+        }
+    }
+
+    private List<PaymentApiResponse> processBatch(List<PaymentRequest> batch) {
+        List<Money> amounts = new ArrayList<>(batch.size());
+        for (PaymentRequest request : batch) {
+            amounts.add(request.amount());
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            metrics.paymentStarted();
+        }
+        try {
+            List<PaymentApiResponse> responses = chargeAndRecordBatch(batch, amounts);
+            for (PaymentApiResponse response : responses) {
+                metrics.paymentCompleted(response.success());
+            }
+            return responses;
+        } catch (RuntimeException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                metrics.paymentFailed(e);
+            }
+            throw e;
+        }
+    }
+
+    private List<PaymentApiResponse> chargeAndRecordBatch(List<PaymentRequest> batch, List<Money> amounts) {
+        List<PaymentApiResponse> responses;
+        try {
+            responses = callStage(PaymentStage.CHARGE, () -> paymentService.chargeBatch(amounts));
+        } catch (RuntimeException e) {
+            PaymentApiResponse failure = new PaymentApiResponse(false, "Batch charge failed: " + e.getMessage());
+            return Collections.nCopies(batch.size(), failure);
+        }
+        if (responses == null || responses.size() != batch.size()) {
+            throw new IllegalStateException("Payment service returned "
+                    + (responses == null ? 0 : responses.size()) + " responses for " + batch.size() + " charges");
+        }
+
+        List<Money> savedAmounts = new ArrayList<>(batch.size());
+        List<PaymentRequest> confirmations = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (responses.get(i).success()) {
+                savedAmounts.add(amounts.get(i));
+                confirmations.add(batch.get(i));
+            }
+        }
+        if (confirmations.isEmpty()) {
+            return responses;
+        }
+        try {
+            if (outboxRepository != null) {
+                runStage(PaymentStage.SAVE,
+                        () -> outboxRepository.savePaymentsWithConfirmations(confirmations, "SUCCESS"));
+            } else {
+                runStage(PaymentStage.SAVE, () -> paymentRepository.savePayments(savedAmounts, "SUCCESS"));
+            }
+        } catch (RuntimeException e) {
+            return chargedWithFailure(responses, "Charged but not saved", e);
+        }
+        if (outboxRepository == null) {
+            try {
+                runStage(PaymentStage.NOTIFY, () -> notificationService.sendPaymentConfirmations(confirmations));
+            } catch (RuntimeException e) {
+                return chargedWithFailure(responses, "Charged but confirmation not sent", e);
+            }
+        }
+        return responses;
+    }
+
+    // Keeps the charged payments successful and notes the step that failed after the charge
+    private static List<PaymentApiResponse> chargedWithFailure(
+            List<PaymentApiResponse> responses, String failure, RuntimeException e) {
+        LOGGER.log(System.Logger.Level.WARNING, failure + " for a batch of payments", e);
+        PaymentApiResponse charged = new PaymentApiResponse(true, failure + ": " + e.getMessage());
+        List<PaymentApiResponse> reported = new ArrayList<>(responses.size());
+        for (PaymentApiResponse response : responses) {
+            reported.add(response.success() ? charged : response);
         }
+        return reported;
+    }
+
+    // How a successful payment's confirmation is sent when there is no outbox
+    private enum Confirmation {
+        SEND,
+        SEND_AND_LOG_FAILURE,
+        SEND_IN_BACKGROUND
+    }
 
-        return response.success();
+    /**
+     * Builder for {@link PaymentProcessor}s with optional settings.
+     */
+    public static final class Builder {
+
+        private final PaymentService paymentService;
+        private PaymentRepository paymentRepository;
+        private final NotificationService notificationService;
+        private OutboxPaymentRepository outboxRepository;
+        private int idempotencyCapacity = DEFAULT_IDEMPOTENCY_CAPACITY;
+        private Duration idempotencyTtl = DEFAULT_IDEMPOTENCY_TTL;
+        private LongSupplier nanoClock = System::nanoTime;
+        private PaymentMetrics metrics = PaymentMetrics.NOOP;
+        private int maxBackgroundConfirmations = DEFAULT_MAX_BACKGROUND_CONFIRMATIONS;
+
+        private Builder(
+                PaymentService paymentService,
+                PaymentRepository paymentRepository,
+                NotificationService notificationService) {
+            this.paymentService = paymentService;
+            this.paymentRepository = paymentRepository;
+            this.notificationService = notificationService;
+        }
+
+        /**
+         * Makes confirmations go through the given repository's outbox instead
+         * of being sent directly. Off by default.
+         * <p>
+         * The outbox repository replaces the repository passed to
+         * {@link PaymentProcessor#builder(PaymentService, PaymentRepository, NotificationService)},
+         * so payments and their confirmations are stored together.
+         *
+         * @param outboxRepository the repository recording payments with their confirmations
+         * @return this builder
+         */
+        public Builder useOutbox(OutboxPaymentRepository outboxRepository) {
+            if (outboxRepository == null) {
+                throw new IllegalArgumentException("Outbox repository cannot be null");
+            }
+            this.paymentRepository = outboxRepository;
+            this.outboxRepository = outboxRepository;
+            return this;
+        }
+
+        /**
+         * Sets how many idempotency keys are remembered in memory, and for how long.
+         * Defaults to {@link #DEFAULT_IDEMPOTENCY_CAPACITY} keys for {@link #DEFAULT_IDEMPOTENCY_TTL}.
+         *
+         * @param capacity   the maximum number of keys, must be positive
+         * @param timeToLive how long a key is remembered, must be positive
+         * @return this builder
+         */
+        public Builder idempotency(int capacity, Duration timeToLive) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Idempotency capacity must be positive");
+            }
+            if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+                throw new IllegalArgumentException("Idempotency time to live must be positive");
+            }
+            this.idempotencyCapacity = capacity;
+            this.idempotencyTtl = timeToLive;
+            return this;
+        }
+
+        /**
+         * Sets where payment outcomes and stage latencies are reported.
+         * Defaults to {@link PaymentMetrics#NOOP}.
+         *
+         * @param metrics the metrics to report to
+         * @return this builder
+         */
+        public Builder metrics(PaymentMetrics metrics) {
+            if (metrics == null) {
+                throw new IllegalArgumentException("Metrics cannot be null");
+            }
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Sets how many confirmations of asynchronous payments are sent in the
+         * background at the same time. Defaults to {@link #DEFAULT_MAX_BACKGROUND_CONFIRMATIONS}.
+         *
+         * @param maxBackgroundConfirmations the limit, must be positive
+         * @return this builder
+         */
+        public Builder maxBackgroundConfirmations(int maxBackgroundConfirmations) {
+            if (maxBackgroundConfirmations <= 0) {
+                throw new IllegalArgumentException("Max background confirmations must be positive");
+            }
+            this.maxBackgroundConfirmations = maxBackgroundConfirmations;
+            return this;
+        }
+
+        Builder nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public PaymentProcessor build() {
+            return new PaymentProcessor(this);
+        }
     }
-}
\ No newline at end of file
+}
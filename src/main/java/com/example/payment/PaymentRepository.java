@@ -1,8 +1,20 @@
 package com.example.payment;
 
+import com.example.money.Money;
+
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository interface for persisting payment records.
  * Follows the Repository pattern to abstract database operations.
+ * <p>
+ * Repositories that can also act as a transactional outbox for payment
+ * confirmations implement {@link OutboxPaymentRepository}.
+ * <p>
+ * Repositories can also remember the response given for an idempotency key,
+ * so that {@link PaymentProcessor#processPayment(String, Money, String)} answers
+ * retries without charging again after a restart. By default nothing is stored.
  */
 public interface PaymentRepository {
 
@@ -13,4 +25,63 @@ public interface PaymentRepository {
      * @param status the status of the payment (e.g., "SUCCESS", "FAILURE")
      */
     void savePayment(double amount, String status);
+
+    /**
+     * Saves a payment record with the specified fixed-point amount and status.
+     * <p>
+     * The default implementation converts the amount to {@code double} and delegates
+     * to {@link #savePayment(double, String)}; repositories that store minor units
+     * should override it.
+     *
+     * @param amount the payment amount to save
+     * @param status the status of the payment (e.g., "SUCCESS", "FAILURE")
+     */
+    default void savePayment(Money amount, String status) {
+        savePayment(amount.toDouble(), status);
+    }
+
+    /**
+     * Saves several payment records with the same status in one write.
+     * <p>
+     * The default implementation saves each amount through
+     * {@link #savePayment(Money, String)}; repositories that support bulk
+     * inserts should override it.
+     *
+     * @param amounts the payment amounts to save
+     * @param status  the status of the payments (e.g., "SUCCESS", "FAILURE")
+     */
+    default void savePayments(List<Money> amounts, String status) {
+        for (Money amount : amounts) {
+            savePayment(amount, status);
+        }
+    }
+
+    /**
+     * Returns the response stored for an idempotency key.
+     * <p>
+     * The default implementation always returns an empty result. Repositories
+     * that keep the default idempotency methods give {@link PaymentProcessor}
+     * no protection beyond its in-memory keys.
+     *
+     * @param idempotencyKey the client's idempotency key
+     * @return the stored response, or an empty result if the key is unknown
+     */
+    default Optional<PaymentApiResponse> findResponseByIdempotencyKey(String idempotencyKey) {
+        return Optional.empty();
+    }
+
+    /**
+     * Stores the response given for an idempotency key. Called right after the
+     * charge returns, before the payment itself is saved, so that a retry is
+     * not charged again once the processor has forgotten the key; repositories
+     * should keep the key at least as long as clients may retry. A failure is
+     * logged by the processor and does not fail the payment.
+     * <p>
+     * The default implementation stores nothing.
+     *
+     * @param idempotencyKey the client's idempotency key
+     * @param response       the response given to the client
+     */
+    default void saveResponseForIdempotencyKey(String idempotencyKey, PaymentApiResponse response) {
+    }
 }
@@ -0,0 +1,20 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+/**
+ * A single payment to be processed as part of a batch.
+ *
+ * @param amount the amount to charge
+ * @param email  the customer's email address for confirmation
+ */
+public record PaymentRequest(Money amount, String email) {
+    public PaymentRequest {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount cannot be null");
+        }
+        if (email == null || email.isBlank()) {
+            throw new IllegalArgumentException("Email cannot be null or blank");
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.example.payment;
 
+import com.example.money.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Interface for payment gateway operations.
  * Provides an abstraction layer for processing payment transactions
@@ -15,4 +20,42 @@ public interface PaymentService {
      * @throws RuntimeException if the payment gateway is unavailable or returns an error
      */
     PaymentApiResponse charge(double amount);
+
+    /**
+     * Charges the specified fixed-point amount using the payment gateway.
+     * <p>
+     * The default implementation converts the amount to {@code double} and delegates
+     * to {@link #charge(double)}; gateways that accept minor units should override it.
+     *
+     * @param amount the amount to charge, must be positive
+     * @return a PaymentApiResponse containing the result of the charge operation
+     * @throws RuntimeException if the payment gateway is unavailable or returns an error
+     */
+    default PaymentApiResponse charge(Money amount) {
+        return charge(amount.toDouble());
+    }
+
+    /**
+     * Charges several amounts in one gateway call.
+     * <p>
+     * The default implementation charges each amount separately through
+     * {@link #charge(Money)} and reports an exception thrown for one amount
+     * as a failed response for that amount, so the remaining amounts are
+     * still charged. Gateways with a batch API should override it.
+     *
+     * @param amounts the amounts to charge, each must be positive
+     * @return one response per amount, in the same order
+     * @throws RuntimeException if the payment gateway rejects the batch as a whole
+     */
+    default List<PaymentApiResponse> chargeBatch(List<Money> amounts) {
+        List<PaymentApiResponse> responses = new ArrayList<>(amounts.size());
+        for (Money amount : amounts) {
+            try {
+                responses.add(charge(amount));
+            } catch (RuntimeException e) {
+                responses.add(new PaymentApiResponse(false, "Charge failed: " + e.getMessage()));
+            }
+        }
+        return responses;
+    }
 }
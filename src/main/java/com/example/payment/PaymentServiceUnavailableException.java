@@ -0,0 +1,32 @@
+package com.example.payment;
+
+/**
+ * Thrown by {@link ResilientPaymentService} when a call is rejected or abandoned
+ * instead of waiting on an unhealthy payment gateway.
+ * <p>
+ * A rejected call never reached the gateway. A timed-out call may still
+ * complete at the gateway, so its outcome is unknown; see {@link #isOutcomeUnknown()}.
+ */
+public class PaymentServiceUnavailableException extends RuntimeException {
+
+    private final boolean outcomeUnknown;
+
+    public PaymentServiceUnavailableException(String message) {
+        super(message);
+        this.outcomeUnknown = false;
+    }
+
+    public PaymentServiceUnavailableException(String message, Throwable cause, boolean outcomeUnknown) {
+        super(message, cause);
+        this.outcomeUnknown = outcomeUnknown;
+    }
+
+    /**
+     * Returns whether the call may have been carried out by the gateway.
+     *
+     * @return true if the call timed out after it was sent, false if it was rejected up front
+     */
+    public boolean isOutcomeUnknown() {
+        return outcomeUnknown;
+    }
+}
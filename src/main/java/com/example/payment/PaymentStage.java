@@ -0,0 +1,13 @@
+package com.example.payment;
+
+/**
+ * Stages of payment processing that {@link PaymentProcessor} reports to {@link PaymentMetrics}.
+ */
+public enum PaymentStage {
+    /** The gateway call, single or batched, through the {@link PaymentService}. */
+    CHARGE,
+    /** Saving the payment, and in outbox mode its confirmation, through the {@link PaymentRepository}. */
+    SAVE,
+    /** Sending the confirmation through the {@link NotificationService}. */
+    NOTIFY
+}
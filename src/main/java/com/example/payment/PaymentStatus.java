@@ -0,0 +1,62 @@
+package com.example.payment;
+
+/**
+ * Status of a stored payment, with a stable one-byte code for binary storage.
+ * <p>
+ * The names match the status strings passed to {@link PaymentRepository#savePayment(double, String)}.
+ * Codes must never be reused or renumbered, since they are persisted.
+ */
+public enum PaymentStatus {
+    SUCCESS(1),
+    FAILURE(2);
+
+    private static final PaymentStatus[] BY_CODE = new PaymentStatus[3];
+
+    static {
+        for (PaymentStatus status : values()) {
+            BY_CODE[status.code] = status;
+        }
+    }
+
+    private final byte code;
+
+    PaymentStatus(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    /**
+     * Returns the status with the given storage code.
+     *
+     * @param code the storage code
+     * @return the status
+     * @throws IllegalArgumentException if no status has the code
+     */
+    public static PaymentStatus fromCode(int code) {
+        if (code <= 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Unknown payment status code: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Returns the status with the given name, such as {@code "SUCCESS"}.
+     *
+     * @param name the status name
+     * @return the status
+     * @throws IllegalArgumentException if no status has the name
+     */
+    public static PaymentStatus fromName(String name) {
+        if (name != null) {
+            for (PaymentStatus status : values()) {
+                if (status.name().equals(name)) {
+                    return status;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown payment status: " + name);
+    }
+}
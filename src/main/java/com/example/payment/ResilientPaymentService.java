@@ -0,0 +1,425 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * {@link PaymentService} decorator that fails fast while the payment gateway is unhealthy.
+ * <p>
+ * Every call passes three guards before it reaches the gateway:
+ * <ul>
+ *     <li>a bulkhead that limits the number of gateway calls in flight, so a
+ *     slow gateway cannot tie up every checkout thread;</li>
+ *     <li>a circuit breaker that opens when the failure rate over the last
+ *     calls reaches a threshold, rejects calls while open, and lets a single
+ *     trial call through after a cool-down to decide whether to close again;</li>
+ *     <li>a deadline: the gateway call runs on a virtual thread and the caller
+ *     stops waiting for it once the call timeout has passed.</li>
+ * </ul>
+ * Rejected and timed-out calls throw {@link PaymentServiceUnavailableException}.
+ * Exceptions thrown by the gateway and timeouts count as failures; declined
+ * charges ({@code success == false}) are regular answers and do not.
+ * <p>
+ * A timed-out call is interrupted but may still complete at the gateway, and
+ * it keeps its bulkhead slot until it actually returns. Charges are therefore
+ * never retried or hedged by this class: a second request could charge the
+ * customer twice.
+ * <p>
+ * The latencies of all calls that reached the gateway, including timed-out
+ * ones at the time they were abandoned, are recorded in {@link #getLatency()}.
+ */
+public final class ResilientPaymentService implements PaymentService {
+
+    /**
+     * State of the circuit breaker.
+     */
+    public enum CircuitState {
+        /** Calls pass through; outcomes are recorded. */
+        CLOSED,
+        /** Calls are rejected until the open duration has passed. */
+        OPEN,
+        /** One trial call is let through; its outcome closes or re-opens the circuit. */
+        HALF_OPEN
+    }
+
+    private final PaymentService delegate;
+    private final long callTimeoutNanos;
+    private final long batchCallTimeoutNanos;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final LongSupplier ticker;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rejectedCalls = new LongAdder();
+    private final LongAdder timedOutCalls = new LongAdder();
+
+    private ResilientPaymentService(Builder builder) {
+        this.delegate = builder.delegate;
+        this.callTimeoutNanos = builder.callTimeout.toNanos();
+        this.batchCallTimeoutNanos = (builder.batchCallTimeout != null ? builder.batchCallTimeout : builder.callTimeout)
+                .toNanos();
+        this.bulkhead = new Semaphore(builder.maxConcurrentCalls);
+        this.ticker = builder.ticker;
+        this.circuitBreaker = new CircuitBreaker(builder.slidingWindowSize, builder.failureRateThreshold,
+                builder.openDuration.toNanos());
+    }
+
+    /**
+     * Starts building a resilient wrapper around a payment service.
+     *
+     * @param delegate the payment service to protect
+     * @return a builder with default settings
+     * @throws IllegalArgumentException if the delegate is null
+     */
+    public static Builder builder(PaymentService delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Payment service cannot be null");
+        }
+        return new Builder(delegate);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws PaymentServiceUnavailableException if the call was rejected or timed out
+     */
+    @Override
+    public PaymentApiResponse charge(double amount) {
+        return call(() -> delegate.charge(amount), callTimeoutNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws PaymentServiceUnavailableException if the call was rejected or timed out
+     */
+    @Override
+    public PaymentApiResponse charge(Money amount) {
+        return call(() -> delegate.charge(amount), callTimeoutNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The batch is guarded as a single gateway call with the batch call timeout.
+     *
+     * @throws PaymentServiceUnavailableException if the call was rejected or timed out
+     */
+    @Override
+    public List<PaymentApiResponse> chargeBatch(List<Money> amounts) {
+        return call(() -> delegate.chargeBatch(amounts), batchCallTimeoutNanos);
+    }
+
+    public CircuitState getCircuitState() {
+        return circuitBreaker.state(ticker.getAsLong());
+    }
+
+    /**
+     * Returns the latencies of the calls that reached the gateway.
+     *
+     * @return the live latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the number of calls rejected by the bulkhead or the open circuit.
+     *
+     * @return the rejected call count
+     */
+    public long getRejectedCallCount() {
+        return rejectedCalls.sum();
+    }
+
+    public long getTimedOutCallCount() {
+        return timedOutCalls.sum();
+    }
+
+    public int getAvailableConcurrentCalls() {
+        return bulkhead.availablePermits();
+    }
+
+    private <T> T call(Supplier<T> gatewayCall, long timeoutNanos) {
+        if (!bulkhead.tryAcquire()) {
+            rejectedCalls.increment();
+            throw new PaymentServiceUnavailableException("Too many concurrent payment gateway calls");
+        }
+        long start = ticker.getAsLong();
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire(start);
+        if (permit == CircuitBreaker.Permit.REJECTED) {
+            bulkhead.release();
+            rejectedCalls.increment();
+            throw new PaymentServiceUnavailableException("Payment gateway circuit breaker is open");
+        }
+
+        FutureTask<T> task = new FutureTask<>(gatewayCall::get);
+        try {
+            // The slot is released when the call really ends, also if the caller gave up on it
+            Thread.ofVirtual().name("payment-gateway-call").start(() -> {
+                try {
+                    task.run();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            bulkhead.release();
+            circuitBreaker.onResult(permit, false, ticker.getAsLong());
+            throw e;
+        }
+
+        try {
+            T result = task.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            circuitBreaker.onResult(permit, true, latencySince(start));
+            return result;
+        } catch (ExecutionException e) {
+            circuitBreaker.onResult(permit, false, latencySince(start));
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Payment gateway call failed", cause);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            timedOutCalls.increment();
+            circuitBreaker.onResult(permit, false, latencySince(start));
+            throw new PaymentServiceUnavailableException(
+                    "Payment gateway call timed out after " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms",
+                    e, true);
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            circuitBreaker.onResult(permit, false, latencySince(start));
+            throw new PaymentServiceUnavailableException("Interrupted while waiting for the payment gateway",
+                    e, true);
+        }
+    }
+
+    // Records the call's latency and returns the current time for the circuit breaker
+    private long latencySince(long start) {
+        long now = ticker.getAsLong();
+        latency.record(now - start);
+        return now;
+    }
+
+    /**
+     * Count-based circuit breaker over the outcomes of the last calls.
+     * Calls that were admitted before the circuit opened do not count once they complete.
+     */
+    private static final class CircuitBreaker {
+
+        enum Permit { REJECTED, NORMAL, TRIAL }
+
+        private final boolean[] failures;
+        private final int failureRateThreshold;
+        private final long openNanos;
+
+        private CircuitState state = CircuitState.CLOSED;
+        private int next;
+        private int recorded;
+        private int failed;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        CircuitBreaker(int windowSize, int failureRateThreshold, long openNanos) {
+            this.failures = new boolean[windowSize];
+            this.failureRateThreshold = failureRateThreshold;
+            this.openNanos = openNanos;
+        }
+
+        synchronized CircuitState state(long now) {
+            if (state == CircuitState.OPEN && now - openedAt >= openNanos) {
+                return CircuitState.HALF_OPEN;
+            }
+            return state;
+        }
+
+        synchronized Permit tryAcquire(long now) {
+            if (state == CircuitState.OPEN && now - openedAt >= openNanos) {
+                state = CircuitState.HALF_OPEN;
+                trialInFlight = false;
+            }
+            switch (state) {
+                case CLOSED:
+                    return Permit.NORMAL;
+                case HALF_OPEN:
+                    if (trialInFlight) {
+                        return Permit.REJECTED;
+                    }
+                    trialInFlight = true;
+                    return Permit.TRIAL;
+                default:
+                    return Permit.REJECTED;
+            }
+        }
+
+        synchronized void onResult(Permit permit, boolean success, long now) {
+            if (permit == Permit.TRIAL) {
+                trialInFlight = false;
+                if (success) {
+                    close();
+                } else {
+                    open(now);
+                }
+                return;
+            }
+            if (state != CircuitState.CLOSED) {
+                return;
+            }
+            if (recorded == failures.length && failures[next]) {
+                failed--;
+            }
+            failures[next] = !success;
+            if (!success) {
+                failed++;
+            }
+            next = (next + 1) % failures.length;
+            recorded = Math.min(recorded + 1, failures.length);
+            if (recorded == failures.length && failed * 100L >= (long) failureRateThreshold * recorded) {
+                open(now);
+            }
+        }
+
+        private void open(long now) {
+            state = CircuitState.OPEN;
+            openedAt = now;
+            resetWindow();
+        }
+
+        private void close() {
+            state = CircuitState.CLOSED;
+            resetWindow();
+        }
+
+        private void resetWindow() {
+            Arrays.fill(failures, false);
+            next = 0;
+            recorded = 0;
+            failed = 0;
+        }
+    }
+
+    /**
+     * Builder for {@link ResilientPaymentService}s.
+     */
+    public static final class Builder {
+
+        private final PaymentService delegate;
+        private Duration callTimeout = Duration.ofSeconds(2);
+        private Duration batchCallTimeout;
+        private int maxConcurrentCalls = 64;
+        private int slidingWindowSize = 20;
+        private int failureRateThreshold = 50;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder(PaymentService delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Sets how long a caller waits for a single charge. Defaults to 2 seconds.
+         *
+         * @param callTimeout the call timeout, must be positive
+         * @return this builder
+         */
+        public Builder callTimeout(Duration callTimeout) {
+            this.callTimeout = requirePositive(callTimeout, "Call timeout must be positive");
+            return this;
+        }
+
+        /**
+         * Sets how long a caller waits for a batch charge. Defaults to the call timeout.
+         *
+         * @param batchCallTimeout the batch call timeout, must be positive
+         * @return this builder
+         */
+        public Builder batchCallTimeout(Duration batchCallTimeout) {
+            this.batchCallTimeout = requirePositive(batchCallTimeout, "Batch call timeout must be positive");
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of gateway calls in flight. Defaults to 64.
+         *
+         * @param maxConcurrentCalls the bulkhead size, must be positive
+         * @return this builder
+         */
+        public Builder maxConcurrentCalls(int maxConcurrentCalls) {
+            if (maxConcurrentCalls <= 0) {
+                throw new IllegalArgumentException("Max concurrent calls must be positive");
+            }
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            return this;
+        }
+
+        /**
+         * Sets the number of recent calls the failure rate is computed over. Defaults to 20.
+         *
+         * @param slidingWindowSize the window size, must be positive
+         * @return this builder
+         */
+        public Builder slidingWindowSize(int slidingWindowSize) {
+            if (slidingWindowSize <= 0) {
+                throw new IllegalArgumentException("Sliding window size must be positive");
+            }
+            this.slidingWindowSize = slidingWindowSize;
+            return this;
+        }
+
+        /**
+         * Sets the failure percentage at which the circuit opens. Defaults to 50.
+         *
+         * @param failureRateThreshold the threshold in percent, between 1 and 100
+         * @return this builder
+         */
+        public Builder failureRateThreshold(int failureRateThreshold) {
+            if (failureRateThreshold < 1 || failureRateThreshold > 100) {
+                throw new IllegalArgumentException("Failure rate threshold must be between 1 and 100");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how long the circuit stays open before a trial call. Defaults to 30 seconds.
+         *
+         * @param openDuration the open duration, must be positive
+         * @return this builder
+         */
+        public Builder openDuration(Duration openDuration) {
+            this.openDuration = requirePositive(openDuration, "Open duration must be positive");
+            return this;
+        }
+
+        Builder ticker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public ResilientPaymentService build() {
+            return new ResilientPaymentService(this);
+        }
+
+        private static Duration requirePositive(Duration duration, String message) {
+            if (duration == null || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException(message);
+            }
+            return duration;
+        }
+    }
+}
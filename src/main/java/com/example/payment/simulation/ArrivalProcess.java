@@ -0,0 +1,32 @@
+package com.example.payment.simulation;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * How a {@link PaymentLoadGenerator} spaces its request arrivals.
+ */
+public enum ArrivalProcess {
+
+    /**
+     * Requests arrive at a fixed interval.
+     */
+    UNIFORM {
+        @Override
+        long nextGapNanos(double meanGapNanos, RandomGenerator random) {
+            return Math.round(meanGapNanos);
+        }
+    },
+
+    /**
+     * Requests arrive independently of each other, with exponentially
+     * distributed gaps, like traffic from many unrelated customers.
+     */
+    POISSON {
+        @Override
+        long nextGapNanos(double meanGapNanos, RandomGenerator random) {
+            return Math.round(random.nextExponential() * meanGapNanos);
+        }
+    };
+
+    abstract long nextGapNanos(double meanGapNanos, RandomGenerator random);
+}
@@ -0,0 +1,83 @@
+package com.example.payment.simulation;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribution of simulated call latencies.
+ * <p>
+ * Real gateway latencies are skewed: most calls are close to the median and a
+ * few are many times slower. {@link #logNormal(Duration, double)} models that
+ * shape; {@link #withTail(double, LatencyDistribution)} adds rare outliers
+ * such as garbage collection pauses or retries inside the gateway.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * Draws one latency.
+     *
+     * @param random the source of randomness
+     * @return the latency in nanoseconds, never negative
+     */
+    long sampleNanos(RandomGenerator random);
+
+    /**
+     * Returns a distribution that draws from this one, but with the given
+     * probability from the tail distribution instead.
+     *
+     * @param probability the probability of drawing from the tail, between 0 and 1
+     * @param tail        the tail distribution
+     * @return the mixed distribution
+     */
+    default LatencyDistribution withTail(double probability, LatencyDistribution tail) {
+        SimulationChecks.requireProbability(probability, "Tail probability");
+        if (tail == null) {
+            throw new IllegalArgumentException("Tail distribution cannot be null");
+        }
+        return random -> random.nextDouble() < probability ? tail.sampleNanos(random) : sampleNanos(random);
+    }
+
+    static LatencyDistribution fixed(Duration latency) {
+        long nanos = SimulationChecks.requireNonNegative(latency, "Latency");
+        return random -> nanos;
+    }
+
+    /**
+     * Returns latencies spread evenly between two bounds.
+     *
+     * @param min the smallest latency
+     * @param max the largest latency, at least {@code min}
+     * @return the distribution
+     */
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        long minNanos = SimulationChecks.requireNonNegative(min, "Minimum latency");
+        long maxNanos = SimulationChecks.requireNonNegative(max, "Maximum latency");
+        if (maxNanos < minNanos) {
+            throw new IllegalArgumentException("Maximum latency cannot be below the minimum latency");
+        }
+        return random -> minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos + 1);
+    }
+
+    /**
+     * Returns log-normally distributed latencies.
+     *
+     * @param median the median latency, must be positive
+     * @param sigma  the standard deviation of the latency's logarithm; 0.5 gives a p99 of about 3.2 times the median
+     * @return the distribution
+     */
+    static LatencyDistribution logNormal(Duration median, double sigma) {
+        long medianNanos = SimulationChecks.requireNonNegative(median, "Median latency");
+        if (medianNanos == 0) {
+            throw new IllegalArgumentException("Median latency must be positive");
+        }
+        if (!(sigma >= 0) || Double.isInfinite(sigma)) {
+            throw new IllegalArgumentException("Sigma must be a finite, non-negative number");
+        }
+        double mu = Math.log(medianNanos);
+        return random -> {
+            double nanos = Math.exp(mu + sigma * random.nextGaussian());
+            return nanos >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) nanos;
+        };
+    }
+}
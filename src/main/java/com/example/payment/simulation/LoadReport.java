@@ -0,0 +1,90 @@
+package com.example.payment.simulation;
+
+import com.example.payment.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Outcome of one {@link PaymentLoadGenerator} run.
+ * <p>
+ * {@code latency} measures each request from the time it was scheduled to
+ * start, so time spent waiting behind a slow system is included. This is the
+ * latency a customer would see. {@code serviceTime} measures from the time
+ * the request actually started; it hides queueing and is only useful to
+ * compare against {@code latency}. A large gap between the two means the
+ * system could not keep up with the offered rate. Requests deferred by the
+ * in-flight limit are included in both, with their wait in {@code latency}.
+ *
+ * @param scheduled       the number of requests scheduled during the run
+ * @param deferred        the number of requests that waited for the in-flight limit before they were sent
+ * @param succeeded       the number of payments that succeeded
+ * @param declined        the number of payments that were declined
+ * @param failed          the number of payments that failed with an exception
+ * @param elapsed         the time from the first arrival until the last request completed
+ * @param latency         latencies measured from the scheduled start
+ * @param serviceTime     latencies measured from the actual start
+ * @param failuresByType  the number of failures per exception class name
+ */
+public record LoadReport(
+        long scheduled,
+        long deferred,
+        long succeeded,
+        long declined,
+        long failed,
+        Duration elapsed,
+        LatencyHistogram latency,
+        LatencyHistogram serviceTime,
+        Map<String, Long> failuresByType) {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    public LoadReport {
+        failuresByType = Map.copyOf(failuresByType);
+    }
+
+    /**
+     * Returns the completed requests per second.
+     *
+     * @return the throughput, or 0 if no time elapsed
+     */
+    public double throughput() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : (succeeded + declined + failed) * 1e9 / nanos;
+    }
+
+    /**
+     * Returns a multi-line, human-readable summary of the run.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("scheduled=%d deferred=%d succeeded=%d declined=%d failed=%d%n",
+                scheduled, deferred, succeeded, declined, failed));
+        summary.append(String.format("elapsed=%d ms throughput=%.1f/s%n", elapsed.toMillis(), throughput()));
+        appendPercentiles(summary, "latency", latency);
+        appendPercentiles(summary, "service time", serviceTime);
+        if (!failuresByType.isEmpty()) {
+            summary.append("failures=").append(failuresByType).append(System.lineSeparator());
+        }
+        return summary.toString();
+    }
+
+    private static void appendPercentiles(StringBuilder summary, String name, LatencyHistogram histogram) {
+        summary.append(name).append(':');
+        if (histogram.getCount() == 0) {
+            summary.append(" no samples").append(System.lineSeparator());
+            return;
+        }
+        for (double percentile : PERCENTILES) {
+            summary.append(String.format(" p%s=%.2f ms", format(percentile),
+                    histogram.getPercentile(percentile).toNanos() / 1e6));
+        }
+        summary.append(String.format(" max=%.2f ms%n", histogram.getMax().toNanos() / 1e6));
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
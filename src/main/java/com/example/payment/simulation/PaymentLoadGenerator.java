@@ -0,0 +1,223 @@
+package com.example.payment.simulation;
+
+import com.example.money.Money;
+import com.example.payment.LatencyHistogram;
+import com.example.payment.PaymentRequest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load generator for payment processing.
+ * <p>
+ * Requests are scheduled at a fixed offered rate, independent of how fast
+ * earlier requests complete, and each one runs on its own virtual thread. A
+ * closed loop that waits for each response before sending the next request
+ * slows down together with the system under test and so never sees the
+ * queueing a real burst of customers would cause (coordinated omission). Here
+ * every latency is measured from the request's scheduled start instead; when
+ * the generator or the system falls behind, the backlog shows up in the
+ * reported latency. The latency from the actual start is reported as well.
+ * <p>
+ * At most {@code maxInFlight} requests run at the same time, which keeps an
+ * overloaded run from piling up unbounded threads. A request scheduled while
+ * the limit is reached is deferred until a slot frees up, and its latency is
+ * still measured from its scheduled start, so the wait counts against the
+ * system instead of disappearing from the percentiles. Deferred requests are
+ * counted in {@link LoadReport#deferred()}.
+ */
+public final class PaymentLoadGenerator {
+
+    private final PaymentOperation operation;
+    private final double meanGapNanos;
+    private final ArrivalProcess arrivals;
+    private final int maxInFlight;
+    private final Supplier<PaymentRequest> requests;
+    private final long seed;
+
+    private PaymentLoadGenerator(Builder builder) {
+        this.operation = builder.operation;
+        this.meanGapNanos = 1e9 / builder.ratePerSecond;
+        this.arrivals = builder.arrivals;
+        this.maxInFlight = builder.maxInFlight;
+        this.requests = builder.requests;
+        this.seed = builder.seed;
+    }
+
+    /**
+     * Returns a builder for a generator driving the given operation.
+     *
+     * @param operation the operation to measure, see {@link PaymentOperation#forProcessor}
+     * @return the builder
+     */
+    public static Builder builder(PaymentOperation operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("Payment operation cannot be null");
+        }
+        return new Builder(operation);
+    }
+
+    /**
+     * Offers load for the given duration and waits until all sent requests have completed.
+     *
+     * @param duration how long requests are scheduled, must be positive
+     * @return the report of the run
+     * @throws IllegalStateException if the calling thread is interrupted
+     */
+    public LoadReport run(Duration duration) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        Run run = new Run();
+        SplittableRandom random = new SplittableRandom(seed);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long scheduled = 0;
+        long deferred = 0;
+        try {
+            for (long intended = start; intended - end < 0;
+                 intended += arrivals.nextGapNanos(meanGapNanos, random)) {
+                sleepUntil(intended);
+                scheduled++;
+                if (!run.inFlight.tryAcquire()) {
+                    // Later arrivals fall behind schedule too and start late, measured from their intended start
+                    deferred++;
+                    run.inFlight.acquire();
+                }
+                PaymentRequest request = requests.get();
+                long intendedStart = intended;
+                Thread.ofVirtual().start(() -> run.execute(request, intendedStart));
+            }
+            run.inFlight.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Load run interrupted", e);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        Map<String, Long> failuresByType = new TreeMap<>();
+        run.failuresByType.forEach((type, count) -> failuresByType.put(type, count.sum()));
+        return new LoadReport(scheduled, deferred, run.succeeded.sum(), run.declined.sum(), run.failed.sum(),
+                elapsed, run.latency, run.serviceTime, failuresByType);
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) {
+            Thread.sleep(Duration.ofNanos(remaining));
+        }
+    }
+
+    // State of one run, shared with the request threads
+    private final class Run {
+
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder declined = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final Map<String, LongAdder> failuresByType = new ConcurrentHashMap<>();
+
+        void execute(PaymentRequest request, long intendedStart) {
+            long actualStart = System.nanoTime();
+            try {
+                if (operation.process(request)) {
+                    succeeded.increment();
+                } else {
+                    declined.increment();
+                }
+            } catch (RuntimeException e) {
+                failed.increment();
+                failuresByType.computeIfAbsent(e.getClass().getSimpleName(), type -> new LongAdder()).increment();
+            } finally {
+                long completed = System.nanoTime();
+                latency.record(completed - intendedStart);
+                serviceTime.record(completed - actualStart);
+                inFlight.release();
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link PaymentLoadGenerator}s. By default 100 requests per
+     * second of 100.00 SEK arrive as a Poisson process, with at most 1000 in flight.
+     */
+    public static final class Builder {
+
+        private final PaymentOperation operation;
+        private double ratePerSecond = 100;
+        private ArrivalProcess arrivals = ArrivalProcess.POISSON;
+        private int maxInFlight = 1000;
+        private Supplier<PaymentRequest> requests = () -> new PaymentRequest(Money.of(100), "load-test@example.com");
+        private long seed = System.nanoTime();
+
+        private Builder(PaymentOperation operation) {
+            this.operation = operation;
+        }
+
+        /**
+         * Sets the offered load.
+         *
+         * @param ratePerSecond the mean number of requests scheduled per second, must be positive
+         * @return this builder
+         */
+        public Builder ratePerSecond(double ratePerSecond) {
+            if (!(ratePerSecond > 0) || Double.isInfinite(ratePerSecond)) {
+                throw new IllegalArgumentException("Rate must be a positive, finite number");
+            }
+            this.ratePerSecond = ratePerSecond;
+            return this;
+        }
+
+        public Builder arrivals(ArrivalProcess arrivals) {
+            if (arrivals == null) {
+                throw new IllegalArgumentException("Arrival process cannot be null");
+            }
+            this.arrivals = arrivals;
+            return this;
+        }
+
+        /**
+         * Sets how many requests may run at the same time before new ones are deferred.
+         *
+         * @param maxInFlight the in-flight limit, must be positive
+         * @return this builder
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new IllegalArgumentException("Max in-flight requests must be positive");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Sets the source of the payments to send. It is only called from the thread running the load.
+         *
+         * @param requests supplies one payment per request
+         * @return this builder
+         */
+        public Builder requests(Supplier<PaymentRequest> requests) {
+            if (requests == null) {
+                throw new IllegalArgumentException("Request supplier cannot be null");
+            }
+            this.requests = requests;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public PaymentLoadGenerator build() {
+            return new PaymentLoadGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.payment.simulation;
+
+import com.example.payment.PaymentProcessor;
+import com.example.payment.PaymentRequest;
+
+/**
+ * The operation a {@link PaymentLoadGenerator} measures.
+ */
+@FunctionalInterface
+public interface PaymentOperation {
+
+    /**
+     * Processes one payment.
+     *
+     * @param request the payment to process
+     * @return true if the payment succeeded, false if it was declined
+     * @throws RuntimeException if processing failed
+     */
+    boolean process(PaymentRequest request);
+
+    /**
+     * Returns an operation that processes payments with the given processor.
+     *
+     * @param processor the processor under load
+     * @return the operation
+     */
+    static PaymentOperation forProcessor(PaymentProcessor processor) {
+        if (processor == null) {
+            throw new IllegalArgumentException("Payment processor cannot be null");
+        }
+        return request -> processor.processPayment(request.amount(), request.email());
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.payment.simulation;
+
+import com.example.RateLimit;
+import com.example.TokenBucket;
+import com.example.money.Money;
+import com.example.payment.PaymentApiResponse;
+import com.example.payment.PaymentService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for a payment gateway, for load tests and capacity planning.
+ * <p>
+ * Every charge first passes an optional rate limit, then waits for a latency
+ * drawn from the configured {@link LatencyDistribution} and finally either
+ * succeeds, is declined, or fails with an exception. With the configured
+ * timeout rate a call instead hangs for the hang duration and then fails, the
+ * way a gateway behaves during a brownout. Calls exceeding the rate limit fail
+ * at once, like an HTTP 429 answer.
+ * <p>
+ * A batch is one call: it waits for one latency plus a per-item latency, and
+ * each item is then declined or failed on its own; failed items are reported
+ * as failed responses.
+ * <p>
+ * Waiting is done with {@link Thread#sleep(Duration)}, so thousands of
+ * concurrent calls on virtual threads are cheap. An interrupted call fails.
+ * Call {@code i} draws its randomness from a generator seeded with the seed
+ * and {@code i}, so runs with the same seed and call order are repeatable.
+ */
+public final class SimulatedPaymentService implements PaymentService {
+
+    private final LatencyDistribution latency;
+    private final long batchItemLatencyNanos;
+    private final double declineRate;
+    private final double errorRate;
+    private final double timeoutRate;
+    private final Duration hangDuration;
+    private final TokenBucket rateLimiter;
+    private final long seed;
+    private final AtomicLong calls = new AtomicLong();
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    private SimulatedPaymentService(Builder builder) {
+        this.latency = builder.latency;
+        this.batchItemLatencyNanos = builder.batchItemLatency.toNanos();
+        this.declineRate = builder.declineRate;
+        this.errorRate = builder.errorRate;
+        this.timeoutRate = builder.timeoutRate;
+        this.hangDuration = builder.hangDuration;
+        this.rateLimiter = builder.rateLimit == null
+                ? null
+                : new TokenBucket(builder.rateLimit.burst(), builder.rateLimit.permitsPerSecond());
+        this.seed = builder.seed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public PaymentApiResponse charge(double amount) {
+        return charge(Money.of(amount));
+    }
+
+    @Override
+    public PaymentApiResponse charge(Money amount) {
+        SplittableRandom random = startCall(0);
+        return respond(random);
+    }
+
+    @Override
+    public List<PaymentApiResponse> chargeBatch(List<Money> amounts) {
+        SplittableRandom random = startCall(amounts.size());
+        List<PaymentApiResponse> responses = new ArrayList<>(amounts.size());
+        for (int i = 0; i < amounts.size(); i++) {
+            try {
+                responses.add(respond(random));
+            } catch (RuntimeException e) {
+                responses.add(new PaymentApiResponse(false, "Charge failed: " + e.getMessage()));
+            }
+        }
+        return responses;
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    public long getDeclinedCount() {
+        return declined.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    // Applies the rate limit and the call's latency, or its hang
+    private SplittableRandom startCall(int batchItems) {
+        SplittableRandom random = new SplittableRandom(seed + calls.getAndIncrement() * 0x9E37_79B9_7F4A_7C15L);
+        if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+            rateLimited.increment();
+            throw new IllegalStateException("Simulated gateway rate limit exceeded");
+        }
+        if (random.nextDouble() < timeoutRate) {
+            timeouts.increment();
+            sleep(hangDuration.toNanos());
+            throw new IllegalStateException("Simulated gateway timed out");
+        }
+        sleep(Math.max(0, latency.sampleNanos(random)) + batchItems * batchItemLatencyNanos);
+        return random;
+    }
+
+    private PaymentApiResponse respond(SplittableRandom random) {
+        double outcome = random.nextDouble();
+        if (outcome < errorRate) {
+            errors.increment();
+            throw new IllegalStateException("Simulated gateway error");
+        }
+        if (outcome < errorRate + declineRate) {
+            declined.increment();
+            return new PaymentApiResponse(false, "DECLINED");
+        }
+        return new PaymentApiResponse(true, "SUCCESS");
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulated charge interrupted", e);
+        }
+    }
+
+    /**
+     * Builder for {@link SimulatedPaymentService}s. By default calls take a
+     * log-normal 50 ms median latency and always succeed.
+     */
+    public static final class Builder {
+
+        private LatencyDistribution latency = LatencyDistribution.logNormal(Duration.ofMillis(50), 0.5);
+        private Duration batchItemLatency = Duration.ZERO;
+        private double declineRate;
+        private double errorRate;
+        private double timeoutRate;
+        private Duration hangDuration = Duration.ofSeconds(30);
+        private RateLimit rateLimit;
+        private long seed = System.nanoTime();
+
+        private Builder() {
+        }
+
+        public Builder latency(LatencyDistribution latency) {
+            if (latency == null) {
+                throw new IllegalArgumentException("Latency distribution cannot be null");
+            }
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Sets the extra latency of a batch call per charged item. Defaults to zero.
+         *
+         * @param batchItemLatency the latency per item
+         * @return this builder
+         */
+        public Builder batchItemLatency(Duration batchItemLatency) {
+            SimulationChecks.requireNonNegative(batchItemLatency, "Batch item latency");
+            this.batchItemLatency = batchItemLatency;
+            return this;
+        }
+
+        /**
+         * Sets the share of charges the gateway declines.
+         *
+         * @param declineRate the decline rate, between 0 and 1
+         * @return this builder
+         */
+        public Builder declineRate(double declineRate) {
+            this.declineRate = SimulationChecks.requireProbability(declineRate, "Decline rate");
+            return this;
+        }
+
+        /**
+         * Sets the share of charges that fail with an exception after their latency.
+         *
+         * @param errorRate the error rate, between 0 and 1
+         * @return this builder
+         */
+        public Builder errorRate(double errorRate) {
+            this.errorRate = SimulationChecks.requireProbability(errorRate, "Error rate");
+            return this;
+        }
+
+        /**
+         * Sets the share of calls that hang and then fail.
+         *
+         * @param timeoutRate  the timeout rate, between 0 and 1
+         * @param hangDuration how long a hanging call blocks before it fails
+         * @return this builder
+         */
+        public Builder timeouts(double timeoutRate, Duration hangDuration) {
+            this.timeoutRate = SimulationChecks.requireProbability(timeoutRate, "Timeout rate");
+            SimulationChecks.requireNonNegative(hangDuration, "Hang duration");
+            this.hangDuration = hangDuration;
+            return this;
+        }
+
+        /**
+         * Limits the call rate; calls above the limit fail at once. Unlimited by default.
+         *
+         * @param rateLimit the burst size and sustained calls per second
+         * @return this builder
+         */
+        public Builder rateLimit(RateLimit rateLimit) {
+            this.rateLimit = rateLimit;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Builds the simulated gateway.
+         *
+         * @return the gateway
+         * @throws IllegalArgumentException if the decline and error rates add up to more than 1
+         */
+        public SimulatedPaymentService build() {
+            if (declineRate + errorRate > 1) {
+                throw new IllegalArgumentException("Decline and error rates cannot add up to more than 1");
+            }
+            return new SimulatedPaymentService(this);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.payment.simulation;
+
+import java.time.Duration;
+
+/**
+ * Argument checks shared by the simulation classes.
+ */
+final class SimulationChecks {
+
+    private SimulationChecks() {
+    }
+
+    static double requireProbability(double probability, String name) {
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1");
+        }
+        return probability;
+    }
+
+    static long requireNonNegative(Duration duration, String name) {
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException(name + " cannot be null or negative");
+        }
+        return duration.toNanos();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.shop;
+
+/**
+ * Shopping cart operations that can be instrumented through
+ * {@link CartOperationCounters} and the {@code com.example.shop.CartOperation}
+ * flight recorder event.
+ */
+public enum CartOperation {
+    ADD_ITEM,
+    REMOVE_ITEM,
+    UPDATE_QUANTITY,
+    GET_TOTAL_PRICE,
+    APPLY_DISCOUNT
+}
@@ -0,0 +1,81 @@
+package com.example.shop;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated counts, durations and cart sizes of {@link ShoppingCart} operations.
+ * <p>
+ * One instance is meant to be shared by many carts through
+ * {@link ShoppingCart#setOperationCounters(CartOperationCounters)}. Updates
+ * go to striped {@link LongAdder}s, so recording from many threads does not
+ * contend. Cart sizes are bucketed by powers of two: bucket 0 counts
+ * operations on empty carts and bucket {@code i > 0} counts operations on
+ * carts with {@code 2^(i-1)} to {@code 2^i - 1} lines.
+ */
+public final class CartOperationCounters {
+
+    private static final int SIZE_BUCKETS = 32;
+
+    private final LongAdder[] counts = newAdders(CartOperation.values().length);
+    private final LongAdder[] nanos = newAdders(CartOperation.values().length);
+    private final LongAdder[] sizeBuckets = newAdders(SIZE_BUCKETS);
+    private final LongAccumulator maxItemCount = new LongAccumulator(Math::max, 0);
+
+    void record(CartOperation operation, int itemCount, long elapsedNanos) {
+        counts[operation.ordinal()].increment();
+        nanos[operation.ordinal()].add(elapsedNanos);
+        sizeBuckets[SIZE_BUCKETS - Integer.numberOfLeadingZeros(itemCount)].increment();
+        maxItemCount.accumulate(itemCount);
+    }
+
+    public long getCount(CartOperation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+
+    public Duration getTotalTime(CartOperation operation) {
+        return Duration.ofNanos(nanos[operation.ordinal()].sum());
+    }
+
+    /**
+     * Returns the mean duration of an operation.
+     *
+     * @param operation the operation
+     * @return the mean duration, or zero if the operation was never recorded
+     */
+    public Duration getMeanTime(CartOperation operation) {
+        long count = getCount(operation);
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(nanos[operation.ordinal()].sum() / count);
+    }
+
+    /**
+     * Returns the largest number of lines seen in any instrumented cart.
+     *
+     * @return the maximum line count
+     */
+    public int getMaxItemCount() {
+        return maxItemCount.intValue();
+    }
+
+    /**
+     * Returns the number of operations per cart size bucket.
+     *
+     * @return a new array of 32 bucket counts, see the class description
+     */
+    public long[] getItemCountDistribution() {
+        long[] distribution = new long[SIZE_BUCKETS];
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            distribution[i] = sizeBuckets[i].sum();
+        }
+        return distribution;
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.shop;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted for every instrumented {@link ShoppingCart} operation.
+ * <p>
+ * The event is disabled by default, also in the JDK's default and profile
+ * recording settings; enable it with for example
+ * {@code -XX:StartFlightRecording:com.example.shop.CartOperation#enabled=true}.
+ * While it is disabled, begin, end and commit do nothing and the short-lived
+ * event object is usually removed by the JIT.
+ * <p>
+ * The event is begun before the operation and ended after it, so its own
+ * duration is the operation's duration.
+ */
+@Name("com.example.shop.CartOperation")
+@Label("Cart Operation")
+@Category({"Example", "Shop"})
+@Description("A shopping cart mutation or total calculation")
+@Enabled(false)
+@StackTrace(false)
+final class CartOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Line Count")
+    @Description("Number of distinct products in the cart after the operation")
+    int itemCount;
+
+    @Label("Total Items")
+    @Description("Total quantity of all products in the cart after the operation")
+    int totalItems;
+
+    static CartOperationEvent started() {
+        CartOperationEvent event = new CartOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    void complete(CartOperation operation, int itemCount, int totalItems) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation.name();
+            this.itemCount = itemCount;
+            this.totalItems = totalItems;
+            commit();
+        }
+    }
+}
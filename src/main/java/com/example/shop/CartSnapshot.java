@@ -0,0 +1,104 @@
+package com.example.shop;
+
+import com.example.money.Money;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Immutable view of a {@link ShoppingCart} at one version.
+ * <p>
+ * Taking a snapshot is O(1): the lines are shared with the cart, which copies
+ * the parts of its table it changes afterwards. Totals are captured at
+ * snapshot time, so a snapshot prices exactly the lines it contains even if
+ * the cart's discount or promotions change later.
+ * <p>
+ * Use {@link ShoppingCart#isModifiedSince(CartSnapshot)} to detect whether the
+ * cart changed after the snapshot was taken. Snapshots are thread-safe.
+ */
+public final class CartSnapshot {
+
+    private final ShoppingCart source;
+    private final ProductQuantityMap items;
+    private final long version;
+    private final int totalItems;
+    private final Money promotionSavings;
+    private final Money total;
+
+    CartSnapshot(ShoppingCart source, ProductQuantityMap items, long version, int totalItems,
+                 Money promotionSavings, Money total) {
+        this.source = source;
+        this.items = items;
+        this.version = version;
+        this.totalItems = totalItems;
+        this.promotionSavings = promotionSavings;
+        this.total = total;
+    }
+
+    /**
+     * Returns the cart version this snapshot was taken at.
+     *
+     * @return the cart version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public int getTotalItems() {
+        return totalItems;
+    }
+
+    public int getQuantity(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        return items.get(product);
+    }
+
+    /**
+     * Calls the action for every line of the snapshot.
+     *
+     * @param action receives each product and its quantity
+     */
+    public void forEachLine(ObjIntConsumer<Product> action) {
+        items.forEach(action);
+    }
+
+    /**
+     * Returns the lines of the snapshot as a map. Builds a new map on every call.
+     *
+     * @return an unmodifiable map from product to quantity
+     */
+    public Map<Product, Integer> getItems() {
+        Map<Product, Integer> lines = new HashMap<>(items.size() * 2);
+        items.forEach(lines::put);
+        return Collections.unmodifiableMap(lines);
+    }
+
+    /**
+     * Returns the exact total of the snapshot, including promotions and discount.
+     *
+     * @return the potentially discounted total
+     */
+    public Money getTotal() {
+        return total;
+    }
+
+    public double getTotalPrice() {
+        return total.toDouble();
+    }
+
+    public Money getPromotionSavings() {
+        return promotionSavings;
+    }
+
+    ShoppingCart getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.shop;
+
+import com.example.money.Money;
+
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe shopping cart for carts shared between several sessions.
+ * <p>
+ * Offers the same operations as {@link ShoppingCart}. Quantities are updated
+ * atomically per product in a {@link ConcurrentHashMap}, and the running totals
+ * are striped {@link LongAdder}s, so concurrent mutations of different lines
+ * do not block each other.
+ * <p>
+ * Each mutation adds exactly the change it made to a product line to the
+ * totals. Mutations share the read side of a {@link StampedLock}, so they still
+ * run concurrently, while {@link #getTotal()}, {@link #getTotalItems()} and
+ * {@link #snapshot()} briefly take its write side: they wait for the mutations
+ * in flight and see the lines, totals and discount between two mutations,
+ * never part of one.
+ * <p>
+ * The cart's currency is fixed at construction time.
+ */
+public class ConcurrentShoppingCart {
+
+    private final ConcurrentHashMap<Product, Integer> items = new ConcurrentHashMap<>();
+    private final LongAdder totalItems = new LongAdder();
+    private final LongAdder subtotalMinorUnits = new LongAdder();
+    private final Currency currency;
+    // Inverted roles: mutations share the read lock, consistent reads take the write lock
+    private final StampedLock lock = new StampedLock();
+    private volatile long discountPpm = 0;
+
+    /**
+     * Creates an empty cart in {@link Money#DEFAULT_CURRENCY}.
+     */
+    public ConcurrentShoppingCart() {
+        this(Money.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Creates an empty cart in the given currency.
+     *
+     * @param currency the currency of all products in the cart
+     */
+    public ConcurrentShoppingCart(Currency currency) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency cannot be null");
+        }
+        this.currency = currency;
+    }
+
+    /**
+     * Atomically adds one unit of the given product to the cart.
+     *
+     * @param product the product to add
+     * @throws IllegalArgumentException if the product is null or priced in another currency
+     * @throws ArithmeticException      if the line quantity would overflow; the cart is left unchanged
+     */
+    public void addItem(Product product) {
+        requireProduct(product);
+        requireCartCurrency(product);
+        long stamp = lock.readLock();
+        try {
+            items.merge(product, 1, Math::addExact);
+            totalItems.increment();
+            subtotalMinorUnits.add(product.unitPrice().minorUnits());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Atomically removes one unit of the given product from the cart.
+     *
+     * @param product the product to remove
+     * @return true if the product was present and removed, false otherwise
+     * @throws IllegalArgumentException if the product is null
+     */
+    public boolean removeItem(Product product) {
+        requireProduct(product);
+        boolean[] removed = new boolean[1];
+        long stamp = lock.readLock();
+        try {
+            items.computeIfPresent(product, (key, quantity) -> {
+                removed[0] = true;
+                return quantity > 1 ? quantity - 1 : null;
+            });
+            if (removed[0]) {
+                totalItems.decrement();
+                subtotalMinorUnits.add(-product.unitPrice().minorUnits());
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return removed[0];
+    }
+
+    /**
+     * Atomically sets a new quantity for a product.
+     * <p>
+     * A quantity of zero removes the product from the cart.
+     *
+     * @param product  the product to update
+     * @param quantity the new quantity (must be >= 0)
+     * @throws IllegalArgumentException if the product is null, quantity is negative,
+     *                                  or the product is priced in another currency
+     * @throws ArithmeticException      if the line total would overflow; the cart is left unchanged
+     */
+    public void updateQuantity(Product product, int quantity) {
+        requireProduct(product);
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative");
+        }
+        if (quantity > 0) {
+            requireCartCurrency(product);
+        }
+        long unitPrice = product.unitPrice().minorUnits();
+        // Checked before the put; the delta is never larger than the new or an earlier checked quantity
+        Math.multiplyExact(unitPrice, (long) quantity);
+        long stamp = lock.readLock();
+        try {
+            Integer previous = quantity == 0 ? items.remove(product) : items.put(product, quantity);
+            int delta = quantity - (previous == null ? 0 : previous);
+            totalItems.add(delta);
+            subtotalMinorUnits.add(unitPrice * delta);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Removes all products and the discount. Lines added concurrently may
+     * survive; the totals stay in step with the lines that remain.
+     */
+    public void clear() {
+        long stamp = lock.readLock();
+        try {
+            // Line by line, so a concurrent mutation is never reset away from the totals
+            for (Product product : items.keySet()) {
+                Integer quantity = items.remove(product);
+                if (quantity != null) {
+                    totalItems.add(-quantity);
+                    subtotalMinorUnits.add(-product.unitPrice().minorUnits() * quantity);
+                }
+            }
+            discountPpm = 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public int getTotalItems() {
+        long stamp = lock.writeLock();
+        try {
+            return totalItems.intValue();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int getQuantity(Product product) {
+        requireProduct(product);
+        return items.getOrDefault(product, 0);
+    }
+
+    /**
+     * Returns the total price of all products in the cart,
+     * including any applied discount.
+     *
+     * @return potentially discounted total price
+     */
+    public double getTotalPrice() {
+        return getTotal().toDouble();
+    }
+
+    /**
+     * Returns the exact total of all products in the cart,
+     * including any applied discount rounded to the nearest minor unit.
+     *
+     * @return potentially discounted total
+     */
+    public Money getTotal() {
+        long stamp = lock.writeLock();
+        try {
+            return total();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the lines and totals of the cart as of one moment between mutations.
+     *
+     * @return a consistent copy of the cart's lines and totals
+     */
+    public Snapshot snapshot() {
+        long stamp = lock.writeLock();
+        try {
+            return new Snapshot(Collections.unmodifiableMap(new HashMap<>(items)), totalItems.intValue(), total());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void applyDiscount(double discount) {
+        long ppm = DiscountMath.toPartsPerMillion(discount);
+        long stamp = lock.readLock();
+        try {
+            discountPpm = ppm;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Callers hold the write lock
+    private Money total() {
+        return Money.ofMinor(DiscountMath.apply(subtotalMinorUnits.sum(), discountPpm), currency);
+    }
+
+    private static void requireProduct(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+    }
+
+    private void requireCartCurrency(Product product) {
+        if (!currency.equals(product.unitPrice().currency())) {
+            throw new IllegalArgumentException("Product currency does not match cart currency");
+        }
+    }
+
+    /**
+     * Lines and totals of a {@link ConcurrentShoppingCart} as of one moment.
+     *
+     * @param items      the quantity per product
+     * @param totalItems the number of units in the cart
+     * @param total      the total, including any applied discount
+     */
+    public record Snapshot(Map<Product, Integer> items, int totalItems, Money total) {
+    }
+}
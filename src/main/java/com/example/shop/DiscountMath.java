@@ -0,0 +1,58 @@
+package com.example.shop;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point helpers for percentage discounts shared by the cart implementations.
+ * <p>
+ * Discounts are kept as parts per million so that applying them to a total
+ * in minor units stays in {@code long} arithmetic.
+ */
+final class DiscountMath {
+
+    static final long SCALE = 1_000_000L;
+
+    private DiscountMath() {
+    }
+
+    /**
+     * Validates a discount fraction and converts it to parts per million.
+     *
+     * @param discount the discount as a fraction between 0 and 1
+     * @return the discount in parts per million
+     * @throws IllegalArgumentException if the discount is negative or greater than 100%
+     */
+    static long toPartsPerMillion(double discount) {
+        if (discount > 1) {
+            throw new IllegalArgumentException("Discount cannot be greater than 100%");
+        }
+        if (discount < 0) {
+            throw new IllegalArgumentException("Discount cannot be negative");
+        }
+        return Math.round(discount * SCALE);
+    }
+
+    /**
+     * Applies a discount to an amount, rounding the reduction to the nearest minor unit.
+     *
+     * @param minorUnits              the undiscounted amount in minor units
+     * @param discountPartsPerMillion the discount in parts per million
+     * @return the discounted amount in minor units
+     */
+    static long apply(long minorUnits, long discountPartsPerMillion) {
+        if (discountPartsPerMillion == 0) {
+            return minorUnits;
+        }
+        try {
+            long scaledReduction = Math.multiplyExact(minorUnits, discountPartsPerMillion);
+            return minorUnits - Math.floorDiv(Math.addExact(scaledReduction, SCALE / 2), SCALE);
+        } catch (ArithmeticException e) {
+            // Only reached for totals beyond ~9.2e12 minor units
+            BigDecimal reduction = BigDecimal.valueOf(minorUnits)
+                    .multiply(BigDecimal.valueOf(discountPartsPerMillion))
+                    .divide(BigDecimal.valueOf(SCALE), 0, RoundingMode.HALF_UP);
+            return minorUnits - reduction.longValueExact();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.shop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Evaluates a fixed set of {@link PromotionRule}s against shopping carts.
+ * <p>
+ * The rules are compiled once into an index from each product to the rules
+ * that depend on it. A cart with promotions applied keeps the current reduction
+ * of every rule and, when a line changes, re-evaluates only the rules indexed
+ * under that product, so the cost of a mutation does not grow with the number
+ * of lines in the cart or the number of unrelated rules.
+ * <p>
+ * Reductions of all rules are added up, so rules that cover the same product
+ * stack. The engine is immutable and can be shared by any number of carts.
+ */
+public final class PricingEngine {
+
+    private static final int[] NO_RULES = new int[0];
+
+    private final PromotionRule[] rules;
+    private final Map<Product, int[]> rulesByProduct;
+
+    /**
+     * Compiles the given rules into a pricing engine.
+     *
+     * @param rules the active promotion rules
+     * @throws IllegalArgumentException if the list or any rule is null
+     */
+    public PricingEngine(List<? extends PromotionRule> rules) {
+        if (rules == null) {
+            throw new IllegalArgumentException("Rules cannot be null");
+        }
+        this.rules = rules.toArray(new PromotionRule[0]);
+        Map<Product, List<Integer>> index = new HashMap<>();
+        for (int i = 0; i < this.rules.length; i++) {
+            if (this.rules[i] == null) {
+                throw new IllegalArgumentException("Rule cannot be null");
+            }
+            for (Product product : this.rules[i].products()) {
+                index.computeIfAbsent(product, key -> new ArrayList<>()).add(i);
+            }
+        }
+        Map<Product, int[]> compiled = new HashMap<>(index.size() * 2);
+        index.forEach((product, ruleIndexes) ->
+                compiled.put(product, ruleIndexes.stream().mapToInt(Integer::intValue).toArray()));
+        this.rulesByProduct = compiled;
+    }
+
+    public List<PromotionRule> getRules() {
+        return List.of(rules);
+    }
+
+    /**
+     * Creates the evaluation state for one cart.
+     *
+     * @param quantityOf the cart's quantity lookup, 0 for absent products
+     * @return a new evaluation in which no rule grants a reduction yet
+     */
+    Evaluation newEvaluation(ToIntFunction<Product> quantityOf) {
+        return new Evaluation(quantityOf);
+    }
+
+    /**
+     * Current reductions of every rule for one cart. Not thread-safe.
+     */
+    final class Evaluation {
+
+        private final ToIntFunction<Product> quantityOf;
+        private final long[] reductions = new long[rules.length];
+        private long totalReduction;
+
+        private Evaluation(ToIntFunction<Product> quantityOf) {
+            this.quantityOf = quantityOf;
+        }
+
+        /**
+         * Re-evaluates the rules that depend on a product whose quantity changed.
+         *
+         * @param product the changed product
+         */
+        void lineChanged(Product product) {
+            for (int rule : rulesByProduct.getOrDefault(product, NO_RULES)) {
+                long reduction = rules[rule].reductionMinorUnits(quantityOf);
+                totalReduction = Math.addExact(totalReduction, reduction - reductions[rule]);
+                reductions[rule] = reduction;
+            }
+        }
+
+        /**
+         * Re-evaluates every rule, e.g. after the engine was attached to a non-empty cart.
+         */
+        void reevaluateAll() {
+            totalReduction = 0;
+            for (int rule = 0; rule < rules.length; rule++) {
+                reductions[rule] = rules[rule].reductionMinorUnits(quantityOf);
+                totalReduction = Math.addExact(totalReduction, reductions[rule]);
+            }
+        }
+
+        void reset() {
+            Arrays.fill(reductions, 0);
+            totalReduction = 0;
+        }
+
+        long totalReductionMinorUnits() {
+            return totalReduction;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.shop;
 
+import com.example.money.Money;
+
 /**
  * Immutable value object representing a product.
  * <p>
@@ -8,16 +10,65 @@ package com.example.shop;
  * {@code Product} safe to use as a key in hash-based collections
  * such as {@link java.util.Map}.
  * <p>
- * Validation is performed at construction time to ensure a non-blank name
- * and a non-negative price.
+ * The price is held as a fixed-point {@link Money} amount, converted once at
+ * construction, so cart totals are exact and never convert on the hot path.
+ * {@link #price()} still returns the price as a {@code double} for existing
+ * callers. Validation is performed at construction time to ensure a non-blank
+ * name and a non-negative price.
  */
-public record Product(String name, double price) {
+public record Product(String name, Money unitPrice) {
     public Product {
         if (name == null || name.isBlank()) {
             throw new IllegalArgumentException("Product name cannot be null or blank");
         }
+        if (unitPrice == null) {
+            throw new IllegalArgumentException("Price cannot be null");
+        }
+        if (unitPrice.isNegative()) {
+            throw new IllegalArgumentException("Price cannot be negative");
+        }
+    }
+
+    /**
+     * Creates a product priced in {@link Money#DEFAULT_CURRENCY}.
+     * <p>
+     * The price is checked before it is converted, so a price that would only
+     * pass after rounding, such as {@code -0.001} or {@code 1.001}, is rejected
+     * instead of silently becoming another price.
+     *
+     * @param name  the product name
+     * @param price the price in major units
+     * @throws IllegalArgumentException if the price is not finite, is negative,
+     *                                  or has more decimals than the currency's minor unit
+     */
+    public Product(String name, double price) {
+        this(name, toUnitPrice(price));
+    }
+
+    /**
+     * Returns the price in major units.
+     *
+     * @return the price as a decimal number
+     * @deprecated the {@code double} may not represent the price exactly;
+     *             use {@link #unitPrice()} instead
+     */
+    @Deprecated
+    public double price() {
+        return unitPrice.toDouble();
+    }
+
+    private static Money toUnitPrice(double price) {
+        if (!Double.isFinite(price)) {
+            throw new IllegalArgumentException("Price must be a finite number");
+        }
         if (price < 0) {
             throw new IllegalArgumentException("Price cannot be negative");
         }
+        Money unitPrice = Money.of(price);
+        // Exact for whole minor units: the quotient rounds to the same double the price literal parsed to
+        if (unitPrice.toDouble() != price) {
+            throw new IllegalArgumentException("Price cannot be more precise than the currency's minor unit");
+        }
+        return unitPrice;
     }
 }
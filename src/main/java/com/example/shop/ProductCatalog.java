@@ -0,0 +1,165 @@
+package com.example.shop;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry that interns {@link Product} instances and assigns them dense integer ids.
+ * <p>
+ * Carts created with a catalog store the canonical instance for each product,
+ * so identical products are held once per catalog instead of once per cart.
+ * Such carts resolve a product to its id once per operation and then look up
+ * their line with the hash code the catalog computed once at registration,
+ * matching the canonical instance by identity. Dense ids also give compact
+ * keys for serialization and id-indexed side tables.
+ * <p>
+ * Ids are assigned in registration order starting at 0 and are never reused.
+ * Because ids depend on that order, {@link #fingerprint(int)} identifies the
+ * products behind the first ids, so an id written with one catalog can be
+ * checked before it is resolved with another.
+ * The catalog is thread-safe and intended to be shared by many carts.
+ */
+public final class ProductCatalog {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long FNV_OFFSET_BASIS = 0xCBF2_9CE4_8422_2325L;
+    private static final long FNV_PRIME = 0x0000_0100_0000_01B3L;
+
+    private final ConcurrentHashMap<Product, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Product[] products = new Product[INITIAL_CAPACITY];
+    private volatile int[] hashCodes = new int[INITIAL_CAPACITY];
+    private volatile long[] prefixFingerprints = new long[INITIAL_CAPACITY + 1];
+    private int size;
+
+    /**
+     * Returns the canonical instance for a product, registering it if needed.
+     *
+     * @param product the product to intern
+     * @return the canonical instance equal to {@code product}
+     * @throws IllegalArgumentException if the product is null
+     */
+    public Product intern(Product product) {
+        return products[idOf(product)];
+    }
+
+    /**
+     * Returns the id of a product, registering it if needed.
+     *
+     * @param product the product
+     * @return the product's id
+     * @throws IllegalArgumentException if the product is null
+     */
+    public int idOf(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        Integer id = ids.get(product);
+        return id != null ? id : register(product);
+    }
+
+    /**
+     * Returns the id of a product without registering it.
+     *
+     * @param product the product
+     * @return the product's id, or -1 if it is not registered
+     */
+    public int findId(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        Integer id = ids.get(product);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the canonical product registered under an id.
+     *
+     * @param id the product id
+     * @return the canonical product
+     * @throws IllegalArgumentException if no product has that id
+     */
+    public Product product(int id) {
+        Product[] current = products;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("Unknown product id: " + id);
+        }
+        return current[id];
+    }
+
+    /**
+     * Returns the cached hash code of the product registered under an id.
+     *
+     * @param id the product id
+     * @return the product's hash code
+     * @throws IllegalArgumentException if no product has that id
+     */
+    public int hashCodeOf(int id) {
+        product(id);
+        return hashCodes[id];
+    }
+
+    /**
+     * Returns a fingerprint of the first {@code count} registered products and
+     * their order. It is computed from each product's name, currency and price,
+     * so catalogs built in different processes that agree on the fingerprint
+     * assign the same ids to these products, barring a 64-bit hash collision.
+     *
+     * @param count the number of products from id 0 to include
+     * @return the fingerprint; 0 for a count of 0
+     * @throws IllegalArgumentException if the count is negative or exceeds {@link #size()}
+     */
+    public long fingerprint(int count) {
+        if (count < 0 || count > size()) {
+            throw new IllegalArgumentException("Invalid product count: " + count);
+        }
+        return prefixFingerprints[count];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Arrays are filled before the id is published through the map, so any
+    // thread that obtains an id also sees the product and hash stored for it
+    private synchronized int register(Product product) {
+        Integer existing = ids.get(product);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        if (id == products.length) {
+            int capacity = products.length * 2;
+            hashCodes = Arrays.copyOf(hashCodes, capacity);
+            prefixFingerprints = Arrays.copyOf(prefixFingerprints, capacity + 1);
+            products = Arrays.copyOf(products, capacity);
+        }
+        hashCodes[id] = product.hashCode();
+        prefixFingerprints[id + 1] = mix(prefixFingerprints[id], stableHash(product));
+        products[id] = product;
+        size++;
+        ids.put(product, id);
+        return id;
+    }
+
+    // FNV-1a over the product's components; unlike hashCode() it does not
+    // depend on identity hash codes, so it is the same in every process
+    private static long stableHash(Product product) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, product.name());
+        hash = hash(hash, product.unitPrice().currency().getCurrencyCode());
+        return (hash ^ product.unitPrice().minorUnits()) * FNV_PRIME;
+    }
+
+    private static long hash(long hash, String value) {
+        hash = (hash ^ value.length()) * FNV_PRIME;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long prefix, long productHash) {
+        long h = (prefix ^ productHash) * 0x9E37_79B9_7F4A_7C15L;
+        return h ^ (h >>> 32);
+    }
+}
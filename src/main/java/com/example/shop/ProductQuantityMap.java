@@ -0,0 +1,347 @@
+package com.example.shop;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Open-addressing hash map from {@link Product} to a primitive {@code int} quantity.
+ * <p>
+ * Backs {@link ShoppingCart} without allocating a {@code HashMap.Node} per line
+ * or boxing quantities. Keys, cached key hashes and quantities live in parallel
+ * arrays that are allocated lazily, so an empty cart costs no table.
+ * Collisions are resolved with linear probing and removals use backward-shift
+ * deletion, so no tombstones accumulate. Callers that already know a product's
+ * hash code, such as carts backed by a {@link ProductCatalog}, pass it in so the
+ * record hash is not recomputed; it must equal {@link Product#hashCode()}.
+ * <p>
+ * The table is split into fixed-size pages so that {@link #snapshot()} is O(1):
+ * a snapshot shares all pages with the map, and the map copies a page the first
+ * time it writes to it afterwards. Each page records the generation of the map
+ * that owns it; taking a snapshot starts a new generation, which makes every
+ * existing page shared.
+ * <p>
+ * A quantity of zero means "absent": storing zero removes the key.
+ * Not thread-safe; snapshots are immutable and can be shared between threads.
+ */
+final class ProductQuantityMap {
+
+    private static final int MIN_CAPACITY = 8;
+    private static final int PAGE_SHIFT = 6;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final boolean frozen;
+    private Page[] pages;
+    private boolean pagesShared;
+    private long generation;
+    private int size;
+    private int mask;
+
+    ProductQuantityMap() {
+        this.frozen = false;
+    }
+
+    private ProductQuantityMap(Page[] pages, int size, int mask) {
+        this.frozen = true;
+        this.pages = pages;
+        this.size = size;
+        this.mask = mask;
+    }
+
+    /**
+     * Returns the quantity stored for a product.
+     *
+     * @param product the product to look up
+     * @return the quantity, or 0 if the product is absent
+     */
+    int get(Product product) {
+        return get(product, product.hashCode());
+    }
+
+    int get(Product product, int hashCode) {
+        int slot = find(product, spread(hashCode));
+        return slot < 0 ? 0 : pages[slot >>> PAGE_SHIFT].quantities[slot & PAGE_MASK];
+    }
+
+    /**
+     * Stores a quantity for a product; a quantity of zero removes it.
+     *
+     * @param product  the product
+     * @param quantity the new quantity
+     * @return the previous quantity, or 0 if the product was absent
+     */
+    int put(Product product, int quantity) {
+        return put(product, product.hashCode(), quantity);
+    }
+
+    int put(Product product, int hashCode, int quantity) {
+        if (quantity == 0) {
+            return remove(product, hashCode);
+        }
+        int hash = spread(hashCode);
+        int slot = find(product, hash);
+        if (slot >= 0) {
+            Page page = writablePage(slot);
+            int previous = page.quantities[slot & PAGE_MASK];
+            page.quantities[slot & PAGE_MASK] = quantity;
+            return previous;
+        }
+        insert(product, hash, quantity);
+        return 0;
+    }
+
+    /**
+     * Adds a delta to the quantity of a product, inserting or removing it as needed.
+     *
+     * @param product the product
+     * @param delta   the amount to add; may be negative
+     * @return the previous quantity, or 0 if the product was absent
+     */
+    int addTo(Product product, int delta) {
+        return addTo(product, product.hashCode(), delta);
+    }
+
+    int addTo(Product product, int hashCode, int delta) {
+        int hash = spread(hashCode);
+        int slot = find(product, hash);
+        if (slot < 0) {
+            if (delta != 0) {
+                insert(product, hash, delta);
+            }
+            return 0;
+        }
+        int previous = pages[slot >>> PAGE_SHIFT].quantities[slot & PAGE_MASK];
+        int updated = previous + delta;
+        if (updated == 0) {
+            removeSlot(slot);
+        } else if (delta != 0) {
+            writablePage(slot).quantities[slot & PAGE_MASK] = updated;
+        }
+        return previous;
+    }
+
+    /**
+     * Removes a product.
+     *
+     * @param product the product to remove
+     * @return the removed quantity, or 0 if the product was absent
+     */
+    int remove(Product product) {
+        return remove(product, product.hashCode());
+    }
+
+    private int remove(Product product, int hashCode) {
+        int slot = find(product, spread(hashCode));
+        if (slot < 0) {
+            return 0;
+        }
+        int previous = pages[slot >>> PAGE_SHIFT].quantities[slot & PAGE_MASK];
+        removeSlot(slot);
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        requireWritable();
+        pages = null;
+        pagesShared = false;
+        size = 0;
+        mask = 0;
+    }
+
+    /**
+     * Makes room for the given number of entries without further resizing.
+     *
+     * @param expectedSize the number of entries the map should hold
+     */
+    void ensureCapacity(int expectedSize) {
+        int required = tableSizeFor(expectedSize);
+        if (pages == null || required > mask + 1) {
+            resize(required);
+        }
+    }
+
+    /**
+     * Returns an immutable view of the current contents in O(1).
+     * <p>
+     * The snapshot shares all pages with this map; later writes to this map
+     * copy the pages they touch and never change the snapshot.
+     *
+     * @return an immutable snapshot of this map
+     */
+    ProductQuantityMap snapshot() {
+        if (frozen) {
+            return this;
+        }
+        if (pages != null) {
+            generation++;
+            pagesShared = true;
+        }
+        return new ProductQuantityMap(pages, size, mask);
+    }
+
+    void forEach(ObjIntConsumer<Product> action) {
+        if (pages == null) {
+            return;
+        }
+        for (Page page : pages) {
+            for (int i = 0; i < page.keys.length; i++) {
+                if (page.keys[i] != null) {
+                    action.accept(page.keys[i], page.quantities[i]);
+                }
+            }
+        }
+    }
+
+    private int find(Product product, int hash) {
+        if (pages == null) {
+            return -1;
+        }
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            Page page = pages[slot >>> PAGE_SHIFT];
+            int index = slot & PAGE_MASK;
+            Product key = page.keys[index];
+            if (key == null) {
+                return -1;
+            }
+            if (page.hashes[index] == hash && (key == product || key.equals(product))) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(Product product, int hash, int quantity) {
+        requireWritable();
+        if (pages == null || (size + 1) * 4L > (mask + 1) * 3L) {
+            resize(pages == null ? MIN_CAPACITY : (mask + 1) * 2);
+        }
+        int slot = hash & mask;
+        while (keyAt(slot) != null) {
+            slot = (slot + 1) & mask;
+        }
+        Page page = writablePage(slot);
+        int index = slot & PAGE_MASK;
+        page.keys[index] = product;
+        page.hashes[index] = hash;
+        page.quantities[index] = quantity;
+        size++;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe chain into the
+    // hole so lookups never need tombstones
+    private void removeSlot(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keyAt(next) != null; next = (next + 1) & mask) {
+            Page source = pages[next >>> PAGE_SHIFT];
+            int sourceIndex = next & PAGE_MASK;
+            int ideal = source.hashes[sourceIndex] & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                Page target = writablePage(hole);
+                int targetIndex = hole & PAGE_MASK;
+                target.keys[targetIndex] = source.keys[sourceIndex];
+                target.hashes[targetIndex] = source.hashes[sourceIndex];
+                target.quantities[targetIndex] = source.quantities[sourceIndex];
+                hole = next;
+            }
+        }
+        Page page = writablePage(hole);
+        page.keys[hole & PAGE_MASK] = null;
+        page.quantities[hole & PAGE_MASK] = 0;
+        size--;
+    }
+
+    private Product keyAt(int slot) {
+        return pages[slot >>> PAGE_SHIFT].keys[slot & PAGE_MASK];
+    }
+
+    private Page writablePage(int slot) {
+        requireWritable();
+        if (pagesShared) {
+            pages = pages.clone();
+            pagesShared = false;
+        }
+        int pageIndex = slot >>> PAGE_SHIFT;
+        Page page = pages[pageIndex];
+        if (page.generation != generation) {
+            page = new Page(page, generation);
+            pages[pageIndex] = page;
+        }
+        return page;
+    }
+
+    private void requireWritable() {
+        if (frozen) {
+            throw new IllegalStateException("Snapshot cannot be modified");
+        }
+    }
+
+    private void resize(int capacity) {
+        requireWritable();
+        Page[] oldPages = pages;
+        int pageLength = Math.min(capacity, PAGE_SIZE);
+        Page[] resized = new Page[capacity / pageLength];
+        for (int i = 0; i < resized.length; i++) {
+            resized[i] = new Page(pageLength, generation);
+        }
+        pages = resized;
+        pagesShared = false;
+        mask = capacity - 1;
+        if (oldPages == null) {
+            return;
+        }
+        for (Page old : oldPages) {
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] != null) {
+                    int slot = old.hashes[i] & mask;
+                    while (keyAt(slot) != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    Page page = resized[slot >>> PAGE_SHIFT];
+                    int index = slot & PAGE_MASK;
+                    page.keys[index] = old.keys[i];
+                    page.hashes[index] = old.hashes[i];
+                    page.quantities[index] = old.quantities[i];
+                }
+            }
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long minimum = Math.max(MIN_CAPACITY, (expectedSize * 4L + 2) / 3);
+        return (int) Math.min(1 << 30, Long.highestOneBit(minimum - 1) << 1);
+    }
+
+    // Spreads the record hash so that similar products do not cluster
+    private static int spread(int hashCode) {
+        int h = hashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Page {
+
+        final Product[] keys;
+        final int[] hashes;
+        final int[] quantities;
+        final long generation;
+
+        Page(int length, long generation) {
+            this.keys = new Product[length];
+            this.hashes = new int[length];
+            this.quantities = new int[length];
+            this.generation = generation;
+        }
+
+        Page(Page source, long generation) {
+            this.keys = source.keys.clone();
+            this.hashes = source.hashes.clone();
+            this.quantities = source.quantities.clone();
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.shop;
+
+import com.example.money.Money;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * A promotion that reduces the price of a cart depending on the quantities of a fixed set of products.
+ * <p>
+ * Each rule declares the products it depends on, so a {@link PricingEngine}
+ * only has to re-evaluate it when one of those products changes.
+ * Reductions are expressed in minor units of the products' currency.
+ */
+public sealed interface PromotionRule {
+
+    /**
+     * Returns the products whose quantities this rule depends on.
+     *
+     * @return the products this rule depends on
+     */
+    Set<Product> products();
+
+    /**
+     * Computes the reduction this rule grants for the given quantities.
+     *
+     * @param quantityOf the quantity of each product in the cart, 0 if absent
+     * @return the reduction in minor units, never negative
+     */
+    long reductionMinorUnits(ToIntFunction<Product> quantityOf);
+
+    /**
+     * Percentage discount on every unit of one product.
+     *
+     * @param product  the discounted product
+     * @param discount the discount as a fraction between 0 and 1
+     */
+    record ProductDiscount(Product product, double discount) implements PromotionRule {
+        public ProductDiscount {
+            requireProduct(product);
+            DiscountMath.toPartsPerMillion(discount);
+        }
+
+        @Override
+        public Set<Product> products() {
+            return Set.of(product);
+        }
+
+        @Override
+        public long reductionMinorUnits(ToIntFunction<Product> quantityOf) {
+            return percentageOf(product, quantityOf.applyAsInt(product), DiscountMath.toPartsPerMillion(discount));
+        }
+    }
+
+    /**
+     * Volume discount on one product: the highest tier whose minimum quantity
+     * is reached applies to every unit of the product.
+     *
+     * @param product the discounted product
+     * @param tiers   the tiers, in any order
+     */
+    record TieredDiscount(Product product, List<Tier> tiers) implements PromotionRule {
+        public TieredDiscount {
+            requireProduct(product);
+            if (tiers == null || tiers.isEmpty()) {
+                throw new IllegalArgumentException("Tiers cannot be null or empty");
+            }
+            tiers = tiers.stream().sorted(Comparator.comparingInt(Tier::minQuantity)).toList();
+        }
+
+        @Override
+        public Set<Product> products() {
+            return Set.of(product);
+        }
+
+        @Override
+        public long reductionMinorUnits(ToIntFunction<Product> quantityOf) {
+            int quantity = quantityOf.applyAsInt(product);
+            for (int i = tiers.size() - 1; i >= 0; i--) {
+                Tier tier = tiers.get(i);
+                if (quantity >= tier.minQuantity()) {
+                    return percentageOf(product, quantity, DiscountMath.toPartsPerMillion(tier.discount()));
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * One step of a {@link TieredDiscount}.
+     *
+     * @param minQuantity the quantity from which the tier applies (must be > 0)
+     * @param discount    the discount as a fraction between 0 and 1
+     */
+    record Tier(int minQuantity, double discount) {
+        public Tier {
+            if (minQuantity <= 0) {
+                throw new IllegalArgumentException("Minimum quantity must be positive");
+            }
+            DiscountMath.toPartsPerMillion(discount);
+        }
+    }
+
+    /**
+     * For every {@code buy} paid units of a product, {@code free} further units are free.
+     *
+     * @param product the product
+     * @param buy     the number of units to pay for (must be > 0)
+     * @param free    the number of free units per group (must be > 0)
+     */
+    record BuyXGetY(Product product, int buy, int free) implements PromotionRule {
+        public BuyXGetY {
+            requireProduct(product);
+            if (buy <= 0 || free <= 0) {
+                throw new IllegalArgumentException("Buy and free quantities must be positive");
+            }
+        }
+
+        @Override
+        public Set<Product> products() {
+            return Set.of(product);
+        }
+
+        @Override
+        public long reductionMinorUnits(ToIntFunction<Product> quantityOf) {
+            long groups = quantityOf.applyAsInt(product) / ((long) buy + free);
+            return Math.multiplyExact(groups * free, product.unitPrice().minorUnits());
+        }
+    }
+
+    /**
+     * Fixed price for a set of products bought together: every complete set
+     * of one unit of each product costs {@code bundlePrice}.
+     *
+     * @param products    the products of the bundle (at least two)
+     * @param bundlePrice the price of one complete set
+     */
+    record Bundle(Set<Product> products, Money bundlePrice) implements PromotionRule {
+        public Bundle {
+            if (products == null || products.size() < 2) {
+                throw new IllegalArgumentException("A bundle needs at least two products");
+            }
+            if (bundlePrice == null) {
+                throw new IllegalArgumentException("Bundle price cannot be null");
+            }
+            long regularPrice = 0;
+            for (Product product : products) {
+                requireProduct(product);
+                if (!product.unitPrice().currency().equals(bundlePrice.currency())) {
+                    throw new IllegalArgumentException("Bundle products must be priced in the bundle currency");
+                }
+                regularPrice = Math.addExact(regularPrice, product.unitPrice().minorUnits());
+            }
+            if (bundlePrice.isNegative() || bundlePrice.minorUnits() > regularPrice) {
+                throw new IllegalArgumentException("Bundle price must be between zero and the regular price");
+            }
+            products = Set.copyOf(products);
+        }
+
+        @Override
+        public long reductionMinorUnits(ToIntFunction<Product> quantityOf) {
+            long completeSets = Long.MAX_VALUE;
+            long regularPrice = 0;
+            for (Product product : products) {
+                completeSets = Math.min(completeSets, quantityOf.applyAsInt(product));
+                regularPrice += product.unitPrice().minorUnits();
+            }
+            return Math.multiplyExact(completeSets, regularPrice - bundlePrice.minorUnits());
+        }
+    }
+
+    private static void requireProduct(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+    }
+
+    private static long percentageOf(Product product, int quantity, long discountPartsPerMillion) {
+        long lineTotal = Math.multiplyExact(product.unitPrice().minorUnits(), (long) quantity);
+        return lineTotal - DiscountMath.apply(lineTotal, discountPartsPerMillion);
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.shop;
 
-import java.util.HashMap;
+import com.example.money.Money;
+
+import java.util.Currency;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Represents a shopping cart containing products with quantities.
@@ -11,23 +15,92 @@ import java.util.Map;
  * <p>
  * The cart aggregates quantities per product and applies
  * a single percentage-based discount to the total price.
+ * <p>
+ * Running totals for item count and undiscounted price are maintained on every
+ * mutation, so {@link #getTotalItems()} and {@link #getTotalPrice()} are O(1).
+ * The price total is kept in minor units of the cart's currency, so it is exact;
+ * all products in a cart must share one currency.
+ * <p>
+ * Lines are stored in a {@link ProductQuantityMap}, so mutations neither box
+ * quantities nor allocate per-line map nodes.
+ * <p>
+ * A cart created with a {@link ProductCatalog} stores the catalog's canonical
+ * instance of each product it holds, so carts sharing a catalog share their
+ * product objects. Its lines are looked up by catalog id: the catalog lookup is
+ * the only place the product record is hashed and compared, and the line table
+ * then uses the catalog's cached hash code and an identity check.
+ * <p>
+ * Promotions from a {@link PricingEngine} are re-evaluated incrementally on every
+ * mutation. The total is {@code (subtotal - promotion savings) * (1 - discount)}.
+ * <p>
+ * {@link #snapshot()} freezes the cart in O(1) for checkout; the cart's version
+ * tells whether it was modified after a snapshot was taken.
+ * <p>
+ * Bulk operations ({@link #addAll(Map)}, {@link #merge(ShoppingCart)} and
+ * {@link #applyDeltas(Map)}) validate the whole batch once, size the table
+ * once and update the totals in a single pass.
+ * <p>
+ * Single-line operations, {@link #getTotalPrice()} and {@link #applyDiscount(double)}
+ * can be instrumented through {@link CartOperationCounters} and the
+ * {@code com.example.shop.CartOperation} flight recorder event; both are off by default.
  */
 public class ShoppingCart {
 
-    private final Map<Product, Integer> items = new HashMap<>();
-    private double discount = 0.0;
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final ProductQuantityMap items = new ProductQuantityMap();
+    private long discountPpm = 0;
+    private int totalItems = 0;
+    private long subtotalMinorUnits = 0;
+    private Currency currency;
+    private final ProductCatalog catalog;
+    private PricingEngine.Evaluation promotions;
+    private long version;
+    private CartOperationCounters operationCounters;
+
+    /**
+     * Creates an empty cart that stores products as given.
+     */
+    public ShoppingCart() {
+        this.catalog = null;
+    }
+
+    /**
+     * Creates an empty cart that interns its products in the given catalog.
+     *
+     * @param catalog the catalog supplying canonical product instances
+     */
+    public ShoppingCart(ProductCatalog catalog) {
+        if (catalog == null) {
+            throw new IllegalArgumentException("Catalog cannot be null");
+        }
+        this.catalog = catalog;
+    }
 
     /**
      * Adds one unit of the given product to the cart.
      *
      * @param product the product to add
-     * @throws IllegalArgumentException if the product is null
+     * @throws IllegalArgumentException if the product is null or priced in another currency
+     * @throws ArithmeticException      if the item count or total would overflow; the cart is left unchanged
      */
     public void addItem(Product product) {
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null");
         }
-        items.put(product, items.getOrDefault(product, 0) + 1);
+        CartOperationEvent event = CartOperationEvent.started();
+        long start = operationStart();
+        requireCartCurrency(product);
+        // No line holds more than totalItems, so a checked totalItems also bounds the line
+        int newTotalItems = Math.addExact(totalItems, 1);
+        long newSubtotal = Math.addExact(subtotalMinorUnits, product.unitPrice().minorUnits());
+        addToLine(product, 1);
+        currency = product.unitPrice().currency();
+        totalItems = newTotalItems;
+        subtotalMinorUnits = newSubtotal;
+        promotionsChanged(product);
+        version++;
+        operationEnd(CartOperation.ADD_ITEM, start, event);
     }
 
     /**
@@ -41,16 +114,19 @@ public class ShoppingCart {
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null");
         }
-        if (!items.containsKey(product)) {
-            return false;
+        CartOperationEvent event = CartOperationEvent.started();
+        long start = operationStart();
+        boolean removed = quantityOf(product) != 0;
+        if (removed) {
+            addToLine(product, -1);
+            totalItems--;
+            subtotalMinorUnits -= product.unitPrice().minorUnits();
+            promotionsChanged(product);
+            releaseCurrencyIfEmpty();
+            version++;
         }
-        int currentQuantity = items.get(product);
-        if (currentQuantity > 1) {
-            items.put(product, currentQuantity - 1);
-        } else {
-            items.remove(product);
-        }
-        return true;
+        operationEnd(CartOperation.REMOVE_ITEM, start, event);
+        return removed;
     }
 
     /**
@@ -60,7 +136,9 @@ public class ShoppingCart {
      *
      * @param product  the product to update
      * @param quantity the new quantity (must be >= 0)
-     * @throws IllegalArgumentException if the product is null or quantity is negative
+     * @throws IllegalArgumentException if the product is null, quantity is negative,
+     *                                  or the product is priced in another currency
+     * @throws ArithmeticException      if the item count or total would overflow; the cart is left unchanged
      */
     public void updateQuantity(Product product, int quantity) {
         if (product == null) {
@@ -69,16 +147,95 @@ public class ShoppingCart {
         if (quantity < 0) {
             throw new IllegalArgumentException("Quantity cannot be negative");
         }
-        if (quantity == 0) {
-            items.remove(product);
-        } else {
-            items.put(product, quantity);
+        CartOperationEvent event = CartOperationEvent.started();
+        long start = operationStart();
+        if (quantity > 0) {
+            requireCartCurrency(product);
+        }
+        long delta = quantity - (long) quantityOf(product);
+        int newTotalItems = Math.toIntExact(totalItems + delta);
+        long newSubtotal = Math.addExact(subtotalMinorUnits,
+                Math.multiplyExact(product.unitPrice().minorUnits(), delta));
+        putLine(product, quantity);
+        if (quantity > 0) {
+            currency = product.unitPrice().currency();
+        }
+        totalItems = newTotalItems;
+        subtotalMinorUnits = newSubtotal;
+        promotionsChanged(product);
+        releaseCurrencyIfEmpty();
+        if (delta != 0) {
+            version++;
+        }
+        operationEnd(CartOperation.UPDATE_QUANTITY, start, event);
+    }
+
+    /**
+     * Adds the given quantities to the cart in one pass.
+     * <p>
+     * The whole batch is validated before the cart is changed, so either all
+     * lines are added or none are. The table is sized once for the new lines.
+     *
+     * @param quantities the quantity to add per product (each must be > 0)
+     * @throws IllegalArgumentException if the map, a product or a quantity is null,
+     *                                  a quantity is not positive, or a product is
+     *                                  priced in another currency
+     */
+    public void addAll(Map<Product, Integer> quantities) {
+        if (quantities == null) {
+            throw new IllegalArgumentException("Quantities cannot be null");
         }
+        applyBatch(quantities.size(), action -> quantities.forEach((product, quantity) ->
+                action.accept(product, requireQuantity(quantity))), false);
+    }
+
+    /**
+     * Adds all lines of another cart to this cart, e.g. when a guest cart is
+     * restored into a logged-in cart. The other cart's discount and promotions
+     * are not merged, and the other cart is left unchanged.
+     *
+     * @param other the cart whose lines to add
+     * @throws IllegalArgumentException if the other cart is null or in another currency
+     */
+    public void merge(ShoppingCart other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Cart cannot be null");
+        }
+        ProductQuantityMap lines = other == this ? items.snapshot() : other.items;
+        applyBatch(lines.size(), lines::forEach, false);
+    }
+
+    /**
+     * Applies signed quantity changes to the cart in one pass.
+     * <p>
+     * Positive deltas add units and negative deltas remove them; a line whose
+     * quantity reaches zero is removed. The whole batch is validated first,
+     * so either all deltas are applied or none are. A batch that removes every
+     * line may add products in another currency, which becomes the cart's currency.
+     *
+     * @param deltas the quantity change per product
+     * @throws IllegalArgumentException if the map, a product or a delta is null,
+     *                                  a delta would make a quantity negative, or
+     *                                  a product is priced in another currency
+     */
+    public void applyDeltas(Map<Product, Integer> deltas) {
+        if (deltas == null) {
+            throw new IllegalArgumentException("Deltas cannot be null");
+        }
+        applyBatch(deltas.size(), action -> deltas.forEach((product, delta) ->
+                action.accept(product, requireQuantity(delta))), true);
     }
 
     public void clear() {
         items.clear();
-        discount = 0.0;
+        discountPpm = 0;
+        totalItems = 0;
+        subtotalMinorUnits = 0;
+        currency = null;
+        if (promotions != null) {
+            promotions.reset();
+        }
+        version++;
     }
 
     public int getItemCount() {
@@ -86,16 +243,14 @@ public class ShoppingCart {
     }
 
     public int getTotalItems() {
-        return items.values().stream()
-                .mapToInt(Integer::intValue)
-                .sum();
+        return totalItems;
     }
 
     public int getQuantity(Product product) {
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null");
         }
-        return items.getOrDefault(product, 0);
+        return quantityOf(product);
     }
 
     /**
@@ -105,19 +260,256 @@ public class ShoppingCart {
      * @return potentially discounted total price
      */
     public double getTotalPrice() {
-        double sum = items.entrySet().stream()
-                .mapToDouble(entry -> entry.getKey().price() * entry.getValue())
-                .sum();
-        return sum * (1 - discount);
+        CartOperationEvent event = CartOperationEvent.started();
+        long start = operationStart();
+        double total = currency == null ? 0.0 : Money.toDouble(discountedMinorUnits(), currency);
+        operationEnd(CartOperation.GET_TOTAL_PRICE, start, event);
+        return total;
+    }
+
+    /**
+     * Returns the exact total of all products in the cart,
+     * including any applied discount rounded to the nearest minor unit.
+     *
+     * @return potentially discounted total; zero in the default currency for an empty cart
+     */
+    public Money getTotal() {
+        return Money.ofMinor(discountedMinorUnits(), currency != null ? currency : Money.DEFAULT_CURRENCY);
     }
 
     public void applyDiscount(double discount) {
-        if (discount > 1) {
-            throw new IllegalArgumentException("Discount cannot be greater than 100%");
+        CartOperationEvent event = CartOperationEvent.started();
+        long start = operationStart();
+        this.discountPpm = DiscountMath.toPartsPerMillion(discount);
+        version++;
+        operationEnd(CartOperation.APPLY_DISCOUNT, start, event);
+    }
+
+    /**
+     * Records the count, duration and cart size of every instrumented operation
+     * of this cart in the given counters.
+     *
+     * @param counters the counters to record to, or null to stop recording
+     */
+    public void setOperationCounters(CartOperationCounters counters) {
+        this.operationCounters = counters;
+    }
+
+    /**
+     * Returns the version of this cart, which increases with every change
+     * to its lines, discount or promotions.
+     *
+     * @return the current version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Takes an immutable snapshot of the cart in O(1).
+     * <p>
+     * The snapshot shares the cart's lines; edits made afterwards copy only
+     * the parts of the cart's table they touch.
+     *
+     * @return a snapshot of the current lines, totals and version
+     */
+    public CartSnapshot snapshot() {
+        return new CartSnapshot(this, items.snapshot(), version, totalItems, getPromotionSavings(), getTotal());
+    }
+
+    /**
+     * Returns whether the cart changed after a snapshot was taken.
+     *
+     * @param snapshot a snapshot of this cart
+     * @return true if the cart's version differs from the snapshot's
+     * @throws IllegalArgumentException if the snapshot is null or was taken from another cart
+     */
+    public boolean isModifiedSince(CartSnapshot snapshot) {
+        if (snapshot == null || snapshot.getSource() != this) {
+            throw new IllegalArgumentException("Snapshot must be taken from this cart");
+        }
+        return snapshot.getVersion() != version;
+    }
+
+    /**
+     * Applies the promotions of a pricing engine to this cart, replacing any
+     * previously applied engine. The promotions stay applied across {@link #clear()}.
+     *
+     * @param engine the pricing engine, or null to remove all promotions
+     */
+    public void applyPromotions(PricingEngine engine) {
+        version++;
+        if (engine == null) {
+            promotions = null;
+            return;
+        }
+        promotions = engine.newEvaluation(this::quantityOf);
+        promotions.reevaluateAll();
+    }
+
+    /**
+     * Returns the amount saved through promotions, before any percentage discount.
+     *
+     * @return the promotion savings; zero in the default currency for an empty cart
+     */
+    public Money getPromotionSavings() {
+        return Money.ofMinor(promotionReductionMinorUnits(), currency != null ? currency : Money.DEFAULT_CURRENCY);
+    }
+
+    ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    void forEachLine(ObjIntConsumer<Product> action) {
+        items.forEach(action);
+    }
+
+    long getDiscountPartsPerMillion() {
+        return discountPpm;
+    }
+
+    void setDiscountPartsPerMillion(long discountPartsPerMillion) {
+        if (discountPartsPerMillion < 0 || discountPartsPerMillion > DiscountMath.SCALE) {
+            throw new IllegalArgumentException("Discount out of range: " + discountPartsPerMillion + " ppm");
+        }
+        this.discountPpm = discountPartsPerMillion;
+        version++;
+    }
+
+    private int quantityOf(Product product) {
+        if (catalog == null) {
+            return items.get(product);
+        }
+        int id = catalog.findId(product);
+        return id < 0 ? 0 : items.get(catalog.product(id), catalog.hashCodeOf(id));
+    }
+
+    // Registers the product in the catalog; only called for lines that gain units or already exist
+    private int addToLine(Product product, int delta) {
+        if (catalog == null) {
+            return items.addTo(product, delta);
+        }
+        int id = catalog.idOf(product);
+        return items.addTo(catalog.product(id), catalog.hashCodeOf(id), delta);
+    }
+
+    private int putLine(Product product, int quantity) {
+        if (catalog == null) {
+            return items.put(product, quantity);
+        }
+        int id = quantity > 0 ? catalog.idOf(product) : catalog.findId(product);
+        return id < 0 ? 0 : items.put(catalog.product(id), catalog.hashCodeOf(id), quantity);
+    }
+
+    private long discountedMinorUnits() {
+        return DiscountMath.apply(subtotalMinorUnits - promotionReductionMinorUnits(), discountPpm);
+    }
+
+    // Stacked promotions never reduce the total below zero
+    private long promotionReductionMinorUnits() {
+        return promotions == null ? 0 : Math.min(subtotalMinorUnits, promotions.totalReductionMinorUnits());
+    }
+
+    // Operations are only timed for the counters while counters are set;
+    // the JFR event times itself and costs next to nothing while disabled
+    private long operationStart() {
+        return operationCounters != null ? System.nanoTime() : NOT_TIMED;
+    }
+
+    private void operationEnd(CartOperation operation, long start, CartOperationEvent event) {
+        if (start != NOT_TIMED) {
+            operationCounters.record(operation, items.size(), System.nanoTime() - start);
         }
-        if (discount < 0) {
-            throw new IllegalArgumentException("Discount cannot be negative");
+        event.complete(operation, items.size(), totalItems);
+    }
+
+    private void promotionsChanged(Product product) {
+        if (promotions != null) {
+            promotions.lineChanged(product);
+        }
+    }
+
+    // Only checks; callers adopt the product's currency once nothing else can fail
+    private void requireCartCurrency(Product product) {
+        if (currency != null && !currency.equals(product.unitPrice().currency())) {
+            throw new IllegalArgumentException("Product currency does not match cart currency");
+        }
+    }
+
+    // Validates the whole batch first so that a failure leaves the cart unchanged
+    private void applyBatch(int lineCount, Consumer<ObjIntConsumer<Product>> lines, boolean allowRemovals) {
+        if (lineCount == 0) {
+            return;
+        }
+        Currency[] addedCurrency = {null};
+        int[] emptiedLines = {0};
+        long[] subtotalDelta = {0};
+        long[] itemDelta = {0};
+        lines.accept((product, delta) -> {
+            if (product == null) {
+                throw new IllegalArgumentException("Product cannot be null");
+            }
+            if (delta < 0) {
+                if (!allowRemovals) {
+                    throw new IllegalArgumentException("Quantity must be positive");
+                }
+                long remaining = quantityOf(product) + (long) delta;
+                if (remaining < 0) {
+                    throw new IllegalArgumentException("Quantity cannot be negative");
+                }
+                if (remaining == 0) {
+                    emptiedLines[0]++;
+                }
+            } else if (delta > 0) {
+                Currency productCurrency = product.unitPrice().currency();
+                if (addedCurrency[0] == null) {
+                    addedCurrency[0] = productCurrency;
+                } else if (!addedCurrency[0].equals(productCurrency)) {
+                    throw new IllegalArgumentException("Product currency does not match cart currency");
+                }
+            } else if (!allowRemovals) {
+                throw new IllegalArgumentException("Quantity must be positive");
+            }
+            subtotalDelta[0] = Math.addExact(subtotalDelta[0],
+                    Math.multiplyExact(product.unitPrice().minorUnits(), (long) delta));
+            itemDelta[0] += delta;
+        });
+        // A batch that removes every current line may refill the cart in another currency
+        boolean keepsCurrentLines = emptiedLines[0] < items.size();
+        if (addedCurrency[0] != null && currency != null && keepsCurrentLines
+                && !currency.equals(addedCurrency[0])) {
+            throw new IllegalArgumentException("Product currency does not match cart currency");
+        }
+        long newSubtotal = Math.addExact(subtotalMinorUnits, subtotalDelta[0]);
+        // No line holds more than totalItems, so a checked totalItems also bounds every line
+        int newTotalItems = Math.toIntExact(totalItems + itemDelta[0]);
+
+        items.ensureCapacity(items.size() + lineCount);
+        lines.accept((product, delta) -> {
+            if (delta != 0) {
+                addToLine(product, delta);
+                promotionsChanged(product);
+            }
+        });
+        totalItems = newTotalItems;
+        subtotalMinorUnits = newSubtotal;
+        if (addedCurrency[0] != null) {
+            currency = addedCurrency[0];
+        }
+        releaseCurrencyIfEmpty();
+        version++;
+    }
+
+    private static int requireQuantity(Integer quantity) {
+        if (quantity == null) {
+            throw new IllegalArgumentException("Quantity cannot be null");
+        }
+        return quantity;
+    }
+
+    private void releaseCurrencyIfEmpty() {
+        if (items.isEmpty()) {
+            currency = null;
         }
-        this.discount = discount;
     }
 }
@@ -0,0 +1,358 @@
+package com.example.shop;
+
+import com.example.money.Money;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@link ShoppingCart}s for session storage.
+ * <p>
+ * A message consists of a version byte, a flags byte, the discount in parts
+ * per million, the number of lines and the lines themselves. All integers are
+ * unsigned LEB128 varints, so typical quantities take one byte. A line is
+ * either a {@link ProductCatalog} id, or the product's name, currency code and
+ * price in minor units; strings are written once per message and referenced
+ * by index afterwards, so a currency code costs one byte after its first use.
+ * <p>
+ * Besides full snapshots the codec writes deltas that contain only the lines
+ * whose quantity differs from a previously saved cart; a removed line is
+ * written with quantity 0. Promotions are not part of the encoding.
+ * <p>
+ * A codec created with a catalog writes catalog ids and ends the message with
+ * the {@link ProductCatalog#fingerprint(int) fingerprint} of the ids it used,
+ * so a message is only decoded against a catalog that assigns those ids to the
+ * same products, even in another process.
+ * <p>
+ * Decoding reads directly from the given buffer, starting at its position,
+ * and leaves the position after the message. The whole message is read and
+ * validated before the cart is changed, so a malformed message leaves the cart
+ * as it was. Instances are immutable and thread-safe.
+ */
+public final class ShoppingCartCodec {
+
+    private static final byte VERSION = 1;
+    private static final int FLAG_DELTA = 1;
+    private static final int FLAG_CATALOG_IDS = 1 << 1;
+    private static final int MAX_STRING_BYTES = 1 << 16;
+
+    private final ProductCatalog catalog;
+
+    /**
+     * Creates a codec that writes products by name, currency and price.
+     */
+    public ShoppingCartCodec() {
+        this.catalog = null;
+    }
+
+    /**
+     * Creates a codec that writes products as ids of the given catalog.
+     *
+     * @param catalog the catalog shared by encoder and decoder
+     */
+    public ShoppingCartCodec(ProductCatalog catalog) {
+        if (catalog == null) {
+            throw new IllegalArgumentException("Catalog cannot be null");
+        }
+        this.catalog = catalog;
+    }
+
+    /**
+     * Encodes all lines and the discount of a cart.
+     *
+     * @param cart the cart to encode
+     * @return the encoded cart
+     */
+    public byte[] encode(ShoppingCart cart) {
+        requireCart(cart);
+        Writer writer = new Writer(16 + cart.getItemCount() * 8, 0, cart);
+        writer.writeVarInt(cart.getItemCount());
+        cart.forEachLine(writer::writeLine);
+        return writer.finish();
+    }
+
+    /**
+     * Encodes the lines of a cart that differ from a previously saved state.
+     *
+     * @param current   the cart to encode
+     * @param lastSaved the cart as it was when it was last saved
+     * @return the encoded delta
+     */
+    public byte[] encodeDelta(ShoppingCart current, ShoppingCart lastSaved) {
+        requireCart(current);
+        requireCart(lastSaved);
+        // Removed lines come first so that a cart which was emptied and refilled
+        // in another currency never holds both currencies while the delta is applied
+        List<Product> changed = new ArrayList<>();
+        lastSaved.forEachLine((product, quantity) -> {
+            if (current.getQuantity(product) == 0) {
+                changed.add(product);
+            }
+        });
+        current.forEachLine((product, quantity) -> {
+            if (lastSaved.getQuantity(product) != quantity) {
+                changed.add(product);
+            }
+        });
+        Writer writer = new Writer(16 + changed.size() * 8, FLAG_DELTA, current);
+        writer.writeVarInt(changed.size());
+        for (Product product : changed) {
+            writer.writeLine(product, current.getQuantity(product));
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Decodes a cart written by {@link #encode(ShoppingCart)}.
+     *
+     * @param buffer the buffer positioned at the start of the message
+     * @return the decoded cart
+     * @throws IllegalArgumentException if the message is malformed, truncated, a delta
+     *                                  or written against a different catalog
+     */
+    public ShoppingCart decode(ByteBuffer buffer) {
+        ShoppingCart cart = catalog != null ? new ShoppingCart(catalog) : new ShoppingCart();
+        read(buffer, cart, false);
+        return cart;
+    }
+
+    /**
+     * Applies a delta written by {@link #encodeDelta(ShoppingCart, ShoppingCart)} to a cart.
+     *
+     * @param cart   the cart in the state the delta was computed against
+     * @param buffer the buffer positioned at the start of the delta
+     * @throws IllegalArgumentException if the delta is malformed, truncated, a full message
+     *                                  or written against a different catalog; the cart
+     *                                  is then left unchanged
+     */
+    public void applyDelta(ShoppingCart cart, ByteBuffer buffer) {
+        requireCart(cart);
+        read(buffer, cart, true);
+    }
+
+    private void read(ByteBuffer buffer, ShoppingCart cart, boolean delta) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer cannot be null");
+        }
+        try {
+            if (buffer.get() != VERSION) {
+                throw new IllegalArgumentException("Unsupported cart encoding version");
+            }
+            int flags = buffer.get();
+            if (((flags & FLAG_DELTA) != 0) != delta) {
+                throw new IllegalArgumentException(delta ? "Expected a cart delta" : "Expected a full cart encoding");
+            }
+            if (((flags & FLAG_CATALOG_IDS) != 0) != (catalog != null)) {
+                throw new IllegalArgumentException("Cart encoding does not match the codec's catalog mode");
+            }
+            long discountPartsPerMillion = readVarLong(buffer);
+            if (discountPartsPerMillion > DiscountMath.SCALE) {
+                throw new IllegalArgumentException("Invalid discount in cart encoding");
+            }
+            Map<Product, Integer> deltas = readLines(buffer, cart);
+            cart.applyDeltas(deltas);
+            cart.setDiscountPartsPerMillion(discountPartsPerMillion);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated cart encoding", e);
+        }
+    }
+
+    // Reads all lines, and the catalog fingerprint, into quantity changes for the cart
+    private Map<Product, Integer> readLines(ByteBuffer buffer, ShoppingCart cart) {
+        int lines = readVarInt(buffer);
+        // Every line takes at least two bytes
+        if (lines > buffer.remaining() / 2) {
+            throw new IllegalArgumentException("Invalid line count in cart encoding");
+        }
+        Product[] products = new Product[lines];
+        int[] ids = catalog != null ? new int[lines] : null;
+        int[] quantities = new int[lines];
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            if (catalog != null) {
+                ids[i] = readVarInt(buffer);
+            } else {
+                products[i] = readProduct(buffer, strings);
+            }
+            quantities[i] = readVarInt(buffer);
+        }
+        if (catalog != null) {
+            resolveCatalogIds(buffer, ids, products);
+        }
+        Map<Product, Integer> deltas = new LinkedHashMap<>();
+        for (int i = 0; i < lines; i++) {
+            if (deltas.put(products[i], quantities[i] - cart.getQuantity(products[i])) != null) {
+                throw new IllegalArgumentException("Duplicate line in cart encoding");
+            }
+        }
+        return deltas;
+    }
+
+    private void resolveCatalogIds(ByteBuffer buffer, int[] ids, Product[] products) {
+        int idCount = readVarInt(buffer);
+        long fingerprint = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            fingerprint = fingerprint << Byte.SIZE | (buffer.get() & 0xFF);
+        }
+        if (idCount > catalog.size() || catalog.fingerprint(idCount) != fingerprint) {
+            throw new IllegalArgumentException("Cart encoding was written against a different product catalog");
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= idCount) {
+                throw new IllegalArgumentException("Invalid product id in cart encoding");
+            }
+            products[i] = catalog.product(ids[i]);
+        }
+    }
+
+    private static Product readProduct(ByteBuffer buffer, List<String> strings) {
+        String name = readString(buffer, strings);
+        Currency currency = Currency.getInstance(readString(buffer, strings));
+        return new Product(name, Money.ofMinor(readVarLong(buffer), currency));
+    }
+
+    private static String readString(ByteBuffer buffer, List<String> strings) {
+        int reference = readVarInt(buffer);
+        if (reference > 0) {
+            if (reference > strings.size()) {
+                throw new IllegalArgumentException("Invalid string reference in cart encoding");
+            }
+            return strings.get(reference - 1);
+        }
+        int length = readVarInt(buffer);
+        if (length > MAX_STRING_BYTES || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length in cart encoding");
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        strings.add(value);
+        return value;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        long value = readVarLong(buffer);
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Value out of range in cart encoding");
+        }
+        return (int) value;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    throw new IllegalArgumentException("Value out of range in cart encoding");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in cart encoding");
+    }
+
+    private static void requireCart(ShoppingCart cart) {
+        if (cart == null) {
+            throw new IllegalArgumentException("Cart cannot be null");
+        }
+    }
+
+    private final class Writer {
+
+        private byte[] bytes;
+        private int size;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private int catalogIdCount;
+
+        Writer(int initialCapacity, int flags, ShoppingCart cart) {
+            bytes = new byte[initialCapacity];
+            writeByte(VERSION);
+            writeByte(flags | (catalog != null ? FLAG_CATALOG_IDS : 0));
+            writeVarLong(cart.getDiscountPartsPerMillion());
+        }
+
+        void writeLine(Product product, int quantity) {
+            if (catalog != null) {
+                int id = catalog.idOf(product);
+                catalogIdCount = Math.max(catalogIdCount, id + 1);
+                writeVarInt(id);
+            } else {
+                writeString(product.name());
+                writeString(product.unitPrice().currency().getCurrencyCode());
+                writeVarLong(product.unitPrice().minorUnits());
+            }
+            writeVarInt(quantity);
+        }
+
+        void writeString(String value) {
+            Integer reference = strings.get(value);
+            if (reference != null) {
+                writeVarInt(reference);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            if (encoded.length > MAX_STRING_BYTES) {
+                throw new IllegalArgumentException("String too long for cart encoding");
+            }
+            strings.put(value, strings.size() + 1);
+            writeVarInt(0);
+            writeVarInt(encoded.length);
+            ensureCapacity(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        // Appends the catalog fingerprint, if any, and returns the message
+        byte[] finish() {
+            if (catalog != null) {
+                writeVarInt(catalogIdCount);
+                long fingerprint = catalog.fingerprint(catalogIdCount);
+                ensureCapacity(Long.BYTES);
+                for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                    bytes[size++] = (byte) (fingerprint >>> shift);
+                }
+            }
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+            }
+        }
+    }
+}
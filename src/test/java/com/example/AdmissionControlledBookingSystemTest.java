@@ -0,0 +1,226 @@
+package com.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link AdmissionControlledBookingSystem}.
+ * <p>
+ * Uses a mocked {@link BookingSystem} and a manually advanced clock
+ * to verify rate limiting and short-circuiting of known conflicts.
+ */
+@ExtendWith(MockitoExtension.class)
+class AdmissionControlledBookingSystemTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 2, 1, 10, 0);
+    private static final LocalDateTime END = START.plusHours(2);
+
+    @Mock
+    private BookingSystem bookingSystem;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private AdmissionControlledBookingSystem admission;
+
+    @BeforeEach
+    void setUp() {
+        admission = new AdmissionControlledBookingSystem(bookingSystem,
+                new RateLimit(10, 10),
+                new RateLimit(2, 1),
+                Duration.ZERO,
+                Duration.ofSeconds(30),
+                clock::get);
+    }
+
+    /**
+     * Verifies that requests beyond the per-room burst are rejected
+     * and that the room bucket refills over time.
+     */
+    @Test
+    @DisplayName("tryBookRoom avvisar förfrågningar över rummets gräns")
+    void tryBookRoom_shouldReject_whenRoomLimitIsExceeded() {
+        // Arrange
+        when(bookingSystem.tryBookRoom(eq("room01"), any(), any()))
+                .thenReturn(BookingResult.rejected(Availability.available()));
+        admission.tryBookRoom("room01", START, END);
+        admission.tryBookRoom("room01", START, END);
+
+        // Act + Assert
+        assertThatThrownBy(() -> admission.tryBookRoom("room01", START, END))
+                .isInstanceOf(BookingRejectedException.class);
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        admission.tryBookRoom("room01", START, END);
+
+        verify(bookingSystem, times(3)).tryBookRoom("room01", START, END);
+    }
+
+    /**
+     * Verifies that a room limit on one room does not affect other rooms.
+     */
+    @Test
+    @DisplayName("tryBookRoom begränsar varje rum för sig")
+    void tryBookRoom_shouldLimitRoomsIndependently() {
+        // Arrange
+        when(bookingSystem.tryBookRoom(anyString(), any(), any()))
+                .thenReturn(BookingResult.rejected(Availability.available()));
+        admission.tryBookRoom("room01", START, END);
+        admission.tryBookRoom("room01", START, END);
+
+        // Act
+        admission.tryBookRoom("room02", START, END);
+
+        // Assert
+        verify(bookingSystem).tryBookRoom("room02", START, END);
+    }
+
+    /**
+     * Verifies that a request for a window known to be booked is answered
+     * without reaching the booking system.
+     */
+    @Test
+    @DisplayName("tryBookRoom besvarar kända krockar utan att anropa BookingSystem")
+    void tryBookRoom_shouldShortCircuit_whenWindowIsKnownToBeBooked() {
+        // Arrange
+        Booking booking = new Booking("booking01", "room01", START, END);
+        when(bookingSystem.tryBookRoom("room01", START, END)).thenReturn(BookingResult.booked(booking));
+        admission.tryBookRoom("room01", START, END);
+
+        // Act
+        BookingResult result = admission.tryBookRoom("room01", START.plusHours(1), END.plusHours(1));
+
+        // Assert
+        assertThat(result.isBooked()).isFalse();
+        assertThat(result.getConflicts()).containsExactly(booking);
+        verify(bookingSystem, times(1)).tryBookRoom(anyString(), any(), any());
+    }
+
+    /**
+     * Verifies that a cancelled booking is no longer treated as a known conflict.
+     */
+    @Test
+    @DisplayName("cancelBooking tar bort kända bokningar")
+    void cancelBooking_shouldForgetKnownBooking() {
+        // Arrange
+        Booking booking = new Booking("booking01", "room01", START, END);
+        when(bookingSystem.tryBookRoom("room01", START, END))
+                .thenReturn(BookingResult.booked(booking))
+                .thenReturn(BookingResult.booked(new Booking("booking02", "room01", START, END)));
+        when(bookingSystem.cancelBooking("booking01")).thenReturn(true);
+        admission.tryBookRoom("room01", START, END);
+
+        // Act
+        admission.cancelBooking("booking01");
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        BookingResult result = admission.tryBookRoom("room01", START, END);
+
+        // Assert
+        assertThat(result.isBooked()).isTrue();
+        verify(bookingSystem, times(2)).tryBookRoom("room01", START, END);
+    }
+
+    /**
+     * Verifies that known bookings expire after their time to live.
+     */
+    @Test
+    @DisplayName("kända bokningar glöms bort efter sin livslängd")
+    void tryBookRoom_shouldAskAgain_whenKnownBookingHasExpired() {
+        // Arrange
+        Booking booking = new Booking("booking01", "room01", START, END);
+        when(bookingSystem.tryBookRoom("room01", START, END)).thenReturn(BookingResult.booked(booking));
+        admission.tryBookRoom("room01", START, END);
+
+        // Act
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        admission.tryBookRoom("room01", START, END);
+
+        // Assert
+        verify(bookingSystem, times(2)).tryBookRoom("room01", START, END);
+    }
+
+    /**
+     * Verifies that a booking cancelled directly on the booking system is no
+     * longer treated as a known conflict.
+     */
+    @Test
+    @DisplayName("avbokning direkt i BookingSystem tar bort kända bokningar")
+    void tryBookRoom_shouldAskAgain_whenBookingWasCancelledOnBookingSystem() {
+        // Arrange
+        ArgumentCaptor<Consumer<Booking>> listener = ArgumentCaptor.captor();
+        verify(bookingSystem).addCancellationListener(listener.capture());
+        Booking booking = new Booking("booking01", "room01", START, END);
+        when(bookingSystem.tryBookRoom("room01", START, END)).thenReturn(BookingResult.booked(booking));
+        admission.tryBookRoom("room01", START, END);
+
+        // Act
+        listener.getValue().accept(booking);
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        admission.tryBookRoom("room01", START, END);
+
+        // Assert
+        verify(bookingSystem, times(2)).tryBookRoom("room01", START, END);
+    }
+
+    /**
+     * Verifies that invalid arguments fail like in the booking system even
+     * when the requested window is known to be booked.
+     */
+    @Test
+    @DisplayName("tryBookRoom kastar samma fel som BookingSystem trots känd krock")
+    void tryBookRoom_shouldThrowException_whenArgumentsAreInvalidForKnownWindow() {
+        // Arrange
+        Booking booking = new Booking("booking01", "room01", START, END);
+        when(bookingSystem.tryBookRoom("room01", START, END)).thenReturn(BookingResult.booked(booking));
+        admission.tryBookRoom("room01", START, END);
+        doThrow(new IllegalArgumentException("Kan inte boka tid i dåtid"))
+                .when(bookingSystem).validateBookingRequest("room01", START, END);
+
+        // Act + Assert
+        assertThatThrownBy(() -> admission.tryBookRoom("room01", START, END))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Kan inte boka tid i dåtid");
+    }
+
+    /**
+     * Verifies that requests for many unknown rooms do not keep a rate limit
+     * bucket per room forever.
+     */
+    @Test
+    @DisplayName("hinkar för okända rum rensas bort")
+    void tryBookRoom_shouldNotKeepBucketsForIdleRooms() {
+        // Arrange
+        AdmissionControlledBookingSystem unlimited = new AdmissionControlledBookingSystem(bookingSystem,
+                new RateLimit(100_000, 100_000),
+                new RateLimit(2, 1),
+                Duration.ZERO,
+                Duration.ofSeconds(30),
+                clock::get);
+        when(bookingSystem.tryBookRoom(anyString(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Rummet existerar inte"));
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            String roomId = "unknown" + i;
+            assertThatThrownBy(() -> unlimited.tryBookRoom(roomId, START, END))
+                    .isInstanceOf(IllegalArgumentException.class);
+            clock.addAndGet(Duration.ofMillis(1).toNanos());
+        }
+
+        // Assert
+        assertThat(unlimited.getRoomBucketCount()).isLessThanOrEqualTo(2_048);
+    }
+}
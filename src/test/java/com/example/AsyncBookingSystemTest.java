@@ -0,0 +1,251 @@
+package com.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link AsyncBookingSystem}.
+ * <p>
+ * Verifies that operations complete asynchronously, that concurrent bookings
+ * of the same room are serialized, and that scatter-gather lookups fail fast.
+ */
+@ExtendWith(MockitoExtension.class)
+class AsyncBookingSystemTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 29, 9, 0);
+
+    @Mock
+    private TimeProvider timeProvider;
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    private AsyncBookingSystem asyncBookingSystem;
+
+    @BeforeEach
+    void setUp() {
+        asyncBookingSystem = new AsyncBookingSystem(timeProvider, roomRepository, notificationService, 4, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncBookingSystem.close();
+    }
+
+    /**
+     * Verifies that many concurrent requests for the same slot result in exactly one booking.
+     */
+    @Test
+    @DisplayName("samtidiga bokningar av samma tid ger exakt en bokning")
+    void bookRoomAsync_shouldBookOnce_whenRequestsRace() {
+        // Arrange
+        Room room = new Room("room01", "Dubbelrum");
+        when(timeProvider.getCurrentTime()).thenReturn(NOW);
+        when(roomRepository.findById("room01")).thenReturn(Optional.of(room));
+
+        // Act
+        List<CompletableFuture<Boolean>> results = IntStream.range(0, 200)
+                .mapToObj(i -> asyncBookingSystem.bookRoomAsync("room01", NOW.plusDays(1), NOW.plusDays(2)))
+                .toList();
+
+        // Assert
+        assertThat(results.stream().map(CompletableFuture::join).filter(booked -> booked))
+                .hasSize(1);
+        verify(roomRepository, times(1)).save(room);
+    }
+
+    /**
+     * Verifies that validation errors complete the future exceptionally.
+     */
+    @Test
+    @DisplayName("valideringsfel returneras via framtiden")
+    void bookRoomAsync_shouldCompleteExceptionally_whenInputIsInvalid() {
+        // Act
+        CompletableFuture<Boolean> result = asyncBookingSystem.bookRoomAsync(null, NOW, NOW);
+
+        // Assert
+        assertThatThrownBy(result::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Verifies that the scatter-gather lookup returns only available, existing rooms
+     * in the requested order.
+     */
+    @Test
+    @DisplayName("getAvailableRoomsAsync hämtar rummen parallellt")
+    void getAvailableRoomsAsync_shouldReturnAvailableRooms() {
+        // Arrange
+        Room free = new Room("room01", "Dubbelrum");
+        Room booked = new Room("room02", "Enkelrum");
+        booked.addBooking(new Booking("booking01", "room02", NOW.plusDays(1), NOW.plusDays(2)));
+        Room alsoFree = new Room("room03", "Svit");
+        when(roomRepository.findById("room01")).thenReturn(Optional.of(free));
+        when(roomRepository.findById("room02")).thenReturn(Optional.of(booked));
+        when(roomRepository.findById("room03")).thenReturn(Optional.of(alsoFree));
+        when(roomRepository.findById("missing")).thenReturn(Optional.empty());
+
+        // Act
+        List<Room> rooms = asyncBookingSystem.getAvailableRoomsAsync(
+                List.of("room01", "room02", "missing", "room03"), NOW.plusDays(1), NOW.plusDays(2)).join();
+
+        // Assert
+        assertThat(rooms).containsExactly(free, alsoFree);
+    }
+
+    /**
+     * Verifies that a failing lookup fails the whole scatter-gather call.
+     */
+    @Test
+    @DisplayName("getAvailableRoomsAsync misslyckas om ett uppslag misslyckas")
+    void getAvailableRoomsAsync_shouldFail_whenLookupFails() {
+        // Arrange
+        when(roomRepository.findById("room01")).thenThrow(new IllegalStateException("Databasen svarar inte"));
+
+        // Act
+        CompletableFuture<List<Room>> result = asyncBookingSystem.getAvailableRoomsAsync(
+                List.of("room01"), NOW.plusDays(1), NOW.plusDays(2));
+
+        // Assert
+        assertThatThrownBy(result::join)
+                .isInstanceOf(CompletionException.class)
+                .hasRootCauseMessage("Databasen svarar inte");
+    }
+
+    /**
+     * Verifies that cancellations and availability checks running alongside
+     * bookings of the same room see and leave a consistent room.
+     */
+    @Test
+    @DisplayName("avbokningar och tillgänglighet körs under rummets lås")
+    void cancelBookingAsync_shouldKeepRoomConsistent_whenRacingWithBookings() {
+        // Arrange
+        ExclusiveAccessStore store = new ExclusiveAccessStore();
+        Room room = new Room("room01", "Dubbelrum", store);
+        List<String> existing = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String id = UUID.randomUUID().toString();
+            room.addBooking(new Booking(id, "room01", NOW.plusDays(1).plusHours(i), NOW.plusDays(1).plusHours(i)
+                    .plusMinutes(30)));
+            existing.add(id);
+        }
+        when(timeProvider.getCurrentTime()).thenReturn(NOW);
+        when(roomRepository.findById("room01")).thenReturn(Optional.of(room));
+        when(roomRepository.findAll()).thenReturn(List.of(room));
+
+        // Act
+        List<CompletableFuture<Boolean>> cancellations = new ArrayList<>();
+        List<CompletableFuture<Boolean>> bookings = new ArrayList<>();
+        List<CompletableFuture<List<Room>>> lookups = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            cancellations.add(asyncBookingSystem.cancelBookingAsync(existing.get(i)));
+            bookings.add(asyncBookingSystem.bookRoomAsync("room01",
+                    NOW.plusDays(30).plusHours(i), NOW.plusDays(30).plusHours(i).plusMinutes(30)));
+            lookups.add(asyncBookingSystem.getAvailableRoomsAsync(NOW.plusDays(60), NOW.plusDays(61)));
+        }
+
+        // Assert
+        assertThat(cancellations).allMatch(CompletableFuture::join);
+        assertThat(bookings).allMatch(CompletableFuture::join);
+        assertThat(lookups).allMatch(lookup -> lookup.join().equals(List.of(room)));
+        assertThat(existing).noneMatch(room::hasBooking);
+        assertThat(room.isAvailable(NOW.plusDays(1), NOW.plusDays(10))).isTrue();
+        assertThat(room.isAvailable(NOW.plusDays(30), NOW.plusDays(40))).isFalse();
+        assertThat(store.concurrentAccesses.get()).isZero();
+    }
+
+    // Heap store that counts calls made while another call is still running
+    private static final class ExclusiveAccessStore implements BookingStore {
+        private final HeapBookingStore delegate = new HeapBookingStore();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger concurrentAccesses = new AtomicInteger();
+
+        private <T> T access(Supplier<T> operation) {
+            if (active.incrementAndGet() != 1) {
+                concurrentAccesses.incrementAndGet();
+            }
+            try {
+                Thread.yield();
+                return operation.get();
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void add(Booking booking) {
+            access(() -> {
+                delegate.add(booking);
+                return null;
+            });
+        }
+
+        @Override
+        public void remove(String bookingId) {
+            access(() -> {
+                delegate.remove(bookingId);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean contains(String bookingId) {
+            return access(() -> delegate.contains(bookingId));
+        }
+
+        @Override
+        public Optional<Booking> find(String bookingId) {
+            return access(() -> delegate.find(bookingId));
+        }
+
+        @Override
+        public boolean anyOverlap(LocalDateTime startTime, LocalDateTime endTime) {
+            return access(() -> delegate.anyOverlap(startTime, endTime));
+        }
+
+        @Override
+        public List<Booking> findOverlapping(LocalDateTime startTime, LocalDateTime endTime) {
+            return access(() -> delegate.findOverlapping(startTime, endTime));
+        }
+
+        @Override
+        public Iterator<Booking> startingAfter(LocalDateTime time) {
+            return access(() -> delegate.startingAfter(time));
+        }
+
+        @Override
+        public Iterator<Booking> endingBefore(LocalDateTime time) {
+            return access(() -> delegate.endingBefore(time));
+        }
+
+        @Override
+        public int size() {
+            return access(delegate::size);
+        }
+    }
+}
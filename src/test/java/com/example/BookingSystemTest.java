@@ -12,6 +12,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -237,6 +238,101 @@ class BookingSystemTest {
         }
     }
 
+    /**
+     * Tests for {@link BookingSystem#tryBookRoom(String, LocalDateTime, LocalDateTime)}.
+     * <p>
+     * Covers conflict reporting and suggested alternative time slots.
+     */
+    @Nested
+    @DisplayName("tryBookRoom() test suite")
+    class TryBookRoomTests {
+
+        /**
+         * Verifies that a rejected booking reports the blocking booking
+         * together with the nearest free slots of the same length.
+         */
+        @Test
+        @DisplayName("tryBookRoom returnerar krockande bokning och lediga alternativ")
+        void tryBookRoom_shouldReturnConflictsAndAlternatives_whenRoomIsNotAvailable() {
+            // Arrange
+            String roomId = "room01";
+            LocalDateTime bookedStart = NOW.plusDays(1);
+            LocalDateTime bookedEnd = bookedStart.plusHours(2);
+            Room room = new Room(roomId, "Dubbelrum");
+            room.addBooking(new Booking("existing-booking", roomId, bookedStart, bookedEnd));
+
+            when(timeProvider.getCurrentTime()).thenReturn(NOW);
+            when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
+
+            // Act
+            BookingResult result = bookingSystem.tryBookRoom(roomId, bookedStart.plusHours(1), bookedEnd.plusHours(1));
+
+            // Assert
+            assertThat(result.isBooked()).isFalse();
+            assertThat(result.getConflicts())
+                    .extracting(Booking::getId)
+                    .containsExactly("existing-booking");
+            assertThat(result.getLaterAlternative()).hasValueSatisfying(slot -> {
+                assertThat(slot.getStartTime()).isEqualTo(bookedEnd.plusNanos(1));
+                assertThat(slot.getEndTime()).isEqualTo(bookedEnd.plusNanos(1).plusHours(2));
+            });
+            assertThat(result.getEarlierAlternative()).hasValueSatisfying(slot -> {
+                assertThat(slot.getEndTime()).isEqualTo(bookedStart.minusNanos(1));
+                assertThat(slot.getStartTime()).isEqualTo(bookedStart.minusNanos(1).minusHours(2));
+            });
+
+            verify(roomRepository, never()).save(any());
+        }
+
+        /**
+         * Verifies that an alternative starting in the past is not suggested.
+         */
+        @Test
+        @DisplayName("tryBookRoom föreslår inga alternativ i dåtid")
+        void tryBookRoom_shouldNotSuggestEarlierSlot_whenItStartsInThePast() {
+            // Arrange
+            String roomId = "room01";
+            Room room = new Room(roomId, "Dubbelrum");
+            room.addBooking(new Booking("existing-booking", roomId, NOW.plusMinutes(30), NOW.plusHours(3)));
+
+            when(timeProvider.getCurrentTime()).thenReturn(NOW);
+            when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
+
+            // Act
+            BookingResult result = bookingSystem.tryBookRoom(roomId, NOW.plusHours(1), NOW.plusHours(2));
+
+            // Assert
+            assertThat(result.isBooked()).isFalse();
+            assertThat(result.getEarlierAlternative()).isEmpty();
+            assertThat(result.getLaterAlternative()).isPresent();
+        }
+
+        /**
+         * Verifies that a successful booking returns the created booking.
+         */
+        @Test
+        @DisplayName("tryBookRoom returnerar den skapade bokningen")
+        void tryBookRoom_shouldReturnBooking_whenRoomIsAvailable() throws NotificationException {
+            // Arrange
+            String roomId = "room01";
+            Room room = new Room(roomId, "Dubbelrum");
+
+            when(timeProvider.getCurrentTime()).thenReturn(NOW);
+            when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
+
+            // Act
+            BookingResult result = bookingSystem.tryBookRoom(roomId, NOW.plusDays(1), NOW.plusDays(2));
+
+            // Assert
+            assertThat(result.isBooked()).isTrue();
+            assertThat(result.getConflicts()).isEmpty();
+            assertThat(result.getBooking()).hasValueSatisfying(booking ->
+                    assertThat(room.hasBooking(booking.getId())).isTrue());
+
+            verify(notificationService).sendBookingConfirmation(any(Booking.class));
+        }
+    }
+
     /**
      * Tests for {@link BookingSystem#getAvailableRooms(LocalDateTime, LocalDateTime)}.
      * <p>
@@ -508,5 +604,184 @@ class BookingSystemTest {
 
             verify(roomRepository).save(room);
         }
+
+        /**
+         * Verifies that cancellation listeners are told about the cancelled booking.
+         */
+        @Test
+        @DisplayName("cancelBooking meddelar avbokningslyssnare")
+        void cancelBooking_shouldNotifyCancellationListeners() {
+            // Arrange
+            String roomId = "room01";
+            Booking booking = new Booking("booking01", roomId, NOW.plusDays(1), NOW.plusDays(2));
+            Room room = new Room(roomId, "Dubbelrum");
+            room.addBooking(booking);
+            List<Booking> cancelled = new ArrayList<>();
+            bookingSystem.addCancellationListener(cancelled::add);
+
+            when(timeProvider.getCurrentTime()).thenReturn(NOW);
+            when(roomRepository.findAll()).thenReturn(List.of(room));
+
+            // Act
+            bookingSystem.cancelBooking("booking01");
+
+            // Assert
+            assertThat(cancelled).containsExactly(booking);
+        }
+    }
+
+    /**
+     * Tests for the idempotency-key variants of {@link BookingSystem#bookRoom(String, String, LocalDateTime, LocalDateTime)}
+     * and {@link BookingSystem#cancelBooking(String, String)}.
+     * <p>
+     * Verifies that retried requests return the original outcome without side effects.
+     */
+    @Nested
+    @DisplayName("Idempotency test suite")
+    class IdempotencyTests {
+
+        /**
+         * Verifies that a retried booking returns the original result
+         * without touching the repository or notification service again.
+         */
+        @Test
+        @DisplayName("bookRoom med samma nyckel returnerar ursprungligt resultat")
+        void bookRoom_shouldReturnOriginalOutcome_whenRetriedWithSameKey() throws NotificationException {
+            // Arrange
+            String roomId = "room01";
+            Room room = new Room(roomId, "Dubbelrum");
+
+            when(timeProvider.getCurrentTime()).thenReturn(NOW);
+            when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
+
+            // Act
+            boolean first = bookingSystem.bookRoom("request-1", roomId, NOW.plusDays(1), NOW.plusDays(2));
+            boolean retry = bookingSystem.bookRoom("request-1", roomId, NOW.plusDays(1), NOW.plusDays(2));
+
+            // Assert
+            assertThat(first).isTrue();
+            assertThat(retry).isTrue();
+
+            verify(roomRepository, times(1)).findById(roomId);
+            verify(roomRepository, times(1)).save(room);
+            verify(notificationService, times(1)).sendBookingConfirmation(any(Booking.class));
+        }
+
+        /**
+         * Verifies that different keys are treated as separate requests.
+         */
+        @Test
+        @DisplayName("bookRoom med olika nycklar behandlas som separata anrop")
+        void bookRoom_shouldExecuteAgain_whenKeyDiffers() {
+            // Arrange
+            String roomId = "room01";
+            Room room = new Room(roomId, "Dubbelrum");
+
+            when(timeProvider.getCurrentTime()).thenReturn(NOW);
+            when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
+
+            // Act
+            boolean first = bookingSystem.bookRoom("request-1", roomId, NOW.plusDays(1), NOW.plusDays(2));
+            boolean second = bookingSystem.bookRoom("request-2", roomId, NOW.plusDays(1), NOW.plusDays(2));
+
+            // Assert
+            assertThat(first).isTrue();
+            assertThat(second).isFalse();
+
+            verify(roomRepository, times(2)).findById(roomId);
+        }
+
+        /**
+         * Verifies that a key reused for another room or time range is rejected
+         * instead of returning the first booking's result.
+         */
+        @Test
+        @DisplayName("bookRoom kastar exception när nyckeln återanvänds med andra parametrar")
+        void bookRoom_shouldThrowException_whenKeyIsReusedForAnotherRequest() {
+            // Arrange
+            String roomId = "room01";
+            Room room = new Room(roomId, "Dubbelrum");
+
+            when(timeProvider.getCurrentTime()).thenReturn(NOW);
+            when(roomRepository.findById(roomId)).thenReturn(Optional.of(room));
+            bookingSystem.bookRoom("request-1", roomId, NOW.plusDays(1), NOW.plusDays(2));
+
+            // Act + Assert
+            assertThatThrownBy(() ->
+                    bookingSystem.bookRoom("request-1", "room02", NOW.plusDays(1), NOW.plusDays(2)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Idempotensnyckeln har redan använts för en annan begäran");
+            assertThatThrownBy(() ->
+                    bookingSystem.bookRoom("request-1", roomId, NOW.plusDays(3), NOW.plusDays(4)))
+                    .isInstanceOf(IllegalArgumentException.class);
+
+            verify(roomRepository, times(1)).findById(roomId);
+            verify(roomRepository, never()).findById("room02");
+        }
+
+        /**
+         * Verifies that a failed request is not cached, so a retry executes again.
+         */
+        @Test
+        @DisplayName("bookRoom cachar inte anrop som kastar exception")
+        void bookRoom_shouldNotCacheFailure_whenRequestThrows() {
+            // Arrange
+            String roomId = "room01";
+
+            when(timeProvider.getCurrentTime()).thenReturn(NOW);
+            when(roomRepository.findById(roomId))
+                    .thenReturn(Optional.empty())
+                    .thenReturn(Optional.of(new Room(roomId, "Dubbelrum")));
+
+            // Act + Assert
+            assertThatThrownBy(() ->
+                    bookingSystem.bookRoom("request-1", roomId, NOW.plusDays(1), NOW.plusDays(2)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Rummet existerar inte");
+            assertThat(bookingSystem.bookRoom("request-1", roomId, NOW.plusDays(1), NOW.plusDays(2))).isTrue();
+        }
+
+        /**
+         * Verifies that a retried cancellation returns the original result
+         * instead of false, even though the booking no longer exists.
+         */
+        @Test
+        @DisplayName("cancelBooking med samma nyckel returnerar ursprungligt resultat")
+        void cancelBooking_shouldReturnOriginalOutcome_whenRetriedWithSameKey() throws NotificationException {
+            // Arrange
+            String roomId = "room01";
+            String bookingId = "booking01";
+            Room room = new Room(roomId, "Dubbelrum");
+            room.addBooking(new Booking(bookingId, roomId, NOW.plusDays(1), NOW.plusDays(2)));
+
+            when(timeProvider.getCurrentTime()).thenReturn(NOW);
+            when(roomRepository.findAll()).thenReturn(List.of(room));
+
+            // Act
+            boolean first = bookingSystem.cancelBooking("request-1", bookingId);
+            boolean retry = bookingSystem.cancelBooking("request-1", bookingId);
+
+            // Assert
+            assertThat(first).isTrue();
+            assertThat(retry).isTrue();
+
+            verify(roomRepository, times(1)).findAll();
+            verify(notificationService, times(1)).sendCancellationConfirmation(any(Booking.class));
+        }
+
+        /**
+         * Verifies that a null idempotency key throws {@link IllegalArgumentException}.
+         */
+        @Test
+        @DisplayName("bookRoom kastar exception när idempotensnyckeln är null")
+        void bookRoom_shouldThrowException_whenKeyIsNull() {
+            // Act + Assert
+            assertThatThrownBy(() ->
+                    bookingSystem.bookRoom(null, "room01", NOW.plusDays(1), NOW.plusDays(2)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Idempotensnyckel kan inte vara null");
+
+            verifyNoInteractions(roomRepository, notificationService);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,210 @@
+package com.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link OffHeapBookingStore}.
+ * <p>
+ * Verifies that bookings survive the round trip through off-heap records
+ * and that overlap checks match {@link Booking#overlaps(LocalDateTime, LocalDateTime)}.
+ */
+class OffHeapBookingStoreTest {
+
+    private static final LocalDateTime START =
+            LocalDateTime.of(2026, 2, 1, 10, 0, 0, 123_456_789);
+
+    private OffHeapBookingStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new OffHeapBookingStore("room01", 7, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    /**
+     * Verifies that a stored booking is materialized with identical values.
+     */
+    @Test
+    @DisplayName("find återskapar bokningen från off-heap-posten")
+    void find_shouldMaterializeStoredBooking() {
+        // Arrange
+        String id = UUID.randomUUID().toString();
+        store.add(new Booking(id, "room01", START, START.plusHours(2)));
+        // Act
+        Booking booking = store.find(id).orElseThrow();
+        // Assert
+        assertThat(booking.getId()).isEqualTo(id);
+        assertThat(booking.getRoomId()).isEqualTo("room01");
+        assertThat(booking.getStartTime()).isEqualTo(START);
+        assertThat(booking.getEndTime()).isEqualTo(START.plusHours(2));
+        assertThat(store.getRoomOrdinal()).isEqualTo(7);
+    }
+
+    /**
+     * Verifies that the store grows beyond its initial capacity and
+     * keeps records dense after removal.
+     */
+    @Test
+    @DisplayName("lagret växer och förblir tätt efter borttagning")
+    void addAndRemove_shouldGrowAndKeepRecordsDense() {
+        // Arrange
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        String third = UUID.randomUUID().toString();
+        store.add(new Booking(first, "room01", START, START.plusHours(1)));
+        store.add(new Booking(second, "room01", START.plusHours(2), START.plusHours(3)));
+        store.add(new Booking(third, "room01", START.plusHours(4), START.plusHours(5)));
+        // Act
+        store.remove(first);
+        // Assert
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.contains(first)).isFalse();
+        assertThat(store.contains(second)).isTrue();
+        assertThat(store.find(third)).isPresent();
+    }
+
+    /**
+     * Verifies that overlap checks treat touching intervals as overlapping,
+     * just like {@link Booking#overlaps(LocalDateTime, LocalDateTime)}.
+     */
+    @Test
+    @DisplayName("anyOverlap följer samma regler som Booking.overlaps")
+    void anyOverlap_shouldMatchBookingSemantics() {
+        // Arrange
+        store.add(new Booking(UUID.randomUUID().toString(), "room01", START, START.plusHours(2)));
+        // Assert
+        assertThat(store.anyOverlap(START.plusHours(1), START.plusHours(3))).isTrue();
+        assertThat(store.anyOverlap(START.plusHours(2), START.plusHours(3))).isTrue();
+        assertThat(store.anyOverlap(START.plusHours(2).plusNanos(1), START.plusHours(3))).isFalse();
+        assertThat(store.anyOverlap(START.minusHours(2), START.minusNanos(1))).isFalse();
+    }
+
+    /**
+     * Verifies that ids which cannot be stored in a fixed-width record are rejected.
+     */
+    @Test
+    @DisplayName("add kastar exception när boknings-id inte är ett UUID")
+    void add_shouldThrowException_whenIdIsNotUuid() {
+        // Act + Assert
+        assertThatThrownBy(() ->
+                store.add(new Booking("existing-booking", "room01", START, START.plusHours(1))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Boknings-id måste vara ett UUID");
+        assertThat(store.contains("existing-booking")).isFalse();
+    }
+
+    /**
+     * Verifies that lookups and overlap searches on the sorted records give the
+     * same answers as {@link HeapBookingStore}, also after replacing and removing bookings.
+     */
+    @Test
+    @DisplayName("sorterade poster ger samma svar som heap-lagret")
+    void findOverlapping_shouldMatchHeapStore() {
+        // Arrange
+        HeapBookingStore expected = new HeapBookingStore();
+        Random random = new Random(42);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String id = i % 10 == 9 ? ids.get(random.nextInt(ids.size())) : UUID.randomUUID().toString();
+            LocalDateTime start = START.plusMinutes(random.nextInt(10_000));
+            Booking booking = new Booking(id, "room01", start, start.plusMinutes(1 + random.nextInt(240)));
+            store.add(booking);
+            expected.add(booking);
+            ids.add(id);
+            if (i % 7 == 0) {
+                String removed = ids.get(random.nextInt(ids.size()));
+                store.remove(removed);
+                expected.remove(removed);
+            }
+        }
+        // Act + Assert
+        assertThat(store.size()).isEqualTo(expected.size());
+        for (String id : ids) {
+            assertThat(store.contains(id)).isEqualTo(expected.contains(id));
+            assertThat(store.find(id).map(Booking::getStartTime))
+                    .isEqualTo(expected.find(id).map(Booking::getStartTime));
+        }
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime from = START.plusMinutes(random.nextInt(10_500) - 250);
+            LocalDateTime to = from.plusMinutes(random.nextInt(120));
+            assertThat(store.findOverlapping(from, to))
+                    .extracting(Booking::getId)
+                    .containsExactlyInAnyOrderElementsOf(
+                            expected.findOverlapping(from, to).stream().map(Booking::getId).toList());
+            assertThat(store.anyOverlap(from, to)).isEqualTo(expected.anyOverlap(from, to));
+        }
+    }
+
+    /**
+     * Verifies that closing a room closes its store.
+     */
+    @Test
+    @DisplayName("close på rummet stänger lagret")
+    void close_shouldCloseStore_whenRoomIsClosed() {
+        // Arrange
+        Room room = new Room("room01", "Dubbelrum", store);
+        // Act
+        room.close();
+        // Assert
+        assertThatThrownBy(() -> store.contains(UUID.randomUUID().toString()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Lagret är stängt");
+    }
+
+    /**
+     * Verifies that the alternatives found by walking the stores' start and end
+     * orders are free, nearest to the requested time and the same for both stores.
+     */
+    @Test
+    @DisplayName("föreslagna tider är lediga, närmast möjliga och lika för båda lagren")
+    void checkAvailability_shouldSuggestNearestFreeSlots() {
+        // Arrange
+        Room offHeap = new Room("room01", "Dubbelrum", store);
+        Room heap = new Room("room01", "Dubbelrum", new HeapBookingStore());
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime start = START.plusMinutes(random.nextInt(20_000));
+            Booking booking = new Booking(UUID.randomUUID().toString(), "room01",
+                    start, start.plusMinutes(10 + random.nextInt(i % 25 == 0 ? 2_000 : 120)));
+            offHeap.addBooking(booking);
+            heap.addBooking(booking);
+        }
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime from = START.plusMinutes(random.nextInt(20_000));
+            LocalDateTime to = from.plusMinutes(30 + random.nextInt(180));
+            // Act
+            Availability availability = offHeap.checkAvailability(from, to);
+            Availability expected = heap.checkAvailability(from, to);
+            if (availability.isAvailable()) {
+                continue;
+            }
+            TimeSlot later = availability.getLaterAlternative().orElseThrow();
+            TimeSlot earlier = availability.getEarlierAlternative().orElseThrow();
+            // Assert
+            assertThat(later.getStartTime()).isEqualTo(expected.getLaterAlternative().orElseThrow().getStartTime());
+            assertThat(earlier.getEndTime()).isEqualTo(expected.getEarlierAlternative().orElseThrow().getEndTime());
+            assertThat(offHeap.isAvailable(later.getStartTime(), later.getEndTime())).isTrue();
+            assertThat(offHeap.isAvailable(later.getStartTime().minusNanos(1), later.getEndTime().minusNanos(1)))
+                    .isFalse();
+            assertThat(offHeap.isAvailable(earlier.getStartTime(), earlier.getEndTime())).isTrue();
+            assertThat(offHeap.isAvailable(earlier.getStartTime().plusNanos(1), earlier.getEndTime().plusNanos(1)))
+                    .isFalse();
+        }
+    }
+}
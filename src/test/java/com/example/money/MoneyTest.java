@@ -0,0 +1,98 @@
+package com.example.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link Money}.
+ * <p>
+ * Tests cover conversion to and from decimal amounts,
+ * exact arithmetic, and currency validation.
+ */
+class MoneyTest {
+
+    private static final Currency SEK = Currency.getInstance("SEK");
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    /**
+     * Verifies that decimal amounts are stored as exact minor units.
+     */
+    @Test
+    void of_shouldStoreMinorUnits() {
+        // Act
+        Money money = Money.of(0.1, SEK);
+        // Assert
+        assertThat(money.minorUnits()).isEqualTo(10);
+        assertThat(money.toBigDecimal()).isEqualByComparingTo(new BigDecimal("0.10"));
+    }
+
+    /**
+     * Verifies that repeated addition does not drift like {@code double} does.
+     */
+    @Test
+    void plus_shouldBeExact() {
+        // Arrange
+        Money total = Money.zero(SEK);
+        // Act
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(Money.of(0.1, SEK));
+        }
+        // Assert
+        assertThat(total).isEqualTo(Money.of(1.0, SEK));
+        assertThat(total.toDouble()).isEqualTo(1.0);
+    }
+
+    /**
+     * Verifies that multiplication by a quantity is exact.
+     */
+    @Test
+    void times_shouldMultiplyMinorUnits() {
+        // Act
+        Money total = Money.of(19.99, SEK).times(3);
+        // Assert
+        assertThat(total.minorUnits()).isEqualTo(5997);
+    }
+
+    /**
+     * Verifies that arithmetic between different currencies is rejected.
+     */
+    @Test
+    void plus_shouldThrowException_whenCurrenciesDiffer() {
+        // Act + Assert
+        assertThatThrownBy(() -> Money.of(1.0, SEK).plus(Money.of(1.0, EUR)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Currency mismatch");
+    }
+
+    /**
+     * Verifies that non-finite amounts are rejected.
+     */
+    @Test
+    void of_shouldThrowException_whenAmountIsNotFinite() {
+        // Act + Assert
+        assertThatThrownBy(() -> Money.of(Double.NaN, SEK))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Amount must be a finite number");
+    }
+
+    /**
+     * Verifies that conversion rounds half-even on the decimal value, like {@link BigDecimal} does.
+     */
+    @Test
+    void toMinorUnits_shouldMatchBigDecimalRounding() {
+        // Arrange
+        double[] amounts = {2.675, 1.005, 0.125, 0.135, -2.675, 19.99, 123456.785, 1e12 + 0.005};
+        for (double amount : amounts) {
+            long expected = BigDecimal.valueOf(amount).movePointRight(2)
+                    .setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+            // Act + Assert
+            assertThat(Money.toMinorUnits(amount, SEK)).as("%s", amount).isEqualTo(expected);
+        }
+    }
+}
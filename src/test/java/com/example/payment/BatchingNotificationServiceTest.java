@@ -0,0 +1,182 @@
+package com.example.payment;
+
+import com.example.money.Money;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link BatchingNotificationService}.
+ * <p>
+ * Uses an in-memory mail relay that records every batch and every connection.
+ */
+class BatchingNotificationServiceTest {
+
+    private static final ConfirmationTemplate TEMPLATE =
+            ConfirmationTemplate.compile("Payment received", "We received {amount} from {email}.");
+
+    private final RecordingRelay relay = new RecordingRelay();
+
+    /**
+     * Verifies that queued confirmations are rendered and sent in batches over one connection.
+     */
+    @Test
+    void close_shouldSendQueuedConfirmationsInBatchesOverOneConnection() {
+        // Arrange
+        BatchingNotificationService service =
+                new BatchingNotificationService(relay, TEMPLATE, Duration.ofSeconds(10), 50);
+        for (int i = 0; i < 120; i++) {
+            service.sendPaymentConfirmation("customer" + i + "@example.com", Money.of(10.0));
+        }
+        // Act
+        service.close();
+        // Assert
+        assertEquals(List.of(50, 50, 20), relay.batchSizes());
+        assertEquals(1, relay.connections.get());
+        assertEquals(120, service.getSentMessageCount());
+        assertEquals(new MailMessage("customer0@example.com", "Payment received",
+                "We received 10.00 SEK from customer0@example.com."), relay.batches.get(0).get(0));
+    }
+
+    /**
+     * Verifies that a failed send is retried once on a new connection.
+     */
+    @Test
+    void deliver_shouldRetryOnNewConnection_whenSendFails() {
+        // Arrange
+        relay.failures.set(1);
+        BatchingNotificationService service =
+                new BatchingNotificationService(relay, TEMPLATE, Duration.ofMillis(1), 10);
+        // Act
+        service.sendPaymentConfirmation("customer@example.com", 100.0);
+        service.close();
+        // Assert
+        assertEquals(List.of(1), relay.batchSizes());
+        assertEquals(2, relay.connections.get());
+        assertEquals(0, service.getFailedMessageCount());
+    }
+
+    /**
+     * Verifies that a batch failing twice is counted as failed and not sent.
+     */
+    @Test
+    void deliver_shouldDropBatch_whenRetryFails() {
+        // Arrange
+        relay.failures.set(2);
+        BatchingNotificationService service =
+                new BatchingNotificationService(relay, TEMPLATE, Duration.ofMillis(1), 10);
+        // Act
+        service.sendPaymentConfirmation("customer@example.com", 100.0);
+        service.close();
+        // Assert
+        assertEquals(List.of(), relay.batchSizes());
+        assertEquals(1, service.getFailedMessageCount());
+    }
+
+    /**
+     * Verifies that a synchronous delivery returns once its batch has been sent.
+     */
+    @Test
+    void deliverPaymentConfirmations_shouldReturnAfterBatchIsSent() {
+        // Arrange
+        BatchingNotificationService service =
+                new BatchingNotificationService(relay, TEMPLATE, Duration.ofMillis(1), 10);
+        // Act
+        service.deliverPaymentConfirmations(List.of(
+                new PaymentRequest(Money.of(100.0), "a@example.com"),
+                new PaymentRequest(Money.of(200.0), "b@example.com")));
+        // Assert
+        assertEquals(2, service.getSentMessageCount());
+        service.close();
+    }
+
+    /**
+     * Verifies that a synchronous delivery throws when its batch is dropped.
+     */
+    @Test
+    void deliverPaymentConfirmations_shouldThrowException_whenBatchIsDropped() {
+        // Arrange
+        relay.failures.set(2);
+        BatchingNotificationService service =
+                new BatchingNotificationService(relay, TEMPLATE, Duration.ofMillis(1), 10);
+        List<PaymentRequest> payments = List.of(new PaymentRequest(Money.of(100.0), "a@example.com"));
+        // Act + Assert
+        assertThrows(IllegalStateException.class, () -> service.deliverPaymentConfirmations(payments));
+        assertEquals(1, service.getFailedMessageCount());
+        service.close();
+    }
+
+    /**
+     * Verifies that closing from an interrupted thread still closes the
+     * connection and keeps the interrupt status.
+     */
+    @Test
+    void close_shouldCloseConnection_whenInterrupted() {
+        // Arrange
+        BatchingNotificationService service =
+                new BatchingNotificationService(relay, TEMPLATE, Duration.ofMillis(1), 10);
+        service.deliverPaymentConfirmations(List.of(new PaymentRequest(Money.of(100.0), "a@example.com")));
+        Thread.currentThread().interrupt();
+        // Act
+        service.close();
+        // Assert
+        assertTrue(Thread.interrupted());
+        assertEquals(1, relay.closes.get());
+    }
+
+    /**
+     * Verifies that a closed service rejects new confirmations.
+     */
+    @Test
+    void sendPaymentConfirmation_shouldThrowException_whenClosed() {
+        // Arrange
+        BatchingNotificationService service =
+                new BatchingNotificationService(relay, TEMPLATE, Duration.ofMillis(1), 10);
+        service.close();
+        // Act + Assert
+        assertThrows(IllegalStateException.class,
+                () -> service.sendPaymentConfirmation("customer@example.com", 100.0));
+    }
+
+    /**
+     * Mail relay that records batches and can fail a number of sends.
+     */
+    private static final class RecordingRelay implements MailRelay {
+
+        private final List<List<MailMessage>> batches = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger closes = new AtomicInteger();
+
+        @Override
+        public MailConnection connect() {
+            connections.incrementAndGet();
+            return new MailConnection() {
+                @Override
+                public void send(List<MailMessage> messages) {
+                    if (failures.getAndDecrement() > 0) {
+                        throw new RuntimeException("Connection reset");
+                    }
+                    batches.add(List.copyOf(messages));
+                }
+
+                @Override
+                public void close() {
+                    closes.incrementAndGet();
+                }
+            };
+        }
+
+        List<Integer> batchSizes() {
+            return batches.stream().map(List::size).toList();
+        }
+    }
+}
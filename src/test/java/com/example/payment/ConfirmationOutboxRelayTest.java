@@ -0,0 +1,158 @@
+package com.example.payment;
+
+import com.example.money.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link ConfirmationOutboxRelay}.
+ * <p>
+ * Uses an in-memory outbox repository and a mocked notification service.
+ * Tests cover bulk delivery, per-item fallback, giving up after the
+ * maximum number of attempts and the background thread.
+ */
+@ExtendWith(MockitoExtension.class)
+class ConfirmationOutboxRelayTest {
+
+    @Mock
+    private NotificationService notificationService;
+
+    private InMemoryOutboxRepository repository;
+    private ConfirmationOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryOutboxRepository();
+        relay = new ConfirmationOutboxRelay(repository, notificationService, 10, Duration.ofMillis(10), 2);
+    }
+
+    /**
+     * Verifies that pending confirmations are sent in one bulk call and removed from the outbox.
+     */
+    @Test
+    void drainOnce_shouldSendPendingConfirmationsInBulk() {
+        // Arrange
+        repository.savePaymentWithConfirmation(Money.of(100.0), "SUCCESS", "a@example.com");
+        repository.savePaymentWithConfirmation(Money.of(200.0), "SUCCESS", "b@example.com");
+        // Act
+        int sent = relay.drainOnce();
+        // Assert
+        assertEquals(2, sent);
+        assertTrue(repository.pending.isEmpty());
+        verify(notificationService).deliverPaymentConfirmations(List.of(
+                new PaymentRequest(Money.of(100.0), "a@example.com"),
+                new PaymentRequest(Money.of(200.0), "b@example.com")));
+    }
+
+    /**
+     * Verifies that a failed bulk send falls back to single sends and keeps
+     * only the failing confirmation pending.
+     */
+    @Test
+    void drainOnce_shouldFallBackToSingleSends_whenBulkSendFails() {
+        // Arrange
+        repository.savePaymentWithConfirmation(Money.of(100.0), "SUCCESS", "a@example.com");
+        repository.savePaymentWithConfirmation(Money.of(200.0), "SUCCESS", "bad@example.com");
+        PaymentRequest good = new PaymentRequest(Money.of(100.0), "a@example.com");
+        PaymentRequest bad = new PaymentRequest(Money.of(200.0), "bad@example.com");
+        lenient().doThrow(new RuntimeException("Rejected"))
+                .when(notificationService).deliverPaymentConfirmations(List.of(good, bad));
+        lenient().doThrow(new RuntimeException("Rejected"))
+                .when(notificationService).deliverPaymentConfirmations(List.of(bad));
+        // Act
+        int sent = relay.drainOnce();
+        // Assert
+        assertEquals(1, sent);
+        assertEquals(List.of("bad@example.com"), emails(repository.pending));
+        verify(notificationService).deliverPaymentConfirmations(List.of(good));
+    }
+
+    /**
+     * Verifies that a confirmation is marked as failed after the maximum number of attempts.
+     */
+    @Test
+    void drainOnce_shouldGiveUp_afterMaxAttempts() {
+        // Arrange
+        repository.savePaymentWithConfirmation(Money.of(100.0), "SUCCESS", "bad@example.com");
+        doThrow(new RuntimeException("Rejected")).when(notificationService).deliverPaymentConfirmations(anyList());
+        // Act
+        relay.drainOnce();
+        boolean pendingAfterFirstAttempt = !repository.pending.isEmpty();
+        relay.drainOnce();
+        // Assert
+        assertTrue(pendingAfterFirstAttempt);
+        assertTrue(repository.pending.isEmpty());
+        assertEquals(List.of("bad@example.com"), emails(repository.failed));
+    }
+
+    /**
+     * Verifies that a started relay drains the outbox in the background until closed.
+     */
+    @Test
+    void start_shouldDrainOutboxInBackground() {
+        // Arrange
+        repository.savePaymentWithConfirmation(Money.of(100.0), "SUCCESS", "a@example.com");
+        // Act
+        relay.start();
+        relay.wakeUp();
+        // Assert
+        verify(notificationService, timeout(5_000))
+                .deliverPaymentConfirmations(List.of(new PaymentRequest(Money.of(100.0), "a@example.com")));
+        relay.close();
+    }
+
+    private static List<String> emails(List<PaymentConfirmation> confirmations) {
+        return confirmations.stream().map(PaymentConfirmation::email).toList();
+    }
+
+    /**
+     * Minimal thread-safe outbox repository for the relay tests.
+     */
+    private static final class InMemoryOutboxRepository implements OutboxPaymentRepository {
+
+        private final List<PaymentConfirmation> pending = new ArrayList<>();
+        private final List<PaymentConfirmation> failed = new ArrayList<>();
+        private long nextId = 1;
+
+        @Override
+        public void savePayment(double amount, String status) {
+        }
+
+        @Override
+        public synchronized void savePaymentWithConfirmation(Money amount, String status, String email) {
+            pending.add(new PaymentConfirmation(nextId++, amount, email));
+        }
+
+        @Override
+        public synchronized List<PaymentConfirmation> findPendingConfirmations(int limit) {
+            return List.copyOf(pending.subList(0, Math.min(limit, pending.size())));
+        }
+
+        @Override
+        public synchronized void markConfirmationsSent(List<PaymentConfirmation> confirmations) {
+            pending.removeAll(confirmations);
+        }
+
+        @Override
+        public synchronized void markConfirmationsFailed(List<PaymentConfirmation> confirmations) {
+            pending.removeAll(confirmations);
+            failed.addAll(confirmations);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.payment;
+
+import com.example.money.Money;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link ConfirmationTemplate}.
+ */
+class ConfirmationTemplateTest {
+
+    /**
+     * Verifies that every placeholder is replaced, also when repeated.
+     */
+    @Test
+    void render_shouldReplacePlaceholders() {
+        // Arrange
+        ConfirmationTemplate template = ConfirmationTemplate.compile(
+                "Receipt for {amount}", "Dear {email}, {amount} was charged. Questions? Reply to this mail, {email}.");
+        // Act
+        MailMessage message = template.render("a@example.com", Money.of(99.5));
+        // Assert
+        assertEquals(new MailMessage("a@example.com", "Receipt for 99.50 SEK",
+                "Dear a@example.com, 99.50 SEK was charged. Questions? Reply to this mail, a@example.com."), message);
+    }
+
+    /**
+     * Verifies that unknown and unclosed placeholders are rejected when compiling.
+     */
+    @Test
+    void compile_shouldThrowException_whenPatternIsInvalid() {
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class, () -> ConfirmationTemplate.compile("{name}", ""));
+        assertThrows(IllegalArgumentException.class, () -> ConfirmationTemplate.compile("Paid {amount", ""));
+        assertThrows(IllegalArgumentException.class, () -> ConfirmationTemplate.compile(null, ""));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.payment;
+
+import com.example.money.Money;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput benchmark comparing direct {@code savePayment} calls with
+ * {@link GroupCommitPaymentRepository} for a growing number of concurrent writers.
+ * <p>
+ * Not a unit test; run it manually with
+ * {@code java -cp target/classes:target/test-classes com.example.payment.GroupCommitPaymentRepositoryBenchmark}.
+ * The simulated repository serializes its writes and pays a fixed commit
+ * cost per write call plus a small cost per payment, like a database that
+ * syncs its log on every commit.
+ */
+public final class GroupCommitPaymentRepositoryBenchmark {
+
+    private static final int[] WRITER_COUNTS = {1, 4, 16, 64, 256};
+    private static final long WARMUP_MILLIS = 1_000;
+    private static final long MEASURE_MILLIS = 3_000;
+    private static final long COMMIT_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long PER_PAYMENT_NANOS = TimeUnit.MICROSECONDS.toNanos(2);
+    private static final Duration COMMIT_WINDOW = Duration.ofNanos(200_000);
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private GroupCommitPaymentRepositoryBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%-13s %8s %15s %12s%n", "repository", "writers", "payments/s", "batch size");
+        for (int writers : WRITER_COUNTS) {
+            SimulatedRepository direct = new SimulatedRepository();
+            report("direct", writers, run(writers, direct), 1.0);
+
+            GroupCommitPaymentRepository grouped =
+                    new GroupCommitPaymentRepository(new SimulatedRepository(), COMMIT_WINDOW, MAX_BATCH_SIZE);
+            double throughput = run(writers, grouped);
+            report("group-commit", writers, throughput,
+                    (double) grouped.getPaymentCount() / Math.max(1, grouped.getBatchCount()));
+        }
+    }
+
+    private static double run(int writers, PaymentRepository repository) throws InterruptedException {
+        measure(writers, repository, WARMUP_MILLIS);
+        return measure(writers, repository, MEASURE_MILLIS);
+    }
+
+    private static double measure(int writers, PaymentRepository repository, long millis)
+            throws InterruptedException {
+        LongAdder saved = new LongAdder();
+        CountDownLatch done = new CountDownLatch(writers);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        Money amount = Money.of(100.0);
+        for (int w = 0; w < writers; w++) {
+            Thread.ofVirtual().start(() -> {
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    repository.savePayment(amount, "SUCCESS");
+                    count++;
+                }
+                saved.add(count);
+                done.countDown();
+            });
+        }
+        done.await();
+        return saved.sum() * 1000.0 / millis;
+    }
+
+    private static void report(String name, int writers, double paymentsPerSecond, double meanBatchSize) {
+        System.out.printf("%-13s %8d %,15.0f %12.1f%n", name, writers, paymentsPerSecond, meanBatchSize);
+    }
+
+    private static final class SimulatedRepository implements PaymentRepository {
+
+        @Override
+        public void savePayment(double amount, String status) {
+            savePayments(List.of(Money.of(amount)), status);
+        }
+
+        @Override
+        public void savePayment(Money amount, String status) {
+            savePayments(List.of(amount), status);
+        }
+
+        @Override
+        public synchronized void savePayments(List<Money> amounts, String status) {
+            LockSupport.parkNanos(COMMIT_NANOS + PER_PAYMENT_NANOS * amounts.size());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.payment;
+
+import com.example.money.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link GroupCommitPaymentRepository}.
+ */
+@ExtendWith(MockitoExtension.class)
+class GroupCommitPaymentRepositoryTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    /**
+     * Verifies that concurrent saves are written in fewer batches and that every payment is written.
+     */
+    @Test
+    void savePayment_shouldGroupConcurrentSavesIntoBatches() throws InterruptedException {
+        // Arrange
+        RecordingRepository recording = new RecordingRepository();
+        GroupCommitPaymentRepository repository =
+                new GroupCommitPaymentRepository(recording, Duration.ofMillis(100), 1_000);
+        int writers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            Money amount = Money.of(10.0 + i);
+            threads.add(Thread.startVirtualThread(() -> {
+                awaitQuietly(start);
+                repository.savePayment(amount, "SUCCESS");
+            }));
+        }
+        // Act
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Assert
+        assertEquals(writers, recording.savedAmounts().size());
+        assertEquals(writers, repository.getPaymentCount());
+        assertTrue(recording.writes.get() < writers, "writes: " + recording.writes.get());
+    }
+
+    /**
+     * Verifies that a full batch is written without waiting for the commit window.
+     */
+    @Test
+    void savePayment_shouldWriteImmediately_whenBatchIsFull() {
+        // Arrange
+        GroupCommitPaymentRepository repository =
+                new GroupCommitPaymentRepository(paymentRepository, Duration.ofMinutes(1), 1);
+        Money amount = Money.of(100.0);
+        // Act
+        repository.savePayment(amount, "SUCCESS");
+        // Assert
+        verify(paymentRepository).savePayments(List.of(amount), "SUCCESS");
+        assertEquals(1, repository.getBatchCount());
+    }
+
+    /**
+     * Verifies that a failed batch write is reported to the caller.
+     */
+    @Test
+    void savePayment_shouldThrowException_whenBatchWriteFails() {
+        // Arrange
+        GroupCommitPaymentRepository repository =
+                new GroupCommitPaymentRepository(paymentRepository, Duration.ofMillis(1), 10);
+        doThrow(new RuntimeException("Database unavailable"))
+                .when(paymentRepository).savePayments(anyList(), eq("SUCCESS"));
+        // Act + Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> repository.savePayment(Money.of(100.0), "SUCCESS"));
+        assertEquals("Database unavailable", exception.getMessage());
+    }
+
+    /**
+     * Verifies that operations other than single saves go straight to the delegate.
+     */
+    @Test
+    void otherOperations_shouldBePassedThrough() {
+        // Arrange
+        GroupCommitPaymentRepository repository =
+                new GroupCommitPaymentRepository(paymentRepository, Duration.ofMillis(1), 10);
+        PaymentApiResponse response = new PaymentApiResponse(true, "SUCCESS");
+        when(paymentRepository.findResponseByIdempotencyKey("order-1")).thenReturn(Optional.of(response));
+        // Act
+        repository.savePayments(List.of(Money.of(1.0)), "SUCCESS");
+        Optional<PaymentApiResponse> stored = repository.findResponseByIdempotencyKey("order-1");
+        // Assert
+        assertEquals(Optional.of(response), stored);
+        verify(paymentRepository).savePayments(List.of(Money.of(1.0)), "SUCCESS");
+        assertEquals(0, repository.getBatchCount());
+    }
+
+    /**
+     * Verifies that the outbox decorator batches payments saved with a confirmation.
+     */
+    @Test
+    void savePaymentWithConfirmation_shouldWriteThroughBatch_whenRepositoryHasOutbox() {
+        // Arrange
+        OutboxPaymentRepository outboxRepository = mock(OutboxPaymentRepository.class);
+        GroupCommitPaymentRepository.Outbox repository =
+                new GroupCommitPaymentRepository.Outbox(outboxRepository, Duration.ofMinutes(1), 1);
+        Money amount = Money.of(100.0);
+        // Act
+        repository.savePaymentWithConfirmation(amount, "SUCCESS", "a@example.com");
+        // Assert
+        verify(outboxRepository).savePaymentsWithConfirmations(
+                List.of(new PaymentRequest(amount, "a@example.com")), "SUCCESS");
+        verify(outboxRepository, never()).savePaymentWithConfirmation(any(Money.class), anyString(), anyString());
+        assertEquals(1, repository.getBatchCount());
+        assertEquals(1, repository.getPaymentCount());
+    }
+
+    /**
+     * Verifies that invalid settings are rejected.
+     */
+    @Test
+    void constructor_shouldThrowException_whenSettingsAreInvalid() {
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> new GroupCommitPaymentRepository(null, Duration.ofMillis(1), 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GroupCommitPaymentRepository(paymentRepository, Duration.ZERO, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GroupCommitPaymentRepository(paymentRepository, Duration.ofMillis(1), 0));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Repository that records every bulk write.
+     */
+    private static final class RecordingRepository implements PaymentRepository {
+
+        private final List<Money> saved = new ArrayList<>();
+        private final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public void savePayment(double amount, String status) {
+            throw new AssertionError("Expected bulk writes only");
+        }
+
+        @Override
+        public synchronized void savePayments(List<Money> amounts, String status) {
+            writes.incrementAndGet();
+            saved.addAll(amounts);
+        }
+
+        synchronized List<Money> savedAmounts() {
+            return List.copyOf(saved);
+        }
+    }
+}
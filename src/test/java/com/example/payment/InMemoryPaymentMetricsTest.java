@@ -0,0 +1,54 @@
+package com.example.payment;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for {@link InMemoryPaymentMetrics}.
+ */
+class InMemoryPaymentMetricsTest {
+
+    /**
+     * Verifies that in-flight gauges rise on start and fall on completion.
+     */
+    @Test
+    void gauges_shouldTrackPaymentsAndStagesInFlight() {
+        // Arrange
+        InMemoryPaymentMetrics metrics = new InMemoryPaymentMetrics();
+        // Act
+        metrics.paymentStarted();
+        metrics.paymentStarted();
+        metrics.stageStarted(PaymentStage.SAVE);
+        long paymentsDuring = metrics.getPaymentsInFlight();
+        long savesDuring = metrics.getStagesInFlight(PaymentStage.SAVE);
+        metrics.stageCompleted(PaymentStage.SAVE, Duration.ofMillis(5).toNanos(), true);
+        metrics.paymentCompleted(false);
+        metrics.paymentFailed(new RuntimeException("Database unavailable"));
+        // Assert
+        assertEquals(2, paymentsDuring);
+        assertEquals(1, savesDuring);
+        assertEquals(0, metrics.getPaymentsInFlight());
+        assertEquals(0, metrics.getStagesInFlight(PaymentStage.SAVE));
+        assertEquals(1, metrics.getFailureCount());
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(1, metrics.getStageErrorCount(PaymentStage.SAVE));
+    }
+
+    /**
+     * Verifies that stage latencies are recorded in the stage's own histogram.
+     */
+    @Test
+    void stageCompleted_shouldRecordLatencyPerStage() {
+        // Arrange
+        InMemoryPaymentMetrics metrics = new InMemoryPaymentMetrics();
+        // Act
+        metrics.stageStarted(PaymentStage.CHARGE);
+        metrics.stageCompleted(PaymentStage.CHARGE, Duration.ofMillis(120).toNanos(), false);
+        // Assert
+        assertEquals(Duration.ofMillis(120), metrics.getLatency(PaymentStage.CHARGE).getMax());
+        assertEquals(0, metrics.getLatency(PaymentStage.NOTIFY).getCount());
+    }
+}
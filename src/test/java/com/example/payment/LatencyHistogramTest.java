@@ -0,0 +1,76 @@
+package com.example.payment;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+class LatencyHistogramTest {
+
+    /**
+     * Verifies that percentiles are reported within the histogram's bucket precision.
+     */
+    @Test
+    void getPercentile_shouldBeWithinBucketPrecision() {
+        // Arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(Duration.ofNanos(i * 1_000L));
+        }
+        // Act
+        long p50 = histogram.getPercentile(50).toNanos();
+        long p99 = histogram.getPercentile(99).toNanos();
+        // Assert
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.0625, "p50 was " + p50);
+        assertTrue(p99 >= 990_000 && p99 <= 990_000 * 1.0625, "p99 was " + p99);
+        assertEquals(Duration.ofMillis(1), histogram.getPercentile(100));
+        assertEquals(Duration.ofMillis(1), histogram.getMax());
+        assertEquals(1000, histogram.getCount());
+    }
+
+    /**
+     * Verifies that an empty histogram reports zero latencies.
+     */
+    @Test
+    void getPercentile_shouldReturnZero_whenNothingRecorded() {
+        // Arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+        // Act + Assert
+        assertEquals(Duration.ZERO, histogram.getPercentile(99));
+        assertEquals(Duration.ZERO, histogram.getMean());
+    }
+
+    /**
+     * Verifies that every value falls into a bucket whose bounds contain it.
+     */
+    @Test
+    void bucketOf_shouldPlaceValueWithinBucketBounds() {
+        // Arrange
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1_000, 123_456_789L, Long.MAX_VALUE};
+        for (long value : values) {
+            // Act
+            int bucket = LatencyHistogram.bucketOf(value);
+            // Assert
+            assertTrue(LatencyHistogram.upperBoundOf(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.upperBoundOf(bucket - 1) < value);
+        }
+    }
+
+    /**
+     * Verifies that out-of-range percentiles are rejected.
+     */
+    @Test
+    void getPercentile_shouldThrowException_whenPercentileIsOutOfRange() {
+        // Arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(100.5));
+    }
+}
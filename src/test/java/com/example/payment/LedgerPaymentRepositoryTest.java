@@ -0,0 +1,182 @@
+package com.example.payment;
+
+import com.example.money.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link LedgerPaymentRepository}.
+ * <p>
+ * Each test works on a ledger file in a temporary directory.
+ */
+class LedgerPaymentRepositoryTest {
+
+    private static final Clock MARCH_FIRST = Clock.fixed(Instant.parse("2024-03-01T10:00:00Z"), ZoneOffset.UTC);
+    private static final Clock MARCH_SECOND = Clock.fixed(Instant.parse("2024-03-02T10:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * Verifies that saved payments are read back in order after reopening the ledger.
+     */
+    @Test
+    void forEachRecord_shouldReturnSavedPayments_afterReopening() {
+        // Arrange
+        Path file = directory.resolve("payments.ledger");
+        try (LedgerPaymentRepository ledger =
+                     new LedgerPaymentRepository(file, LedgerPaymentRepository.SyncPolicy.DATA, MARCH_FIRST)) {
+            ledger.savePayment(100.0, "SUCCESS");
+            ledger.savePayment(Money.of(50.0), "FAILURE");
+        }
+        List<PaymentLedgerRecord> records = new ArrayList<>();
+        // Act
+        try (LedgerPaymentRepository ledger =
+                     new LedgerPaymentRepository(file, LedgerPaymentRepository.SyncPolicy.DATA)) {
+            ledger.forEachRecord(0, records::add);
+        }
+        // Assert
+        assertEquals(List.of(
+                new PaymentLedgerRecord(0, MARCH_FIRST.instant(), Money.of(100.0), PaymentStatus.SUCCESS),
+                new PaymentLedgerRecord(1, MARCH_FIRST.instant(), Money.of(50.0), PaymentStatus.FAILURE)), records);
+    }
+
+    /**
+     * Verifies that payments are summed per status for one currency.
+     */
+    @Test
+    void totalsByStatus_shouldSumPaymentsPerStatus() {
+        // Arrange
+        try (LedgerPaymentRepository ledger = new LedgerPaymentRepository(
+                directory.resolve("payments.ledger"), LedgerPaymentRepository.SyncPolicy.NONE, MARCH_FIRST)) {
+            ledger.savePayments(List.of(Money.of(100.0), Money.of(25.0)), "SUCCESS");
+            ledger.savePayment(Money.of(50.0), "FAILURE");
+            ledger.savePayment(Money.of(10.0, Currency.getInstance("EUR")), "SUCCESS");
+            // Act
+            Map<PaymentStatus, LedgerTotals> totals = ledger.totalsByStatus(Money.DEFAULT_CURRENCY);
+            // Assert
+            assertEquals(new LedgerTotals(2, Money.of(125.0)), totals.get(PaymentStatus.SUCCESS));
+            assertEquals(new LedgerTotals(1, Money.of(50.0)), totals.get(PaymentStatus.FAILURE));
+        }
+    }
+
+    /**
+     * Verifies that payments are summed per day in the given time zone.
+     */
+    @Test
+    void dailyTotals_shouldSumPaymentsPerDay() {
+        // Arrange
+        Path file = directory.resolve("payments.ledger");
+        try (LedgerPaymentRepository ledger =
+                     new LedgerPaymentRepository(file, LedgerPaymentRepository.SyncPolicy.NONE, MARCH_FIRST)) {
+            ledger.savePayment(100.0, "SUCCESS");
+            ledger.savePayment(200.0, "SUCCESS");
+        }
+        try (LedgerPaymentRepository ledger =
+                     new LedgerPaymentRepository(file, LedgerPaymentRepository.SyncPolicy.NONE, MARCH_SECOND)) {
+            ledger.savePayment(50.0, "SUCCESS");
+            ledger.savePayment(75.0, "FAILURE");
+            // Act
+            SortedMap<LocalDate, LedgerTotals> totals = ledger.dailyTotals(
+                    PaymentStatus.SUCCESS, Money.DEFAULT_CURRENCY, ZoneId.of("Europe/Stockholm"));
+            // Assert
+            assertEquals(Map.of(
+                    LocalDate.of(2024, 3, 1), new LedgerTotals(2, Money.of(300.0)),
+                    LocalDate.of(2024, 3, 2), new LedgerTotals(1, Money.of(50.0))), totals);
+        }
+    }
+
+    /**
+     * Verifies that a torn record at the end of the file is cut off when the ledger is opened.
+     */
+    @Test
+    void constructor_shouldDropTornTail() throws IOException {
+        // Arrange
+        Path file = directory.resolve("payments.ledger");
+        try (LedgerPaymentRepository ledger =
+                     new LedgerPaymentRepository(file, LedgerPaymentRepository.SyncPolicy.DATA, MARCH_FIRST)) {
+            ledger.savePayment(100.0, "SUCCESS");
+            ledger.savePayment(200.0, "SUCCESS");
+        }
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), size - 10);
+            channel.write(ByteBuffer.wrap(new byte[10]), size);
+        }
+        // Act
+        try (LedgerPaymentRepository ledger =
+                     new LedgerPaymentRepository(file, LedgerPaymentRepository.SyncPolicy.DATA)) {
+            // Assert
+            assertEquals(1, ledger.getRecordCount());
+            assertEquals(LedgerPaymentRepository.HEADER_SIZE + LedgerPaymentRepository.RECORD_SIZE, Files.size(file));
+        }
+    }
+
+    /**
+     * Verifies that a scan reaching a corrupt record in the middle of the ledger
+     * fails with a corruption error instead of misreading it.
+     */
+    @Test
+    void totalsByStatus_shouldThrowException_whenRecordIsCorrupt() throws IOException {
+        // Arrange
+        Path file = directory.resolve("payments.ledger");
+        try (LedgerPaymentRepository ledger =
+                     new LedgerPaymentRepository(file, LedgerPaymentRepository.SyncPolicy.DATA, MARCH_FIRST)) {
+            ledger.savePayments(List.of(Money.of(100.0), Money.of(200.0), Money.of(300.0)), "SUCCESS");
+        }
+        long statusOfSecondRecord = LedgerPaymentRepository.HEADER_SIZE + LedgerPaymentRepository.RECORD_SIZE + 19;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), statusOfSecondRecord);
+        }
+        // Act
+        try (LedgerPaymentRepository ledger =
+                     new LedgerPaymentRepository(file, LedgerPaymentRepository.SyncPolicy.DATA)) {
+            List<PaymentLedgerRecord> read = new ArrayList<>();
+            IllegalStateException forEachFailure = assertThrows(IllegalStateException.class,
+                    () -> ledger.forEachRecord(0, read::add));
+            IllegalStateException totalsFailure = assertThrows(IllegalStateException.class,
+                    () -> ledger.totalsByStatus(Money.DEFAULT_CURRENCY));
+            // Assert
+            assertEquals(3, ledger.getRecordCount());
+            assertEquals(1, read.size());
+            assertEquals("Payment ledger record 1 is corrupt", forEachFailure.getMessage());
+            assertEquals("Payment ledger record 1 is corrupt", totalsFailure.getMessage());
+        }
+    }
+
+    /**
+     * Verifies that unknown statuses and foreign files are rejected.
+     */
+    @Test
+    void shouldRejectInvalidInput() throws IOException {
+        // Arrange
+        Path foreign = Files.writeString(directory.resolve("foreign.txt"), "not a payment ledger at all");
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> new LedgerPaymentRepository(foreign, LedgerPaymentRepository.SyncPolicy.NONE));
+        try (LedgerPaymentRepository ledger = new LedgerPaymentRepository(
+                directory.resolve("payments.ledger"), LedgerPaymentRepository.SyncPolicy.NONE)) {
+            assertThrows(IllegalArgumentException.class, () -> ledger.savePayment(1.0, "PENDING"));
+        }
+    }
+}
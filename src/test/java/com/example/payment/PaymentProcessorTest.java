@@ -1,13 +1,29 @@
 package com.example.payment;
 
+import com.example.money.Money;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 /**
@@ -27,7 +43,6 @@ class PaymentProcessorTest {
 
     @Mock
     private NotificationService notificationService;
-
     @InjectMocks
     private PaymentProcessor paymentProcessor;
 
@@ -74,4 +89,593 @@ class PaymentProcessorTest {
 
         verifyNoInteractions(paymentRepository, notificationService);
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifies that a fixed-point amount is passed unchanged through
+     * the charge, save and notification steps.
+     */
+    @Test
+    void processPayment_shouldPassExactAmount_whenCalledWithMoney() {
+        // Arrange
+        Money amount = Money.of(199.99);
+        String email = "customer@example.com";
+        when(paymentService.charge(amount)).thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        // Act
+        boolean result = paymentProcessor.processPayment(amount, email);
+        // Assert
+        assertTrue(result);
+
+        verify(paymentRepository).savePayment(amount, "SUCCESS");
+        verify(notificationService).sendPaymentConfirmation(email, amount);
+    }
+
+    /**
+     * Verifies that payments are charged in batches and that the successful
+     * payments of each batch are saved and confirmed with one bulk call.
+     */
+    @Test
+    void processPayments_shouldSaveAndNotifySuccessfulPaymentsPerBatch() {
+        // Arrange
+        PaymentRequest first = new PaymentRequest(Money.of(10.0), "a@example.com");
+        PaymentRequest second = new PaymentRequest(Money.of(20.0), "b@example.com");
+        PaymentRequest third = new PaymentRequest(Money.of(30.0), "c@example.com");
+        PaymentApiResponse success = new PaymentApiResponse(true, "SUCCESS");
+        PaymentApiResponse failure = new PaymentApiResponse(false, "DECLINED");
+        when(paymentService.chargeBatch(List.of(first.amount(), second.amount())))
+                .thenReturn(List.of(success, failure));
+        when(paymentService.chargeBatch(List.of(third.amount()))).thenReturn(List.of(success));
+        // Act
+        List<PaymentApiResponse> responses = paymentProcessor.processPayments(List.of(first, second, third), 2);
+        // Assert
+        assertEquals(List.of(success, failure, success), responses);
+
+        verify(paymentRepository).savePayments(List.of(first.amount()), "SUCCESS");
+        verify(paymentRepository).savePayments(List.of(third.amount()), "SUCCESS");
+        verify(notificationService).sendPaymentConfirmations(List.of(first));
+        verify(notificationService).sendPaymentConfirmations(List.of(third));
+        verify(paymentService, never()).charge(any(Money.class));
+    }
+
+    /**
+     * Verifies that a batch rejected by the gateway is reported as failed
+     * without retrying, saving or notifying.
+     */
+    @Test
+    void processPayments_shouldFailWholeBatch_whenBatchChargeThrows() {
+        // Arrange
+        PaymentRequest request = new PaymentRequest(Money.of(10.0), "a@example.com");
+        when(paymentService.chargeBatch(anyList())).thenThrow(new RuntimeException("Gateway unavailable"));
+        // Act
+        List<PaymentApiResponse> responses = paymentProcessor.processPayments(List.of(request, request));
+        // Assert
+        assertEquals(2, responses.size());
+        assertFalse(responses.get(0).success());
+        assertEquals("Batch charge failed: Gateway unavailable", responses.get(1).message());
+
+        verify(paymentService, never()).charge(any(Money.class));
+        verifyNoInteractions(paymentRepository, notificationService);
+    }
+
+    /**
+     * Verifies that a batch whose save fails keeps its charged payments successful,
+     * and that the other batches are still processed and returned.
+     */
+    @Test
+    void processPayments_shouldReportSaveFailureAndContinue_whenBatchSaveThrows() {
+        // Arrange
+        PaymentRequest first = new PaymentRequest(Money.of(10.0), "a@example.com");
+        PaymentRequest second = new PaymentRequest(Money.of(20.0), "b@example.com");
+        PaymentRequest third = new PaymentRequest(Money.of(30.0), "c@example.com");
+        PaymentApiResponse success = new PaymentApiResponse(true, "SUCCESS");
+        PaymentApiResponse failure = new PaymentApiResponse(false, "DECLINED");
+        when(paymentService.chargeBatch(List.of(first.amount(), second.amount())))
+                .thenReturn(List.of(success, failure));
+        when(paymentService.chargeBatch(List.of(third.amount()))).thenReturn(List.of(success));
+        doThrow(new RuntimeException("Disk full"))
+                .when(paymentRepository).savePayments(List.of(first.amount()), "SUCCESS");
+        // Act
+        List<PaymentApiResponse> responses = paymentProcessor.processPayments(List.of(first, second, third), 2);
+        // Assert
+        assertEquals(List.of(new PaymentApiResponse(true, "Charged but not saved: Disk full"), failure, success),
+                responses);
+
+        verify(notificationService, never()).sendPaymentConfirmations(List.of(first));
+        verify(notificationService).sendPaymentConfirmations(List.of(third));
+    }
+
+    /**
+     * Verifies that a failed batch confirmation is reported in the batch's responses.
+     */
+    @Test
+    void processPayments_shouldReportNotificationFailure_whenBatchConfirmationThrows() {
+        // Arrange
+        PaymentRequest request = new PaymentRequest(Money.of(10.0), "a@example.com");
+        when(paymentService.chargeBatch(List.of(request.amount())))
+                .thenReturn(List.of(new PaymentApiResponse(true, "SUCCESS")));
+        doThrow(new RuntimeException("Mail server down"))
+                .when(notificationService).sendPaymentConfirmations(List.of(request));
+        // Act
+        List<PaymentApiResponse> responses = paymentProcessor.processPayments(List.of(request));
+        // Assert
+        assertEquals(List.of(new PaymentApiResponse(true, "Charged but confirmation not sent: Mail server down")),
+                responses);
+
+        verify(paymentRepository).savePayments(List.of(request.amount()), "SUCCESS");
+    }
+
+    /**
+     * Verifies that the default chargeBatch charges every amount separately
+     * and turns an exception for one amount into a failed response.
+     */
+    @Test
+    void chargeBatch_shouldChargeEachAmount_whenServiceHasNoBatchSupport() {
+        // Arrange
+        PaymentService perItemService = amount -> {
+            if (amount > 100.0) {
+                throw new RuntimeException("Limit exceeded");
+            }
+            return new PaymentApiResponse(true, "SUCCESS");
+        };
+        // Act
+        List<PaymentApiResponse> responses = perItemService.chargeBatch(
+                List.of(Money.of(50.0), Money.of(150.0), Money.of(75.0)));
+        // Assert
+        assertTrue(responses.get(0).success());
+        assertEquals(new PaymentApiResponse(false, "Charge failed: Limit exceeded"), responses.get(1));
+        assertTrue(responses.get(2).success());
+    }
+
+    /**
+     * Verifies that the async result completes after the payment was saved
+     * and that the confirmation is sent in the background.
+     */
+    @Test
+    void processPaymentAsync_shouldSaveBeforeCompletingAndNotifyInBackground() throws Exception {
+        // Arrange
+        Money amount = Money.of(100.0);
+        String email = "customer@example.com";
+        when(paymentService.charge(amount)).thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        // Act
+        boolean result = paymentProcessor.processPaymentAsync(amount, email).get(5, TimeUnit.SECONDS);
+        // Assert
+        assertTrue(result);
+
+        verify(paymentRepository).savePayment(amount, "SUCCESS");
+        verify(notificationService, timeout(5_000)).sendPaymentConfirmation(email, amount);
+    }
+
+    /**
+     * Verifies that confirmations beyond the background limit are dropped
+     * without delaying the payment, and that close waits for those still in flight.
+     */
+    @Test
+    void processPaymentAsync_shouldBoundBackgroundConfirmations() throws Exception {
+        // Arrange
+        PaymentProcessor boundedProcessor = PaymentProcessor
+                .builder(paymentService, paymentRepository, notificationService)
+                .maxBackgroundConfirmations(1)
+                .build();
+        Money amount = Money.of(100.0);
+        CountDownLatch releaseNotifications = new CountDownLatch(1);
+        when(paymentService.charge(amount)).thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        doAnswer(invocation -> {
+            releaseNotifications.await();
+            return null;
+        }).when(notificationService).sendPaymentConfirmation("a@example.com", amount);
+        // Act
+        boolean first = boundedProcessor.processPaymentAsync(amount, "a@example.com").get(5, TimeUnit.SECONDS);
+        boolean second = boundedProcessor.processPaymentAsync(amount, "b@example.com").get(5, TimeUnit.SECONDS);
+        boolean awaitedWhileBlocked = boundedProcessor.awaitBackgroundConfirmations(Duration.ofMillis(50));
+        releaseNotifications.countDown();
+        boundedProcessor.close();
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(awaitedWhileBlocked);
+        assertEquals(1, boundedProcessor.getDroppedConfirmationCount());
+        assertTrue(boundedProcessor.awaitBackgroundConfirmations(Duration.ZERO));
+        verify(notificationService).sendPaymentConfirmation("a@example.com", amount);
+        verify(notificationService, never()).sendPaymentConfirmation("b@example.com", amount);
+    }
+
+    /**
+     * Verifies that a failing confirmation does not affect the async result.
+     */
+    @Test
+    void processPaymentAsync_shouldSucceed_whenConfirmationFails() throws Exception {
+        // Arrange
+        double amount = 100.0;
+        String email = "customer@example.com";
+        when(paymentService.charge(amount)).thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        doThrow(new RuntimeException("Mail server down"))
+                .when(notificationService).sendPaymentConfirmation(email, amount);
+        // Act
+        boolean result = paymentProcessor.processPaymentAsync(amount, email).get(5, TimeUnit.SECONDS);
+        // Assert
+        assertTrue(result);
+
+        verify(paymentRepository).savePayment(amount, "SUCCESS");
+        verify(notificationService, timeout(5_000)).sendPaymentConfirmation(email, amount);
+    }
+
+    /**
+     * Verifies that a failed async payment is neither saved nor confirmed.
+     */
+    @Test
+    void processPaymentAsync_shouldNotSaveAndNotify_whenUnsuccessful() throws Exception {
+        // Arrange
+        double amount = 100.0;
+        when(paymentService.charge(amount)).thenReturn(new PaymentApiResponse(false, "FAILURE"));
+        // Act
+        boolean result = paymentProcessor.processPaymentAsync(amount, "customer@example.com")
+                .get(5, TimeUnit.SECONDS);
+        // Assert
+        assertFalse(result);
+
+        verifyNoInteractions(paymentRepository, notificationService);
+    }
+
+    /**
+     * Verifies that a gateway error completes the future exceptionally.
+     */
+    @Test
+    void processPaymentAsync_shouldCompleteExceptionally_whenGatewayFails() {
+        // Arrange
+        double amount = 100.0;
+        when(paymentService.charge(amount)).thenThrow(new RuntimeException("Gateway unavailable"));
+        // Act
+        CompletableFuture<Boolean> result = paymentProcessor.processPaymentAsync(amount, "customer@example.com");
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals("Gateway unavailable", exception.getCause().getMessage());
+
+        verifyNoInteractions(paymentRepository, notificationService);
+    }
+
+    /**
+     * Verifies that an outbox processor records the confirmation with the
+     * payment instead of sending it.
+     */
+    @Test
+    void processPayment_shouldRecordConfirmationInOutbox_whenOutboxIsEnabled() {
+        // Arrange
+        OutboxPaymentRepository outboxRepository = mock(OutboxPaymentRepository.class);
+        PaymentProcessor outboxProcessor = PaymentProcessor
+                .builder(paymentService, paymentRepository, notificationService)
+                .useOutbox(outboxRepository)
+                .build();
+        Money amount = Money.of(100.0);
+        String email = "customer@example.com";
+        when(paymentService.charge(amount)).thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        // Act
+        boolean result = outboxProcessor.processPayment(amount, email);
+        // Assert
+        assertTrue(result);
+
+        verify(outboxRepository).savePaymentWithConfirmation(amount, "SUCCESS", email);
+        verify(outboxRepository, never()).savePayment(any(Money.class), anyString());
+        verifyNoInteractions(paymentRepository, notificationService);
+    }
+
+    /**
+     * Verifies that a batch processed in outbox mode records all confirmations with the payments.
+     */
+    @Test
+    void processPayments_shouldRecordConfirmationsInOutbox_whenOutboxIsEnabled() {
+        // Arrange
+        OutboxPaymentRepository outboxRepository = mock(OutboxPaymentRepository.class);
+        PaymentProcessor outboxProcessor = PaymentProcessor
+                .builder(paymentService, paymentRepository, notificationService)
+                .useOutbox(outboxRepository)
+                .build();
+        PaymentRequest request = new PaymentRequest(Money.of(10.0), "a@example.com");
+        when(paymentService.chargeBatch(List.of(request.amount())))
+                .thenReturn(List.of(new PaymentApiResponse(true, "SUCCESS")));
+        // Act
+        List<PaymentApiResponse> responses = outboxProcessor.processPayments(List.of(request));
+        // Assert
+        assertTrue(responses.get(0).success());
+
+        verify(outboxRepository).savePaymentsWithConfirmations(List.of(request), "SUCCESS");
+        verifyNoInteractions(paymentRepository, notificationService);
+    }
+
+    /**
+     * Verifies that a null outbox repository is rejected.
+     */
+    @Test
+    void useOutbox_shouldThrowException_whenRepositoryIsNull() {
+        // Arrange
+        PaymentProcessor.Builder builder = PaymentProcessor
+                .builder(paymentService, paymentRepository, notificationService);
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class, () -> builder.useOutbox(null));
+    }
+
+    /**
+     * Verifies that a retried idempotency key gets the first response without a second charge.
+     */
+    @Test
+    void processPaymentWithKey_shouldChargeOnce_whenKeyIsRetried() {
+        // Arrange
+        Money amount = Money.of(100.0);
+        String email = "customer@example.com";
+        PaymentApiResponse successResponse = new PaymentApiResponse(true, "SUCCESS");
+        when(paymentService.charge(amount)).thenReturn(successResponse);
+        // Act
+        PaymentApiResponse first = paymentProcessor.processPayment("order-1", amount, email);
+        PaymentApiResponse retry = paymentProcessor.processPayment("order-1", amount, email);
+        // Assert
+        assertEquals(successResponse, first);
+        assertEquals(successResponse, retry);
+
+        verify(paymentService, times(1)).charge(amount);
+        verify(paymentRepository, times(1)).savePayment(amount, "SUCCESS");
+        verify(paymentRepository, times(1)).saveResponseForIdempotencyKey("order-1", successResponse);
+        verify(notificationService, times(1)).sendPaymentConfirmation(email, amount);
+    }
+
+    /**
+     * Verifies that concurrent calls with the same key share one in-flight charge.
+     */
+    @Test
+    void processPaymentWithKey_shouldCoalesceConcurrentDuplicates() throws InterruptedException {
+        // Arrange
+        Money amount = Money.of(100.0);
+        CountDownLatch chargeStarted = new CountDownLatch(1);
+        CountDownLatch releaseCharge = new CountDownLatch(1);
+        when(paymentService.charge(amount)).thenAnswer(invocation -> {
+            chargeStarted.countDown();
+            releaseCharge.await();
+            return new PaymentApiResponse(true, "SUCCESS");
+        });
+        AtomicReference<PaymentApiResponse> firstResponse = new AtomicReference<>();
+        Thread first = Thread.startVirtualThread(
+                () -> firstResponse.set(paymentProcessor.processPayment("order-1", amount, "a@example.com")));
+        chargeStarted.await();
+        AtomicReference<PaymentApiResponse> duplicateResponse = new AtomicReference<>();
+        Thread duplicate = Thread.startVirtualThread(
+                () -> duplicateResponse.set(paymentProcessor.processPayment("order-1", amount, "a@example.com")));
+        // Act
+        releaseCharge.countDown();
+        first.join();
+        duplicate.join();
+        // Assert
+        assertTrue(firstResponse.get().success());
+        assertEquals(firstResponse.get(), duplicateResponse.get());
+
+        verify(paymentService, times(1)).charge(amount);
+    }
+
+    /**
+     * Verifies that a response stored in the repository is returned without charging.
+     */
+    @Test
+    void processPaymentWithKey_shouldReturnStoredResponse_whenRepositoryKnowsKey() {
+        // Arrange
+        PaymentApiResponse storedResponse = new PaymentApiResponse(false, "DECLINED");
+        when(paymentRepository.findResponseByIdempotencyKey("order-1")).thenReturn(Optional.of(storedResponse));
+        // Act
+        PaymentApiResponse response = paymentProcessor.processPayment("order-1", Money.of(100.0), "a@example.com");
+        // Assert
+        assertEquals(storedResponse, response);
+
+        verifyNoInteractions(paymentService, notificationService);
+    }
+
+    /**
+     * Verifies that a failed call is not remembered, so a retry charges again.
+     */
+    @Test
+    void processPaymentWithKey_shouldChargeAgain_whenFirstCallThrew() {
+        // Arrange
+        Money amount = Money.of(100.0);
+        when(paymentService.charge(amount))
+                .thenThrow(new RuntimeException("Gateway unavailable"))
+                .thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        // Act
+        assertThrows(RuntimeException.class,
+                () -> paymentProcessor.processPayment("order-1", amount, "a@example.com"));
+        PaymentApiResponse retry = paymentProcessor.processPayment("order-1", amount, "a@example.com");
+        // Assert
+        assertTrue(retry.success());
+
+        verify(paymentService, times(2)).charge(amount);
+    }
+
+    /**
+     * Verifies that a key is forgotten in memory after its time to live.
+     */
+    @Test
+    void processPaymentWithKey_shouldChargeAgain_whenKeyExpired() {
+        // Arrange
+        AtomicLong nanoTime = new AtomicLong(Long.MAX_VALUE - Duration.ofMinutes(5).toNanos());
+        PaymentProcessor processor = PaymentProcessor
+                .builder(paymentService, paymentRepository, notificationService)
+                .idempotency(100, Duration.ofMinutes(10))
+                .nanoClock(nanoTime::get)
+                .build();
+        Money amount = Money.of(100.0);
+        when(paymentService.charge(amount)).thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        processor.processPayment("order-1", amount, "a@example.com");
+        nanoTime.addAndGet(Duration.ofMinutes(11).toNanos());
+        // Act
+        processor.processPayment("order-1", amount, "a@example.com");
+        // Assert
+        verify(paymentService, times(2)).charge(amount);
+    }
+
+    /**
+     * Verifies that the response is stored right after the charge and that a
+     * retry after a failed save gets it without a second charge.
+     */
+    @Test
+    void processPaymentWithKey_shouldRememberResponse_whenSaveFailsAfterCharge() {
+        // Arrange
+        Money amount = Money.of(100.0);
+        PaymentApiResponse successResponse = new PaymentApiResponse(true, "SUCCESS");
+        when(paymentService.charge(amount)).thenReturn(successResponse);
+        doThrow(new RuntimeException("Disk full")).when(paymentRepository).savePayment(amount, "SUCCESS");
+        // Act
+        assertThrows(RuntimeException.class,
+                () -> paymentProcessor.processPayment("order-1", amount, "a@example.com"));
+        PaymentApiResponse retry = paymentProcessor.processPayment("order-1", amount, "a@example.com");
+        // Assert
+        assertEquals(successResponse, retry);
+
+        InOrder inOrder = inOrder(paymentRepository);
+        inOrder.verify(paymentRepository).saveResponseForIdempotencyKey("order-1", successResponse);
+        inOrder.verify(paymentRepository).savePayment(amount, "SUCCESS");
+        verify(paymentService, times(1)).charge(amount);
+    }
+
+    /**
+     * Verifies that a failure to store the response neither fails the charged
+     * payment nor lets a retry charge again.
+     */
+    @Test
+    void processPaymentWithKey_shouldNotChargeAgain_whenStoringResponseFails() {
+        // Arrange
+        Money amount = Money.of(100.0);
+        PaymentApiResponse successResponse = new PaymentApiResponse(true, "SUCCESS");
+        when(paymentService.charge(amount)).thenReturn(successResponse);
+        doThrow(new RuntimeException("Database unavailable"))
+                .when(paymentRepository).saveResponseForIdempotencyKey("order-1", successResponse);
+        // Act
+        PaymentApiResponse first = paymentProcessor.processPayment("order-1", amount, "a@example.com");
+        PaymentApiResponse retry = paymentProcessor.processPayment("order-1", amount, "a@example.com");
+        // Assert
+        assertEquals(successResponse, first);
+        assertEquals(successResponse, retry);
+
+        verify(paymentService, times(1)).charge(amount);
+        verify(paymentRepository, times(1)).savePayment(amount, "SUCCESS");
+    }
+
+    /**
+     * Verifies that a failed confirmation does not fail an idempotent payment.
+     */
+    @Test
+    void processPaymentWithKey_shouldReturnResponse_whenConfirmationFails() {
+        // Arrange
+        Money amount = Money.of(100.0);
+        PaymentApiResponse successResponse = new PaymentApiResponse(true, "SUCCESS");
+        when(paymentService.charge(amount)).thenReturn(successResponse);
+        doThrow(new RuntimeException("Mail server down"))
+                .when(notificationService).sendPaymentConfirmation("a@example.com", amount);
+        // Act
+        PaymentApiResponse response = paymentProcessor.processPayment("order-1", amount, "a@example.com");
+        // Assert
+        assertEquals(successResponse, response);
+
+        verify(paymentRepository).savePayment(amount, "SUCCESS");
+        verify(paymentRepository).saveResponseForIdempotencyKey("order-1", successResponse);
+    }
+
+    /**
+     * Verifies that a missing idempotency key is rejected.
+     */
+    @Test
+    void processPaymentWithKey_shouldThrowException_whenKeyIsBlank() {
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentProcessor.processPayment(" ", Money.of(100.0), "a@example.com"));
+        verifyNoInteractions(paymentService);
+    }
+
+    /**
+     * Verifies that a successful payment reports its outcome and every stage to the metrics.
+     */
+    @Test
+    void processPayment_shouldReportOutcomeAndStages_whenMetricsAreSet() {
+        // Arrange
+        PaymentMetrics metrics = mock(PaymentMetrics.class);
+        PaymentProcessor instrumentedProcessor = PaymentProcessor
+                .builder(paymentService, paymentRepository, notificationService)
+                .metrics(metrics)
+                .build();
+        when(paymentService.charge(100.0)).thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        // Act
+        instrumentedProcessor.processPayment(100.0, "customer@example.com");
+        // Assert
+        verify(metrics).paymentStarted();
+        verify(metrics).paymentCompleted(true);
+        for (PaymentStage stage : PaymentStage.values()) {
+            verify(metrics).stageStarted(stage);
+            verify(metrics).stageCompleted(eq(stage), anyLong(), eq(false));
+        }
+    }
+
+    /**
+     * Verifies that a gateway exception is reported as a failed payment and a failed charge stage.
+     */
+    @Test
+    void processPayment_shouldReportFailure_whenGatewayThrows() {
+        // Arrange
+        InMemoryPaymentMetrics metrics = new InMemoryPaymentMetrics();
+        PaymentProcessor instrumentedProcessor = PaymentProcessor
+                .builder(paymentService, paymentRepository, notificationService)
+                .metrics(metrics)
+                .build();
+        when(paymentService.charge(100.0)).thenThrow(new RuntimeException("Gateway unavailable"));
+        // Act
+        assertThrows(RuntimeException.class,
+                () -> instrumentedProcessor.processPayment(100.0, "customer@example.com"));
+        // Assert
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(1, metrics.getStageErrorCount(PaymentStage.CHARGE));
+        assertEquals(0, metrics.getPaymentsInFlight());
+        assertEquals(0, metrics.getLatency(PaymentStage.SAVE).getCount());
+    }
+
+    /**
+     * Verifies that a save failure after a successful charge is reported as a
+     * stage error, not as a failed payment.
+     */
+    @Test
+    void processPayment_shouldReportSuccessfulCharge_whenSaveThrows() {
+        // Arrange
+        InMemoryPaymentMetrics metrics = new InMemoryPaymentMetrics();
+        PaymentProcessor instrumentedProcessor = PaymentProcessor
+                .builder(paymentService, paymentRepository, notificationService)
+                .metrics(metrics)
+                .build();
+        when(paymentService.charge(100.0)).thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        doThrow(new RuntimeException("Database unavailable")).when(paymentRepository).savePayment(100.0, "SUCCESS");
+        // Act
+        assertThrows(RuntimeException.class,
+                () -> instrumentedProcessor.processPayment(100.0, "customer@example.com"));
+        // Assert
+        assertEquals(1, metrics.getSuccessCount());
+        assertEquals(0, metrics.getErrorCount());
+        assertEquals(1, metrics.getStageErrorCount(PaymentStage.SAVE));
+        assertEquals(0, metrics.getPaymentsInFlight());
+    }
+
+    /**
+     * Verifies that batch outcomes are counted per payment.
+     */
+    @Test
+    void processPayments_shouldCountOutcomesPerPayment_whenMetricsAreSet() {
+        // Arrange
+        InMemoryPaymentMetrics metrics = new InMemoryPaymentMetrics();
+        PaymentProcessor instrumentedProcessor = PaymentProcessor
+                .builder(paymentService, paymentRepository, notificationService)
+                .metrics(metrics)
+                .build();
+        List<PaymentRequest> requests = List.of(
+                new PaymentRequest(Money.of(10.0), "a@example.com"),
+                new PaymentRequest(Money.of(20.0), "b@example.com"));
+        when(paymentService.chargeBatch(List.of(Money.of(10.0), Money.of(20.0)))).thenReturn(List.of(
+                new PaymentApiResponse(true, "SUCCESS"),
+                new PaymentApiResponse(false, "DECLINED")));
+        // Act
+        instrumentedProcessor.processPayments(requests);
+        // Assert
+        assertEquals(1, metrics.getSuccessCount());
+        assertEquals(1, metrics.getFailureCount());
+        assertEquals(1, metrics.getLatency(PaymentStage.CHARGE).getCount());
+        assertEquals(0, metrics.getPaymentsInFlight());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.payment;
+
+import com.example.money.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link ResilientPaymentService}.
+ * <p>
+ * The circuit breaker tests drive time through a manual ticker; the deadline
+ * and bulkhead tests use a gateway that blocks until released.
+ */
+@ExtendWith(MockitoExtension.class)
+class ResilientPaymentServiceTest {
+
+    @Mock
+    private PaymentService paymentService;
+
+    private final AtomicLong now = new AtomicLong();
+    private ResilientPaymentService resilientService;
+
+    @BeforeEach
+    void setUp() {
+        resilientService = ResilientPaymentService.builder(paymentService)
+                .slidingWindowSize(4)
+                .failureRateThreshold(50)
+                .openDuration(Duration.ofSeconds(30))
+                .ticker(now::get)
+                .build();
+    }
+
+    /**
+     * Verifies that responses from a healthy gateway are passed through unchanged.
+     */
+    @Test
+    void charge_shouldReturnGatewayResponse_whenGatewayIsHealthy() {
+        // Arrange
+        Money amount = Money.of(100.0);
+        PaymentApiResponse declined = new PaymentApiResponse(false, "DECLINED");
+        when(paymentService.charge(amount)).thenReturn(declined);
+        // Act
+        PaymentApiResponse response = resilientService.charge(amount);
+        // Assert
+        assertEquals(declined, response);
+        assertEquals(ResilientPaymentService.CircuitState.CLOSED, resilientService.getCircuitState());
+        assertEquals(1, resilientService.getLatency().getCount());
+    }
+
+    /**
+     * Verifies that the circuit opens once the failure rate reaches the threshold
+     * and then rejects calls without calling the gateway.
+     */
+    @Test
+    void charge_shouldFailFast_whenCircuitIsOpen() {
+        // Arrange
+        Money amount = Money.of(100.0);
+        when(paymentService.charge(amount)).thenThrow(new RuntimeException("Gateway unavailable"));
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> resilientService.charge(amount));
+        }
+        // Act
+        PaymentServiceUnavailableException exception = assertThrows(PaymentServiceUnavailableException.class,
+                () -> resilientService.charge(amount));
+        // Assert
+        assertEquals(ResilientPaymentService.CircuitState.OPEN, resilientService.getCircuitState());
+        assertFalse(exception.isOutcomeUnknown());
+        assertEquals(1, resilientService.getRejectedCallCount());
+        verify(paymentService, times(4)).charge(amount);
+    }
+
+    /**
+     * Verifies that a successful trial call after the open duration closes the circuit.
+     */
+    @Test
+    void charge_shouldCloseCircuit_whenTrialCallSucceeds() {
+        // Arrange
+        Money amount = Money.of(100.0);
+        when(paymentService.charge(amount))
+                .thenThrow(new RuntimeException("Gateway unavailable"))
+                .thenThrow(new RuntimeException("Gateway unavailable"))
+                .thenThrow(new RuntimeException("Gateway unavailable"))
+                .thenThrow(new RuntimeException("Gateway unavailable"))
+                .thenReturn(new PaymentApiResponse(true, "SUCCESS"));
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> resilientService.charge(amount));
+        }
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        // Act
+        ResilientPaymentService.CircuitState stateBeforeTrial = resilientService.getCircuitState();
+        PaymentApiResponse response = resilientService.charge(amount);
+        // Assert
+        assertEquals(ResilientPaymentService.CircuitState.HALF_OPEN, stateBeforeTrial);
+        assertTrue(response.success());
+        assertEquals(ResilientPaymentService.CircuitState.CLOSED, resilientService.getCircuitState());
+    }
+
+    /**
+     * Verifies that a call is abandoned after the call timeout and reported with an unknown outcome.
+     */
+    @Test
+    void charge_shouldThrowException_whenGatewayExceedsDeadline() {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        PaymentService slowService = amount -> {
+            awaitQuietly(release);
+            return new PaymentApiResponse(true, "SUCCESS");
+        };
+        ResilientPaymentService service = ResilientPaymentService.builder(slowService)
+                .callTimeout(Duration.ofMillis(50))
+                .build();
+        // Act
+        PaymentServiceUnavailableException exception = assertThrows(PaymentServiceUnavailableException.class,
+                () -> service.charge(100.0));
+        release.countDown();
+        // Assert
+        assertTrue(exception.isOutcomeUnknown());
+        assertEquals(1, service.getTimedOutCallCount());
+    }
+
+    /**
+     * Verifies that calls beyond the concurrency limit are rejected while the gateway is busy.
+     */
+    @Test
+    void charge_shouldRejectCall_whenBulkheadIsFull() throws InterruptedException {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PaymentService slowService = amount -> {
+            started.countDown();
+            awaitQuietly(release);
+            return new PaymentApiResponse(true, "SUCCESS");
+        };
+        ResilientPaymentService service = ResilientPaymentService.builder(slowService)
+                .maxConcurrentCalls(1)
+                .callTimeout(Duration.ofSeconds(5))
+                .build();
+        Thread firstCaller = Thread.startVirtualThread(() -> service.charge(100.0));
+        started.await();
+        // Act
+        assertThrows(PaymentServiceUnavailableException.class, () -> service.charge(100.0));
+        release.countDown();
+        firstCaller.join();
+        // Assert
+        assertEquals(1, service.getRejectedCallCount());
+    }
+
+    /**
+     * Verifies that invalid builder settings are rejected.
+     */
+    @Test
+    void builder_shouldThrowException_whenSettingsAreInvalid() {
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class, () -> ResilientPaymentService.builder(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> ResilientPaymentService.builder(paymentService).callTimeout(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class,
+                () -> ResilientPaymentService.builder(paymentService).maxConcurrentCalls(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> ResilientPaymentService.builder(paymentService).failureRateThreshold(101));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
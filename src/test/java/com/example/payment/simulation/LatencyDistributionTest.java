@@ -0,0 +1,87 @@
+package com.example.payment.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link LatencyDistribution}.
+ */
+class LatencyDistributionTest {
+
+    /**
+     * Verifies that a log-normal distribution is centred on its median.
+     */
+    @Test
+    void logNormal_shouldSampleAroundMedian() {
+        // Arrange
+        LatencyDistribution distribution = LatencyDistribution.logNormal(Duration.ofMillis(10), 0.5);
+        SplittableRandom random = new SplittableRandom(42);
+        long[] samples = new long[10_001];
+        // Act
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = distribution.sampleNanos(random);
+        }
+        // Assert
+        Arrays.sort(samples);
+        long median = samples[samples.length / 2];
+        assertTrue(median > 9_500_000 && median < 10_500_000, "median was " + median);
+    }
+
+    /**
+     * Verifies that uniform samples stay within their bounds.
+     */
+    @Test
+    void uniform_shouldSampleWithinBounds() {
+        // Arrange
+        LatencyDistribution distribution = LatencyDistribution.uniform(Duration.ofMillis(1), Duration.ofMillis(2));
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 1000; i++) {
+            // Act
+            long sample = distribution.sampleNanos(random);
+            // Assert
+            assertTrue(sample >= 1_000_000 && sample <= 2_000_000, "sample was " + sample);
+        }
+    }
+
+    /**
+     * Verifies that a tail replaces roughly its share of the samples.
+     */
+    @Test
+    void withTail_shouldUseTailWithGivenProbability() {
+        // Arrange
+        LatencyDistribution distribution = LatencyDistribution.fixed(Duration.ofMillis(1))
+                .withTail(0.1, LatencyDistribution.fixed(Duration.ofSeconds(1)));
+        SplittableRandom random = new SplittableRandom(42);
+        int tailSamples = 0;
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            if (distribution.sampleNanos(random) == Duration.ofSeconds(1).toNanos()) {
+                tailSamples++;
+            }
+        }
+        // Assert
+        assertTrue(tailSamples > 900 && tailSamples < 1100, "tail samples were " + tailSamples);
+    }
+
+    /**
+     * Verifies that invalid parameters are rejected.
+     */
+    @Test
+    void factories_shouldThrowException_whenParametersAreInvalid() {
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.logNormal(Duration.ZERO, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.logNormal(Duration.ofMillis(1), -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> LatencyDistribution.uniform(Duration.ofMillis(2), Duration.ofMillis(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> LatencyDistribution.fixed(Duration.ZERO).withTail(1.5, LatencyDistribution.fixed(Duration.ZERO)));
+        assertEquals(0, LatencyDistribution.fixed(Duration.ZERO).sampleNanos(new SplittableRandom()));
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.payment.simulation;
+
+import com.example.money.Money;
+import com.example.payment.PaymentProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link PaymentLoadGenerator}.
+ */
+class PaymentLoadGeneratorTest {
+
+    /**
+     * Verifies that a uniform arrival process schedules requests at the offered rate.
+     */
+    @Test
+    void run_shouldScheduleRequestsAtOfferedRate() {
+        // Arrange
+        PaymentLoadGenerator generator = PaymentLoadGenerator.builder(request -> true)
+                .ratePerSecond(100)
+                .arrivals(ArrivalProcess.UNIFORM)
+                .build();
+        // Act
+        LoadReport report = generator.run(Duration.ofMillis(500));
+        // Assert
+        assertEquals(50, report.scheduled());
+        assertEquals(50, report.succeeded());
+        assertEquals(0, report.deferred());
+        assertEquals(50, report.latency().getCount());
+    }
+
+    /**
+     * Verifies that successes, declines and failures are counted separately.
+     */
+    @Test
+    void run_shouldCountOutcomes() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        PaymentLoadGenerator generator = PaymentLoadGenerator.builder(request -> switch (calls.incrementAndGet() % 3) {
+            case 0 -> throw new IllegalStateException("Gateway down");
+            case 1 -> true;
+            default -> false;
+        }).ratePerSecond(100).arrivals(ArrivalProcess.UNIFORM).build();
+        // Act
+        LoadReport report = generator.run(Duration.ofMillis(300));
+        // Assert
+        assertEquals(30, report.scheduled());
+        assertEquals(10, report.succeeded());
+        assertEquals(10, report.declined());
+        assertEquals(10, report.failed());
+        assertEquals(10L, report.failuresByType().get("IllegalStateException"));
+    }
+
+    /**
+     * Verifies that latency includes the time a request waited behind a stalled
+     * system, while the service time does not.
+     */
+    @Test
+    void run_shouldMeasureLatencyFromScheduledStart() {
+        // Arrange
+        Object gateway = new Object();
+        AtomicInteger calls = new AtomicInteger();
+        PaymentLoadGenerator generator = PaymentLoadGenerator.builder(request -> {
+            // One slow call blocks every request scheduled behind it
+            long pause = calls.incrementAndGet() == 1 ? 500 : 0;
+            synchronized (gateway) {
+                sleep(pause);
+            }
+            return true;
+        }).ratePerSecond(100).arrivals(ArrivalProcess.UNIFORM).build();
+        // Act
+        LoadReport report = generator.run(Duration.ofMillis(400));
+        // Assert
+        Duration latency = report.latency().getPercentile(50);
+        assertTrue(latency.compareTo(Duration.ofMillis(100)) > 0, "p50 latency was " + latency);
+        assertTrue(report.latency().getPercentile(50).compareTo(report.serviceTime().getPercentile(50)) >= 0);
+    }
+
+    /**
+     * Verifies that requests beyond the in-flight limit are deferred, not dropped,
+     * and that their latency includes the wait for a free slot.
+     */
+    @Test
+    void run_shouldDeferRequests_whenInFlightLimitIsReached() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        PaymentLoadGenerator generator = PaymentLoadGenerator.builder(request -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }).ratePerSecond(100).arrivals(ArrivalProcess.UNIFORM).maxInFlight(5).build();
+        Thread.ofVirtual().start(() -> {
+            sleep(300);
+            release.countDown();
+        });
+        // Act
+        LoadReport report = generator.run(Duration.ofMillis(200));
+        // Assert
+        assertEquals(20, report.scheduled());
+        assertEquals(20, report.succeeded());
+        assertTrue(report.deferred() > 0, "deferred: " + report.deferred());
+        assertEquals(20, report.latency().getCount());
+        assertTrue(report.latency().getMax().compareTo(Duration.ofMillis(100)) >= 0,
+                "max latency: " + report.latency().getMax());
+    }
+
+    /**
+     * Verifies that the processor operation sends each payment through the processor.
+     */
+    @Test
+    void forProcessor_shouldProcessPaymentWithProcessor() {
+        // Arrange
+        PaymentProcessor processor = mock(PaymentProcessor.class);
+        when(processor.processPayment(any(Money.class), anyString())).thenReturn(true);
+        PaymentLoadGenerator generator = PaymentLoadGenerator.builder(PaymentOperation.forProcessor(processor))
+                .ratePerSecond(100)
+                .arrivals(ArrivalProcess.UNIFORM)
+                .build();
+        // Act
+        LoadReport report = generator.run(Duration.ofMillis(100));
+        // Assert
+        assertEquals(10, report.succeeded());
+        verify(processor, times(10)).processPayment(any(Money.class), anyString());
+    }
+
+    /**
+     * Verifies that invalid settings are rejected.
+     */
+    @Test
+    void builder_shouldThrowException_whenSettingsAreInvalid() {
+        // Arrange
+        PaymentOperation operation = request -> true;
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class, () -> PaymentLoadGenerator.builder(null));
+        assertThrows(IllegalArgumentException.class, () -> PaymentLoadGenerator.builder(operation).ratePerSecond(0));
+        assertThrows(IllegalArgumentException.class, () -> PaymentLoadGenerator.builder(operation).maxInFlight(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> PaymentLoadGenerator.builder(operation).build().run(Duration.ZERO));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.payment.simulation;
+
+import com.example.RateLimit;
+import com.example.money.Money;
+import com.example.payment.PaymentApiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link SimulatedPaymentService}.
+ */
+class SimulatedPaymentServiceTest {
+
+    private static SimulatedPaymentService.Builder instantGateway() {
+        return SimulatedPaymentService.builder().latency(LatencyDistribution.fixed(Duration.ZERO)).seed(42);
+    }
+
+    /**
+     * Verifies that a charge takes at least the configured latency.
+     */
+    @Test
+    void charge_shouldWaitForSampledLatency() {
+        // Arrange
+        SimulatedPaymentService service = instantGateway()
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(50)))
+                .build();
+        // Act
+        long start = System.nanoTime();
+        PaymentApiResponse response = service.charge(Money.of(100));
+        long elapsed = System.nanoTime() - start;
+        // Assert
+        assertTrue(response.success());
+        assertTrue(elapsed >= Duration.ofMillis(50).toNanos(), "elapsed was " + elapsed);
+    }
+
+    /**
+     * Verifies that declines and errors occur at roughly their configured rates.
+     */
+    @Test
+    void charge_shouldDeclineAndFailAtConfiguredRates() {
+        // Arrange
+        SimulatedPaymentService service = instantGateway().declineRate(0.2).errorRate(0.1).build();
+        int declined = 0;
+        int failed = 0;
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            try {
+                if (!service.charge(Money.of(100)).success()) {
+                    declined++;
+                }
+            } catch (IllegalStateException e) {
+                failed++;
+            }
+        }
+        // Assert
+        assertTrue(declined > 1800 && declined < 2200, "declined was " + declined);
+        assertTrue(failed > 900 && failed < 1100, "failed was " + failed);
+        assertEquals(declined, service.getDeclinedCount());
+        assertEquals(failed, service.getErrorCount());
+        assertEquals(10_000, service.getCallCount());
+    }
+
+    /**
+     * Verifies that two gateways with the same seed produce the same outcomes.
+     */
+    @Test
+    void charge_shouldBeRepeatable_whenSeedIsFixed() {
+        // Arrange
+        SimulatedPaymentService first = instantGateway().declineRate(0.5).build();
+        SimulatedPaymentService second = instantGateway().declineRate(0.5).build();
+        // Act + Assert
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.charge(Money.of(100)), second.charge(Money.of(100)));
+        }
+    }
+
+    /**
+     * Verifies that a timed-out call hangs for the hang duration and then fails.
+     */
+    @Test
+    void charge_shouldHangAndThrowException_whenCallTimesOut() {
+        // Arrange
+        SimulatedPaymentService service = instantGateway().timeouts(1, Duration.ofMillis(50)).build();
+        // Act
+        long start = System.nanoTime();
+        assertThrows(IllegalStateException.class, () -> service.charge(Money.of(100)));
+        long elapsed = System.nanoTime() - start;
+        // Assert
+        assertTrue(elapsed >= Duration.ofMillis(50).toNanos(), "elapsed was " + elapsed);
+        assertEquals(1, service.getTimeoutCount());
+    }
+
+    /**
+     * Verifies that calls beyond the rate limit fail at once.
+     */
+    @Test
+    void charge_shouldThrowException_whenRateLimitIsExceeded() {
+        // Arrange
+        SimulatedPaymentService service = instantGateway().rateLimit(new RateLimit(3, 0.001)).build();
+        for (int i = 0; i < 3; i++) {
+            service.charge(Money.of(100));
+        }
+        // Act + Assert
+        assertThrows(IllegalStateException.class, () -> service.charge(Money.of(100)));
+        assertEquals(1, service.getRateLimitedCount());
+    }
+
+    /**
+     * Verifies that failed batch items are reported as failed responses.
+     */
+    @Test
+    void chargeBatch_shouldReportFailedItemsAsFailedResponses() {
+        // Arrange
+        SimulatedPaymentService service = instantGateway().errorRate(1).build();
+        // Act
+        List<PaymentApiResponse> responses = service.chargeBatch(Collections.nCopies(5, Money.of(100)));
+        // Assert
+        assertEquals(5, responses.size());
+        responses.forEach(response -> assertFalse(response.success()));
+        assertEquals(1, service.getCallCount());
+    }
+
+    /**
+     * Verifies that invalid rates are rejected.
+     */
+    @Test
+    void builder_shouldThrowException_whenRatesAreInvalid() {
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class, () -> SimulatedPaymentService.builder().declineRate(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> SimulatedPaymentService.builder().errorRate(1.1));
+        assertThrows(IllegalArgumentException.class,
+                () -> SimulatedPaymentService.builder().declineRate(0.6).errorRate(0.6).build());
+    }
+}
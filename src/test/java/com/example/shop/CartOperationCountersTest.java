@@ -0,0 +1,119 @@
+package com.example.shop;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link CartOperationCounters} and the cart's flight recorder event.
+ * <p>
+ * Tests cover counting per operation, cart size distribution
+ * and events emitted while a recording is active.
+ */
+class CartOperationCountersTest {
+
+    private ShoppingCart cart;
+    private CartOperationCounters counters;
+    private Product hat;
+
+    @BeforeEach
+    void setUp() {
+        cart = new ShoppingCart();
+        counters = new CartOperationCounters();
+        hat = new Product("Hat", 250.0);
+    }
+
+    /**
+     * Verifies that every instrumented operation is counted once.
+     */
+    @Test
+    void operations_shouldBeCounted_whenCountersAreSet() {
+        // Arrange
+        cart.setOperationCounters(counters);
+        // Act
+        cart.addItem(hat);
+        cart.addItem(hat);
+        cart.removeItem(hat);
+        cart.updateQuantity(new Product("Pants", 700.0), 3);
+        cart.applyDiscount(0.1);
+        cart.getTotalPrice();
+        // Assert
+        assertThat(counters.getCount(CartOperation.ADD_ITEM)).isEqualTo(2);
+        assertThat(counters.getCount(CartOperation.REMOVE_ITEM)).isEqualTo(1);
+        assertThat(counters.getCount(CartOperation.UPDATE_QUANTITY)).isEqualTo(1);
+        assertThat(counters.getCount(CartOperation.APPLY_DISCOUNT)).isEqualTo(1);
+        assertThat(counters.getCount(CartOperation.GET_TOTAL_PRICE)).isEqualTo(1);
+        assertThat(counters.getMaxItemCount()).isEqualTo(2);
+        assertThat(counters.getTotalTime(CartOperation.ADD_ITEM)).isGreaterThanOrEqualTo(Duration.ZERO);
+    }
+
+    /**
+     * Verifies that cart sizes are bucketed by powers of two.
+     */
+    @Test
+    void itemCountDistribution_shouldBucketByPowersOfTwo() {
+        // Arrange
+        cart.setOperationCounters(counters);
+        // Act
+        for (int i = 0; i < 5; i++) {
+            cart.addItem(new Product("Product " + i, 10.0));
+        }
+        // Assert
+        long[] distribution = counters.getItemCountDistribution();
+        assertThat(distribution[1]).isEqualTo(1);
+        assertThat(distribution[2]).isEqualTo(2);
+        assertThat(distribution[3]).isEqualTo(2);
+    }
+
+    /**
+     * Verifies that nothing is recorded after the counters are removed.
+     */
+    @Test
+    void operations_shouldNotBeCounted_whenCountersAreRemoved() {
+        // Arrange
+        cart.setOperationCounters(counters);
+        cart.addItem(hat);
+        // Act
+        cart.setOperationCounters(null);
+        cart.addItem(hat);
+        // Assert
+        assertThat(counters.getCount(CartOperation.ADD_ITEM)).isEqualTo(1);
+    }
+
+    /**
+     * Verifies that operations emit flight recorder events while the event is enabled.
+     */
+    @Test
+    void operations_shouldEmitEvents_whenRecordingIsActive(@TempDir Path directory) throws IOException {
+        // Arrange
+        Path file = directory.resolve("cart.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.shop.CartOperation");
+            recording.start();
+            // Act
+            cart.addItem(hat);
+            cart.updateQuantity(hat, 4);
+            recording.stop();
+            recording.dump(file);
+        }
+        // Assert
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("com.example.shop.CartOperation"))
+                .toList();
+        assertThat(events).extracting(event -> event.getString("operation"))
+                .containsExactly("ADD_ITEM", "UPDATE_QUANTITY");
+        assertThat(events.get(1).getInt("totalItems")).isEqualTo(4);
+        assertThat(events.get(1).getDuration()).isGreaterThanOrEqualTo(Duration.ZERO);
+        assertThat(events.get(1).getStartTime()).isAfterOrEqualTo(events.get(0).getEndTime());
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.shop;
+
+import com.example.money.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link ConcurrentShoppingCart}.
+ * <p>
+ * Covers the single-threaded cart contract and multithreaded stress
+ * scenarios where several sessions mutate the same cart at once.
+ */
+class ConcurrentShoppingCartTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 10_000;
+
+    private ConcurrentShoppingCart cart;
+
+    @BeforeEach
+    void setUp() {
+        cart = new ConcurrentShoppingCart();
+    }
+
+    /**
+     * Tests for the basic cart operations.
+     */
+    @Nested
+    @DisplayName("Cart operations")
+    class CartOperationsTests {
+
+        /**
+         * Verifies that add, remove and update keep quantities and totals consistent.
+         */
+        @Test
+        void mutations_shouldUpdateQuantitiesAndTotals() {
+            // Arrange
+            Product hat = new Product("Hat", 250.0);
+            Product pants = new Product("Pants", 700.0);
+            // Act
+            cart.addItem(hat);
+            cart.addItem(hat);
+            cart.addItem(pants);
+            cart.removeItem(hat);
+            cart.updateQuantity(pants, 3);
+            // Assert
+            assertThat(cart.getQuantity(hat)).isEqualTo(1);
+            assertThat(cart.getQuantity(pants)).isEqualTo(3);
+            assertThat(cart.getItemCount()).isEqualTo(2);
+            assertThat(cart.getTotalItems()).isEqualTo(4);
+            assertThat(cart.getTotalPrice()).isEqualTo(2350.0);
+        }
+
+        /**
+         * Verifies that the discount is applied to the total.
+         */
+        @Test
+        void applyDiscount_shouldReduceTotal() {
+            // Arrange
+            cart.addItem(new Product("Hat", 250.0));
+            // Act
+            cart.applyDiscount(0.2);
+            // Assert
+            assertThat(cart.getTotalPrice()).isEqualTo(200.0);
+        }
+
+        /**
+         * Verifies that removing a product not in the cart returns false.
+         */
+        @Test
+        void removeItem_shouldReturnFalse_whenItemNotInCart() {
+            // Act + Assert
+            assertThat(cart.removeItem(new Product("Hat", 250.0))).isFalse();
+            assertThat(cart.getTotalItems()).isZero();
+        }
+
+        /**
+         * Verifies that an overflowing quantity is rejected before the line is changed.
+         */
+        @Test
+        void updateQuantity_shouldLeaveCartUnchanged_whenLineTotalOverflows() {
+            // Arrange
+            Product yacht = new Product("Yacht", Money.ofMinor(Long.MAX_VALUE / 2, Money.DEFAULT_CURRENCY));
+            cart.updateQuantity(yacht, 1);
+            // Act + Assert
+            assertThatThrownBy(() -> cart.updateQuantity(yacht, 3))
+                    .isInstanceOf(ArithmeticException.class);
+            assertThat(cart.getQuantity(yacht)).isEqualTo(1);
+            assertThat(cart.getTotalItems()).isEqualTo(1);
+            assertThat(cart.getTotal()).isEqualTo(yacht.unitPrice());
+        }
+
+        /**
+         * Verifies that clear resets lines and totals.
+         */
+        @Test
+        void clear_shouldResetLinesAndTotals() {
+            // Arrange
+            cart.addItem(new Product("Hat", 250.0));
+            cart.updateQuantity(new Product("Pants", 700.0), 2);
+            // Act
+            cart.clear();
+            // Assert
+            assertThat(cart.getItemCount()).isZero();
+            assertThat(cart.getTotalItems()).isZero();
+            assertThat(cart.getTotalPrice()).isZero();
+        }
+
+        /**
+         * Verifies that an overflowing line quantity is rejected and leaves the cart unchanged.
+         */
+        @Test
+        void addItem_shouldLeaveCartUnchanged_whenQuantityOverflows() {
+            // Arrange
+            Product pin = new Product("Pin", Money.ofMinor(1, Money.DEFAULT_CURRENCY));
+            cart.updateQuantity(pin, Integer.MAX_VALUE);
+            // Act + Assert
+            assertThatThrownBy(() -> cart.addItem(pin))
+                    .isInstanceOf(ArithmeticException.class);
+            assertThat(cart.getQuantity(pin)).isEqualTo(Integer.MAX_VALUE);
+            assertThat(cart.getTotal().minorUnits()).isEqualTo(Integer.MAX_VALUE);
+        }
+
+        /**
+         * Verifies that a null product throws {@link IllegalArgumentException}.
+         */
+        @Test
+        void addItem_shouldThrowException_whenProductIsNull() {
+            // Act + Assert
+            assertThatThrownBy(() -> cart.addItem(null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Product cannot be null");
+        }
+    }
+
+    /**
+     * Stress tests where several threads mutate the same cart.
+     */
+    @Nested
+    @DisplayName("Concurrent updates")
+    class ConcurrentUpdateTests {
+
+        /**
+         * Verifies that no additions are lost when many threads add the same product.
+         */
+        @Test
+        void concurrentAddItem_shouldNotLoseUpdates() throws Exception {
+            // Arrange
+            Product hat = new Product("Hat", 250.0);
+            // Act
+            runConcurrently(thread -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    cart.addItem(hat);
+                }
+            });
+            // Assert
+            int expected = THREADS * OPERATIONS_PER_THREAD;
+            assertThat(cart.getQuantity(hat)).isEqualTo(expected);
+            assertThat(cart.getTotalItems()).isEqualTo(expected);
+            assertThat(cart.getTotalPrice()).isEqualTo(expected * 250.0);
+        }
+
+        /**
+         * Verifies that concurrent adds and removes of different products
+         * leave totals that match the per-product quantities.
+         */
+        @Test
+        void concurrentMixedUpdates_shouldKeepTotalsConsistent() throws Exception {
+            // Arrange
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                products.add(new Product("Product " + i, 10.0 + i));
+            }
+            // Act
+            runConcurrently(thread -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Product product = products.get((thread + i) % products.size());
+                    cart.addItem(product);
+                    cart.addItem(product);
+                    cart.removeItem(product);
+                }
+            });
+            // Assert
+            long expectedMinorUnits = products.stream()
+                    .mapToLong(product -> product.unitPrice().minorUnits() * cart.getQuantity(product))
+                    .sum();
+            int expectedItems = products.stream().mapToInt(cart::getQuantity).sum();
+            assertThat(expectedItems).isEqualTo(THREADS * OPERATIONS_PER_THREAD);
+            assertThat(cart.getTotalItems()).isEqualTo(expectedItems);
+            assertThat(cart.getTotal().minorUnits()).isEqualTo(expectedMinorUnits);
+        }
+
+        /**
+         * Verifies that snapshots taken during concurrent updates always have
+         * totals that match the lines they contain.
+         */
+        @Test
+        void snapshot_shouldMatchItsLines_whileUpdatesAreInFlight() throws Exception {
+            // Arrange
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                products.add(new Product("Product " + i, 10.0 + i));
+            }
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<ConcurrentShoppingCart.Snapshot> inconsistent = new ArrayList<>();
+            Thread reader = Thread.ofPlatform().start(() -> {
+                while (running.get()) {
+                    ConcurrentShoppingCart.Snapshot snapshot = cart.snapshot();
+                    long minorUnits = 0;
+                    int units = 0;
+                    for (var line : snapshot.items().entrySet()) {
+                        minorUnits += line.getKey().unitPrice().minorUnits() * line.getValue();
+                        units += line.getValue();
+                    }
+                    if (minorUnits != snapshot.total().minorUnits() || units != snapshot.totalItems()) {
+                        inconsistent.add(snapshot);
+                    }
+                }
+            });
+            // Act
+            try {
+                runConcurrently(thread -> {
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        Product product = products.get((thread + i) % products.size());
+                        cart.addItem(product);
+                        cart.updateQuantity(product, i % 3);
+                        cart.removeItem(product);
+                    }
+                });
+            } finally {
+                running.set(false);
+                reader.join();
+            }
+            // Assert
+            assertThat(inconsistent).isEmpty();
+        }
+    }
+
+    private void runConcurrently(ThreadBody body) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int index = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    body.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadBody {
+        void run(int thread);
+    }
+}
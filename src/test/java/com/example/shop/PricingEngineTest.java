@@ -0,0 +1,178 @@
+package com.example.shop;
+
+import com.example.money.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link PricingEngine} and {@link PromotionRule} applied to a {@link ShoppingCart}.
+ * <p>
+ * Tests cover each rule type, stacking with the percentage discount,
+ * incremental re-evaluation on every mutation and rule validation.
+ */
+class PricingEngineTest {
+
+    private ShoppingCart cart;
+    private Product hat;
+    private Product scarf;
+    private Product gloves;
+
+    @BeforeEach
+    void setUp() {
+        cart = new ShoppingCart();
+        hat = new Product("Hat", 100.0);
+        scarf = new Product("Scarf", 200.0);
+        gloves = new Product("Gloves", 50.0);
+    }
+
+    /**
+     * Verifies that a product discount only reduces the price of that product.
+     */
+    @Test
+    void productDiscount_shouldReduceOnlyMatchingProduct() {
+        // Arrange
+        cart.applyPromotions(new PricingEngine(List.of(new PromotionRule.ProductDiscount(hat, 0.25))));
+        // Act
+        cart.addItem(hat);
+        cart.addItem(hat);
+        cart.addItem(scarf);
+        // Assert
+        assertThat(cart.getPromotionSavings()).isEqualTo(Money.of(50.0));
+        assertThat(cart.getTotalPrice()).isEqualTo(350.0);
+    }
+
+    /**
+     * Verifies that the highest reached tier applies and follows quantity changes.
+     */
+    @Test
+    void tieredDiscount_shouldApplyHighestReachedTier() {
+        // Arrange
+        cart.applyPromotions(new PricingEngine(List.of(new PromotionRule.TieredDiscount(gloves, List.of(
+                new PromotionRule.Tier(10, 0.20),
+                new PromotionRule.Tier(3, 0.10))))));
+        // Act + Assert
+        cart.updateQuantity(gloves, 2);
+        assertThat(cart.getTotalPrice()).isEqualTo(100.0);
+        cart.updateQuantity(gloves, 3);
+        assertThat(cart.getTotalPrice()).isEqualTo(135.0);
+        cart.updateQuantity(gloves, 10);
+        assertThat(cart.getTotalPrice()).isEqualTo(400.0);
+        cart.removeItem(gloves);
+        assertThat(cart.getTotalPrice()).isEqualTo(405.0);
+    }
+
+    /**
+     * Verifies that buy-X-get-Y only counts complete groups.
+     */
+    @Test
+    void buyXGetY_shouldMakeFreeUnitsOfCompleteGroupsFree() {
+        // Arrange
+        cart.applyPromotions(new PricingEngine(List.of(new PromotionRule.BuyXGetY(hat, 2, 1))));
+        // Act + Assert
+        cart.updateQuantity(hat, 2);
+        assertThat(cart.getTotalPrice()).isEqualTo(200.0);
+        cart.addItem(hat);
+        assertThat(cart.getTotalPrice()).isEqualTo(200.0);
+        cart.updateQuantity(hat, 7);
+        assertThat(cart.getTotalPrice()).isEqualTo(500.0);
+    }
+
+    /**
+     * Verifies that a bundle price applies to every complete set and is
+     * re-evaluated when any of its products changes.
+     */
+    @Test
+    void bundle_shouldPriceCompleteSets() {
+        // Arrange
+        cart.applyPromotions(new PricingEngine(List.of(
+                new PromotionRule.Bundle(Set.of(hat, scarf), Money.of(250.0)))));
+        // Act + Assert
+        cart.updateQuantity(hat, 2);
+        assertThat(cart.getTotalPrice()).isEqualTo(200.0);
+        cart.addItem(scarf);
+        assertThat(cart.getTotalPrice()).isEqualTo(350.0);
+        cart.addItem(scarf);
+        assertThat(cart.getTotalPrice()).isEqualTo(500.0);
+        cart.updateQuantity(hat, 0);
+        assertThat(cart.getTotalPrice()).isEqualTo(400.0);
+    }
+
+    /**
+     * Verifies that the percentage discount applies after promotions.
+     */
+    @Test
+    void applyDiscount_shouldApplyAfterPromotions() {
+        // Arrange
+        cart.applyPromotions(new PricingEngine(List.of(new PromotionRule.BuyXGetY(hat, 1, 1))));
+        cart.updateQuantity(hat, 2);
+        cart.addItem(scarf);
+        // Act
+        cart.applyDiscount(0.10);
+        // Assert
+        assertThat(cart.getTotalPrice()).isEqualTo(270.0);
+    }
+
+    /**
+     * Verifies that promotions attached to a non-empty cart are evaluated immediately
+     * and can be removed again.
+     */
+    @Test
+    void applyPromotions_shouldEvaluateExistingLines() {
+        // Arrange
+        cart.updateQuantity(hat, 2);
+        PricingEngine engine = new PricingEngine(List.of(new PromotionRule.ProductDiscount(hat, 0.5)));
+        // Act + Assert
+        cart.applyPromotions(engine);
+        assertThat(cart.getTotalPrice()).isEqualTo(100.0);
+        cart.applyPromotions(null);
+        assertThat(cart.getTotalPrice()).isEqualTo(200.0);
+    }
+
+    /**
+     * Verifies that stacked promotions never make the total negative
+     * and are reset together with the cart.
+     */
+    @Test
+    void stackedPromotions_shouldNotReduceTotalBelowZero() {
+        // Arrange
+        cart.applyPromotions(new PricingEngine(List.of(
+                new PromotionRule.ProductDiscount(hat, 1.0),
+                new PromotionRule.BuyXGetY(hat, 1, 1))));
+        cart.updateQuantity(hat, 2);
+        // Act + Assert
+        assertThat(cart.getTotalPrice()).isZero();
+        cart.clear();
+        assertThat(cart.getPromotionSavings().isZero()).isTrue();
+        cart.addItem(hat);
+        assertThat(cart.getTotalPrice()).isZero();
+    }
+
+    /**
+     * Verifies that invalid rules are rejected at construction time.
+     */
+    @Test
+    void invalidRules_shouldThrowException() {
+        // Act + Assert
+        assertThatThrownBy(() -> new PromotionRule.ProductDiscount(hat, 1.5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Discount cannot be greater than 100%");
+        assertThatThrownBy(() -> new PromotionRule.BuyXGetY(hat, 0, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Buy and free quantities must be positive");
+        assertThatThrownBy(() -> new PromotionRule.Bundle(Set.of(hat), Money.of(50.0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("A bundle needs at least two products");
+        assertThatThrownBy(() -> new PromotionRule.Bundle(Set.of(hat, scarf), Money.of(400.0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Bundle price must be between zero and the regular price");
+        assertThatThrownBy(() -> new PromotionRule.TieredDiscount(hat, List.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Tiers cannot be null or empty");
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.shop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link ProductCatalog}.
+ * <p>
+ * Tests cover interning, dense id assignment, lookups by id,
+ * concurrent registration and carts backed by a catalog.
+ */
+class ProductCatalogTest {
+
+    private ProductCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ProductCatalog();
+    }
+
+    /**
+     * Verifies that equal products are interned to the first registered instance.
+     */
+    @Test
+    void intern_shouldReturnCanonicalInstance_whenProductsAreEqual() {
+        // Arrange
+        Product first = new Product("Hat", 250.0);
+        Product copy = new Product("Hat", 250.0);
+        // Act
+        Product internedFirst = catalog.intern(first);
+        Product internedCopy = catalog.intern(copy);
+        // Assert
+        assertThat(internedFirst).isSameAs(first);
+        assertThat(internedCopy).isSameAs(first);
+        assertThat(catalog.size()).isEqualTo(1);
+    }
+
+    /**
+     * Verifies that ids are dense, stable and resolve back to the product.
+     */
+    @Test
+    void idOf_shouldAssignDenseIdsInRegistrationOrder() {
+        // Arrange
+        Product hat = new Product("Hat", 250.0);
+        Product scarf = new Product("Scarf", 300.0);
+        // Act
+        int hatId = catalog.idOf(hat);
+        int scarfId = catalog.idOf(scarf);
+        // Assert
+        assertThat(hatId).isZero();
+        assertThat(scarfId).isEqualTo(1);
+        assertThat(catalog.idOf(new Product("Hat", 250.0))).isEqualTo(hatId);
+        assertThat(catalog.product(scarfId)).isSameAs(scarf);
+        assertThat(catalog.hashCodeOf(hatId)).isEqualTo(hat.hashCode());
+    }
+
+    /**
+     * Verifies that findId does not register unknown products.
+     */
+    @Test
+    void findId_shouldReturnMinusOne_whenProductIsUnknown() {
+        // Act + Assert
+        assertThat(catalog.findId(new Product("Hat", 250.0))).isEqualTo(-1);
+        assertThat(catalog.size()).isZero();
+    }
+
+    /**
+     * Verifies that unknown ids and null products are rejected.
+     */
+    @Test
+    void invalidInput_shouldThrowException() {
+        // Act + Assert
+        assertThatThrownBy(() -> catalog.product(0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown product id: 0");
+        assertThatThrownBy(() -> catalog.product(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> catalog.intern(null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Product cannot be null");
+    }
+
+    /**
+     * Verifies that ids survive growth beyond the initial capacity.
+     */
+    @Test
+    void idOf_shouldKeepIds_whenCatalogGrows() {
+        // Arrange
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            products.add(new Product("Product " + i, i));
+        }
+        // Act
+        products.forEach(catalog::idOf);
+        // Assert
+        for (int i = 0; i < products.size(); i++) {
+            assertThat(catalog.product(i)).isSameAs(products.get(i));
+        }
+    }
+
+    /**
+     * Verifies that concurrent registration assigns each product exactly one id.
+     */
+    @Test
+    void idOf_shouldAssignUniqueIds_whenCalledConcurrently() throws InterruptedException {
+        // Arrange
+        int threads = 8;
+        int productsPerThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < productsPerThread; i++) {
+                    ids.add(catalog.idOf(new Product("Product " + i, 10.0)));
+                }
+            }));
+        }
+        // Act
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // Assert
+        assertThat(catalog.size()).isEqualTo(productsPerThread);
+        assertThat(ids).hasSize(productsPerThread);
+        assertThat(ids).allMatch(id -> id >= 0 && id < productsPerThread);
+    }
+
+    /**
+     * Verifies that a catalog-backed cart registers products and treats copies as the same line.
+     */
+    @Test
+    void shoppingCart_shouldInternProducts_whenCreatedWithCatalog() {
+        // Arrange
+        ShoppingCart cart = new ShoppingCart(catalog);
+        // Act
+        cart.addItem(new Product("Hat", 250.0));
+        cart.addItem(new Product("Hat", 250.0));
+        cart.updateQuantity(new Product("Scarf", 300.0), 2);
+        // Assert
+        assertThat(catalog.size()).isEqualTo(2);
+        assertThat(cart.getItemCount()).isEqualTo(2);
+        assertThat(cart.getQuantity(new Product("Hat", 250.0))).isEqualTo(2);
+        assertThat(cart.getTotalPrice()).isEqualTo(1100.0);
+    }
+
+    /**
+     * Verifies that a catalog-backed cart finds, removes and snapshots lines by catalog id
+     * without registering products it only looks up.
+     */
+    @Test
+    void shoppingCart_shouldNotRegisterProducts_whenOnlyLookingThemUp() {
+        // Arrange
+        ShoppingCart cart = new ShoppingCart(catalog);
+        cart.updateQuantity(new Product("Hat", 250.0), 3);
+        // Act
+        int unknownQuantity = cart.getQuantity(new Product("Scarf", 300.0));
+        boolean unknownRemoved = cart.removeItem(new Product("Scarf", 300.0));
+        cart.updateQuantity(new Product("Gloves", 100.0), 0);
+        cart.removeItem(new Product("Hat", 250.0));
+        CartSnapshot snapshot = cart.snapshot();
+        // Assert
+        assertThat(unknownQuantity).isZero();
+        assertThat(unknownRemoved).isFalse();
+        assertThat(catalog.size()).isEqualTo(1);
+        assertThat(snapshot.getQuantity(new Product("Hat", 250.0))).isEqualTo(2);
+        assertThat(cart.getTotalPrice()).isEqualTo(500.0);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.shop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link ProductQuantityMap}.
+ * <p>
+ * Tests cover basic map operations, growth beyond the initial table,
+ * and a randomized comparison against {@link HashMap} that exercises
+ * backward-shift deletion.
+ */
+class ProductQuantityMapTest {
+
+    private ProductQuantityMap map;
+
+    @BeforeEach
+    void setUp() {
+        map = new ProductQuantityMap();
+    }
+
+    /**
+     * Verifies that put, addTo and remove return the previous quantity.
+     */
+    @Test
+    void operations_shouldReturnPreviousQuantity() {
+        // Arrange
+        Product hat = new Product("Hat", 250.0);
+        // Act + Assert
+        assertThat(map.put(hat, 2)).isZero();
+        assertThat(map.addTo(hat, 3)).isEqualTo(2);
+        assertThat(map.get(hat)).isEqualTo(5);
+        assertThat(map.remove(hat)).isEqualTo(5);
+        assertThat(map.get(hat)).isZero();
+        assertThat(map.isEmpty()).isTrue();
+    }
+
+    /**
+     * Verifies that a quantity reaching zero removes the product.
+     */
+    @Test
+    void addTo_shouldRemoveProduct_whenQuantityReachesZero() {
+        // Arrange
+        Product hat = new Product("Hat", 250.0);
+        map.put(hat, 1);
+        // Act
+        map.addTo(hat, -1);
+        // Assert
+        assertThat(map.size()).isZero();
+        assertThat(map.get(hat)).isZero();
+    }
+
+    /**
+     * Verifies that the map grows and keeps all entries reachable.
+     */
+    @Test
+    void put_shouldGrowBeyondInitialCapacity() {
+        // Arrange
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            products.add(new Product("Product " + i, i));
+        }
+        // Act
+        for (int i = 0; i < products.size(); i++) {
+            map.put(products.get(i), i + 1);
+        }
+        // Assert
+        assertThat(map.size()).isEqualTo(1_000);
+        for (int i = 0; i < products.size(); i++) {
+            assertThat(map.get(products.get(i))).isEqualTo(i + 1);
+        }
+    }
+
+    /**
+     * Verifies that a random sequence of operations yields the same
+     * contents as a {@link HashMap}.
+     */
+    @Test
+    void randomOperations_shouldMatchHashMap() {
+        // Arrange
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            products.add(new Product("Product " + i, i % 7));
+        }
+        Map<Product, Integer> expected = new HashMap<>();
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            Product product = products.get(random.nextInt(products.size()));
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    map.addTo(product, 1);
+                    expected.merge(product, 1, Integer::sum);
+                }
+                case 1 -> {
+                    int quantity = random.nextInt(3);
+                    map.put(product, quantity);
+                    if (quantity == 0) {
+                        expected.remove(product);
+                    } else {
+                        expected.put(product, quantity);
+                    }
+                }
+                default -> {
+                    map.remove(product);
+                    expected.remove(product);
+                }
+            }
+        }
+        // Assert
+        Map<Product, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(map.size()).isEqualTo(expected.size());
+    }
+
+    /**
+     * Verifies that snapshots keep their contents while the map keeps changing,
+     * across page copies, resizes and clear.
+     */
+    @Test
+    void snapshot_shouldBeUnaffectedByLaterWrites() {
+        // Arrange
+        Random random = new Random(7);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            products.add(new Product("Product " + i, i % 7));
+        }
+        Map<Product, Integer> expected = new HashMap<>();
+        List<ProductQuantityMap> snapshots = new ArrayList<>();
+        List<Map<Product, Integer>> expectedSnapshots = new ArrayList<>();
+        // Act
+        for (int i = 0; i < 50_000; i++) {
+            Product product = products.get(random.nextInt(products.size()));
+            if (random.nextBoolean()) {
+                map.addTo(product, 1);
+                expected.merge(product, 1, Integer::sum);
+            } else {
+                map.remove(product);
+                expected.remove(product);
+            }
+            if (i % 500 == 0) {
+                snapshots.add(map.snapshot());
+                expectedSnapshots.add(new HashMap<>(expected));
+            }
+            if (i == 25_000) {
+                map.clear();
+                expected.clear();
+            }
+        }
+        // Assert
+        for (int i = 0; i < snapshots.size(); i++) {
+            Map<Product, Integer> actual = new HashMap<>();
+            snapshots.get(i).forEach(actual::put);
+            assertThat(actual).isEqualTo(expectedSnapshots.get(i));
+            assertThat(snapshots.get(i).size()).isEqualTo(actual.size());
+        }
+    }
+
+    /**
+     * Verifies that a snapshot rejects writes.
+     */
+    @Test
+    void snapshot_shouldRejectWrites() {
+        // Arrange
+        Product hat = new Product("Hat", 250.0);
+        map.put(hat, 1);
+        ProductQuantityMap snapshot = map.snapshot();
+        // Act + Assert
+        assertThatThrownBy(() -> snapshot.put(hat, 2))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Snapshot cannot be modified");
+        assertThat(snapshot.get(hat)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.shop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput benchmark comparing {@link ConcurrentShoppingCart} with a
+ * {@link ShoppingCart} shared behind a single monitor, which is the only
+ * safe way to share the non-concurrent cart between sessions.
+ * <p>
+ * Not a unit test; run it manually with
+ * {@code java -cp target/classes:target/test-classes com.example.shop.ShoppingCartBenchmark}.
+ * Each round mixes {@code addItem}, {@code removeItem} and {@code getTotalPrice}
+ * calls over a small set of products for a fixed duration.
+ */
+public final class ShoppingCartBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+    private static final long WARMUP_MILLIS = 1_000;
+    private static final long MEASURE_MILLIS = 3_000;
+    private static final int PRODUCTS = 64;
+
+    // Keeps the JIT from eliminating the total computations
+    private static volatile double blackhole;
+
+    private ShoppingCartBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Product " + i, 10.0 + i));
+        }
+
+        System.out.printf("%-10s %8s %15s%n", "cart", "threads", "ops/s");
+        for (int threads : THREAD_COUNTS) {
+            ShoppingCart shared = new ShoppingCart();
+            report("locked", threads, run(threads, products, new CartOperations() {
+                @Override
+                public void add(Product product) {
+                    synchronized (shared) {
+                        shared.addItem(product);
+                    }
+                }
+
+                @Override
+                public void remove(Product product) {
+                    synchronized (shared) {
+                        shared.removeItem(product);
+                    }
+                }
+
+                @Override
+                public double total() {
+                    synchronized (shared) {
+                        return shared.getTotalPrice();
+                    }
+                }
+            }));
+
+            ConcurrentShoppingCart concurrent = new ConcurrentShoppingCart();
+            report("concurrent", threads, run(threads, products, new CartOperations() {
+                @Override
+                public void add(Product product) {
+                    concurrent.addItem(product);
+                }
+
+                @Override
+                public void remove(Product product) {
+                    concurrent.removeItem(product);
+                }
+
+                @Override
+                public double total() {
+                    return concurrent.getTotalPrice();
+                }
+            }));
+        }
+    }
+
+    private static double run(int threads, List<Product> products, CartOperations cart) throws InterruptedException {
+        measure(threads, products, cart, WARMUP_MILLIS);
+        return measure(threads, products, cart, MEASURE_MILLIS);
+    }
+
+    private static double measure(int threads, List<Product> products, CartOperations cart, long millis)
+            throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            Thread.ofPlatform().start(() -> {
+                long count = 0;
+                double localSink = 0;
+                int i = offset;
+                while (System.nanoTime() < deadline) {
+                    Product product = products.get(i++ % products.size());
+                    cart.add(product);
+                    cart.add(product);
+                    cart.remove(product);
+                    if ((i & 15) == 0) {
+                        localSink += cart.total();
+                        count++;
+                    }
+                    count += 3;
+                }
+                operations.add(count);
+                blackhole = localSink;
+                done.countDown();
+            });
+        }
+        done.await();
+        return operations.sum() * 1000.0 / millis;
+    }
+
+    private static void report(String name, int threads, double opsPerSecond) {
+        System.out.printf("%-10s %8d %,15.0f%n", name, threads, opsPerSecond);
+    }
+
+    private interface CartOperations {
+        void add(Product product);
+
+        void remove(Product product);
+
+        double total();
+    }
+}
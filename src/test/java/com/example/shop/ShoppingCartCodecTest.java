@@ -0,0 +1,221 @@
+package com.example.shop;
+
+import com.example.money.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Currency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link ShoppingCartCodec}.
+ * <p>
+ * Tests cover round trips with and without a catalog, delta encoding
+ * and rejection of malformed input.
+ */
+class ShoppingCartCodecTest {
+
+    private ShoppingCartCodec codec;
+    private ShoppingCart cart;
+    private Product hat;
+    private Product scarf;
+
+    @BeforeEach
+    void setUp() {
+        codec = new ShoppingCartCodec();
+        cart = new ShoppingCart();
+        hat = new Product("Hat", 249.90);
+        scarf = new Product("Scarf", 300.0);
+    }
+
+    /**
+     * Verifies that lines, quantities and the discount survive a round trip.
+     */
+    @Test
+    void decode_shouldRestoreEncodedCart() {
+        // Arrange
+        cart.updateQuantity(hat, 3);
+        cart.addItem(scarf);
+        cart.applyDiscount(0.15);
+        // Act
+        ShoppingCart decoded = codec.decode(ByteBuffer.wrap(codec.encode(cart)));
+        // Assert
+        assertThat(decoded.getQuantity(hat)).isEqualTo(3);
+        assertThat(decoded.getQuantity(scarf)).isEqualTo(1);
+        assertThat(decoded.getTotal()).isEqualTo(cart.getTotal());
+    }
+
+    /**
+     * Verifies that an empty cart round-trips.
+     */
+    @Test
+    void decode_shouldRestoreEmptyCart() {
+        // Act
+        ShoppingCart decoded = codec.decode(ByteBuffer.wrap(codec.encode(cart)));
+        // Assert
+        assertThat(decoded.getItemCount()).isZero();
+        assertThat(decoded.getTotalPrice()).isZero();
+    }
+
+    /**
+     * Verifies that catalog ids keep the encoding small and decode to canonical products.
+     */
+    @Test
+    void decode_shouldResolveCatalogIds_whenCodecHasCatalog() {
+        // Arrange
+        ProductCatalog catalog = new ProductCatalog();
+        ShoppingCartCodec catalogCodec = new ShoppingCartCodec(catalog);
+        cart.updateQuantity(hat, 2);
+        cart.updateQuantity(scarf, 1);
+        // Act
+        byte[] encoded = catalogCodec.encode(cart);
+        ShoppingCart decoded = catalogCodec.decode(ByteBuffer.wrap(encoded));
+        // Assert
+        assertThat(encoded.length).isLessThan(codec.encode(cart).length);
+        assertThat(decoded.getQuantity(hat)).isEqualTo(2);
+        assertThat(decoded.getTotal()).isEqualTo(cart.getTotal());
+        assertThat(catalog.intern(new Product("Hat", 249.90))).isSameAs(hat);
+    }
+
+    /**
+     * Verifies that a delta only carries changed lines and reproduces the current cart.
+     */
+    @Test
+    void applyDelta_shouldReproduceCurrentCart() {
+        // Arrange
+        Product gloves = new Product("Gloves", 99.0);
+        cart.updateQuantity(hat, 2);
+        cart.updateQuantity(scarf, 1);
+        cart.updateQuantity(gloves, 4);
+        cart.updateQuantity(new Product("Socks", 49.0), 5);
+        cart.updateQuantity(new Product("Belt", 399.0), 1);
+        ShoppingCart saved = codec.decode(ByteBuffer.wrap(codec.encode(cart)));
+        cart.addItem(hat);
+        cart.removeItem(scarf);
+        cart.applyDiscount(0.10);
+        // Act
+        byte[] delta = codec.encodeDelta(cart, saved);
+        codec.applyDelta(saved, ByteBuffer.wrap(delta));
+        // Assert
+        assertThat(delta.length).isLessThan(codec.encode(cart).length);
+        assertThat(saved.getQuantity(hat)).isEqualTo(3);
+        assertThat(saved.getQuantity(scarf)).isZero();
+        assertThat(saved.getQuantity(gloves)).isEqualTo(4);
+        assertThat(saved.getTotal()).isEqualTo(cart.getTotal());
+    }
+
+    /**
+     * Verifies that a delta can switch an emptied cart to another currency.
+     */
+    @Test
+    void applyDelta_shouldHandleCurrencyChange() {
+        // Arrange
+        cart.addItem(hat);
+        ShoppingCart saved = codec.decode(ByteBuffer.wrap(codec.encode(cart)));
+        Product euroHat = new Product("Hat", Money.of(19.90, Currency.getInstance("EUR")));
+        cart.clear();
+        cart.addItem(euroHat);
+        // Act
+        codec.applyDelta(saved, ByteBuffer.wrap(codec.encodeDelta(cart, saved)));
+        // Assert
+        assertThat(saved.getQuantity(hat)).isZero();
+        assertThat(saved.getTotal()).isEqualTo(euroHat.unitPrice());
+    }
+
+    /**
+     * Verifies that decoding starts at the buffer position and advances past the message.
+     */
+    @Test
+    void decode_shouldAdvanceBufferPosition() {
+        // Arrange
+        cart.addItem(hat);
+        byte[] encoded = codec.encode(cart);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length + 3);
+        buffer.put((byte) 7).put(encoded).put((byte) 1).put((byte) 2).flip();
+        buffer.get();
+        // Act
+        ShoppingCart decoded = codec.decode(buffer);
+        // Assert
+        assertThat(decoded.getQuantity(hat)).isEqualTo(1);
+        assertThat(buffer.remaining()).isEqualTo(2);
+    }
+
+    /**
+     * Verifies that malformed input is rejected with an IllegalArgumentException.
+     */
+    @Test
+    void decode_shouldRejectMalformedInput() {
+        // Arrange
+        cart.updateQuantity(hat, 2);
+        byte[] encoded = codec.encode(cart);
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 2);
+        byte[] delta = codec.encodeDelta(cart, new ShoppingCart());
+        // Act + Assert
+        assertThatThrownBy(() -> codec.decode(ByteBuffer.wrap(truncated)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Truncated cart encoding");
+        assertThatThrownBy(() -> codec.decode(ByteBuffer.wrap(new byte[]{9, 0})))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unsupported cart encoding version");
+        assertThatThrownBy(() -> codec.decode(ByteBuffer.wrap(delta)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Expected a full cart encoding");
+        assertThatThrownBy(() -> new ShoppingCartCodec(new ProductCatalog()).decode(ByteBuffer.wrap(encoded)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cart encoding does not match the codec's catalog mode");
+    }
+
+    /**
+     * Verifies that catalog ids decode against another catalog only when it assigns them to the same products.
+     */
+    @Test
+    void decode_shouldRejectCatalogIds_whenCatalogAssignsThemDifferently() {
+        // Arrange
+        ProductCatalog writerCatalog = new ProductCatalog();
+        writerCatalog.idOf(hat);
+        writerCatalog.idOf(scarf);
+        cart.updateQuantity(hat, 2);
+        byte[] encoded = new ShoppingCartCodec(writerCatalog).encode(cart);
+        ProductCatalog sameOrder = new ProductCatalog();
+        sameOrder.idOf(new Product("Hat", 249.90));
+        sameOrder.idOf(new Product("Scarf", 300.0));
+        ProductCatalog otherOrder = new ProductCatalog();
+        otherOrder.idOf(scarf);
+        otherOrder.idOf(hat);
+        // Act
+        ShoppingCart decoded = new ShoppingCartCodec(sameOrder).decode(ByteBuffer.wrap(encoded));
+        // Assert
+        assertThat(decoded.getQuantity(hat)).isEqualTo(2);
+        assertThatThrownBy(() -> new ShoppingCartCodec(otherOrder).decode(ByteBuffer.wrap(encoded)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cart encoding was written against a different product catalog");
+        assertThatThrownBy(() -> new ShoppingCartCodec(new ProductCatalog()).decode(ByteBuffer.wrap(encoded)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cart encoding was written against a different product catalog");
+    }
+
+    /**
+     * Verifies that a delta which fails part-way leaves the cart unchanged.
+     */
+    @Test
+    void applyDelta_shouldLeaveCartUnchanged_whenDeltaIsTruncated() {
+        // Arrange
+        cart.updateQuantity(hat, 1);
+        ShoppingCart saved = codec.decode(ByteBuffer.wrap(codec.encode(cart)));
+        cart.updateQuantity(hat, 4);
+        cart.updateQuantity(scarf, 2);
+        byte[] delta = codec.encodeDelta(cart, saved);
+        byte[] truncated = Arrays.copyOf(delta, delta.length - 1);
+        // Act + Assert
+        assertThatThrownBy(() -> codec.applyDelta(saved, ByteBuffer.wrap(truncated)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Truncated cart encoding");
+        assertThat(saved.getQuantity(hat)).isEqualTo(1);
+        assertThat(saved.getQuantity(scarf)).isZero();
+        assertThat(saved.getTotalItems()).isEqualTo(1);
+    }
+}
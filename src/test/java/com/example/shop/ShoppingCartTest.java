@@ -1,5 +1,7 @@
 package com.example.shop;
 
+import com.example.money.Money;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -8,6 +10,10 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -317,6 +323,40 @@ class ShoppingCartTest {
             assertThat(cart.getTotalPrice()).isEqualTo(1000.0);
         }
 
+        /**
+         * Verifies that an overflowing total is rejected before the line is changed.
+         */
+        @Test
+        void updateQuantity_shouldLeaveCartUnchanged_whenTotalOverflows() {
+            // Arrange
+            Product yacht = new Product("Yacht", Money.ofMinor(Long.MAX_VALUE / 2, Money.DEFAULT_CURRENCY));
+            cart.updateQuantity(yacht, 1);
+            // Act + Assert
+            assertThatThrownBy(() -> cart.updateQuantity(yacht, 3))
+                    .isInstanceOf(ArithmeticException.class);
+            assertThat(cart.getQuantity(yacht)).isEqualTo(1);
+            assertThat(cart.getTotalItems()).isEqualTo(1);
+            assertThat(cart.getTotal()).isEqualTo(yacht.unitPrice());
+        }
+
+        /**
+         * Verifies that an overflowing item count is rejected before the cart is changed.
+         */
+        @Test
+        void addItem_shouldLeaveCartUnchanged_whenItemCountOverflows() {
+            // Arrange
+            Product pin = new Product("Pin", Money.ofMinor(1, Money.DEFAULT_CURRENCY));
+            Product hat = new Product("Hat", 250.0);
+            cart.updateQuantity(pin, Integer.MAX_VALUE);
+            // Act + Assert
+            assertThatThrownBy(() -> cart.addItem(hat))
+                    .isInstanceOf(ArithmeticException.class);
+            assertThat(cart.getQuantity(hat)).isZero();
+            assertThat(cart.getItemCount()).isEqualTo(1);
+            assertThat(cart.getTotalItems()).isEqualTo(Integer.MAX_VALUE);
+            assertThat(cart.getTotal().minorUnits()).isEqualTo(Integer.MAX_VALUE);
+        }
+
         /**
          * Verifies that updateQuantity removes the product when quantity is set to zero.
          */
@@ -459,6 +499,32 @@ class ShoppingCartTest {
                     .isInstanceOf(IllegalArgumentException.class)
                     .hasMessage("Price cannot be negative");
         }
+
+        /**
+         * Verifies that a price below zero is rejected even if it would round to zero.
+         */
+        @Test
+        void newProduct_shouldThrowException_whenPriceRoundsToZeroFromBelow() {
+            // Act + Assert
+            assertThatThrownBy(() -> new Product("Hat", -0.001))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Price cannot be negative");
+        }
+
+        /**
+         * Verifies that a price finer than the currency's minor unit or not a number is rejected.
+         */
+        @Test
+        void newProduct_shouldThrowException_whenPriceIsNotExact() {
+            // Act + Assert
+            assertThatThrownBy(() -> new Product("Hat", 1.001))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Price cannot be more precise than the currency's minor unit");
+            assertThatThrownBy(() -> new Product("Hat", Double.NaN))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Price must be a finite number");
+            assertThat(new Product("Hat", 19.99).unitPrice()).isEqualTo(Money.ofMinor(1999, Money.DEFAULT_CURRENCY));
+        }
     }
 
     /**
@@ -538,6 +604,58 @@ class ShoppingCartTest {
             assertThat(totalItems).isEqualTo(5);
         }
 
+        /**
+         * Verifies that running totals stay consistent across
+         * add, remove and quantity updates.
+         */
+        @Test
+        void totals_shouldTrackEveryMutation() {
+            // Arrange
+            Product hat = new Product("Hat", 250.0);
+            Product pants = new Product("Pants", 700.0);
+            cart.addItem(hat);
+            cart.addItem(pants);
+            // Act
+            cart.updateQuantity(hat, 3);
+            cart.removeItem(pants);
+            cart.updateQuantity(pants, 2);
+            cart.updateQuantity(hat, 0);
+            // Assert
+            assertThat(cart.getTotalItems()).isEqualTo(2);
+            assertThat(cart.getTotalPrice()).isEqualTo(1400.0);
+        }
+
+        /**
+         * Verifies that totals are exact for prices that cannot be
+         * represented exactly as {@code double}.
+         */
+        @Test
+        void getTotal_shouldBeExact_forDecimalPrices() {
+            // Arrange
+            Product candy = new Product("Candy", 0.1);
+            // Act
+            for (int i = 0; i < 10; i++) {
+                cart.addItem(candy);
+            }
+            // Assert
+            assertThat(cart.getTotal()).isEqualTo(Money.of(1.0));
+            assertThat(cart.getTotalPrice()).isEqualTo(1.0);
+        }
+
+        /**
+         * Verifies that products priced in another currency are rejected.
+         */
+        @Test
+        void addItem_shouldThrowException_whenCurrencyDiffers() {
+            // Arrange
+            cart.addItem(new Product("Hat", 250.0));
+            Product euroHat = new Product("Hat", Money.of(25.0, Currency.getInstance("EUR")));
+            // Act + Assert
+            assertThatThrownBy(() -> cart.addItem(euroHat))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Product currency does not match cart currency");
+        }
+
         /**
          * Verifies that clear removes all items from the cart.
          */
@@ -556,4 +674,205 @@ class ShoppingCartTest {
             assertThat(cart.getTotalPrice()).isZero();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests for cart snapshots and versioning.
+     * <p>
+     * Covers snapshot() isolation and isModifiedSince().
+     */
+    @Nested
+    @DisplayName("Snapshots")
+    class SnapshotTests {
+
+        /**
+         * Verifies that a snapshot keeps its lines and totals while the cart changes.
+         */
+        @Test
+        void snapshot_shouldNotChange_whenCartIsEdited() {
+            // Arrange
+            Product hat = new Product("Hat", 250.0);
+            Product pants = new Product("Pants", 700.0);
+            cart.updateQuantity(hat, 2);
+            cart.applyDiscount(0.1);
+            // Act
+            CartSnapshot snapshot = cart.snapshot();
+            cart.addItem(pants);
+            cart.removeItem(hat);
+            cart.applyDiscount(0.5);
+            // Assert
+            assertThat(snapshot.getQuantity(hat)).isEqualTo(2);
+            assertThat(snapshot.getQuantity(pants)).isZero();
+            assertThat(snapshot.getItems()).containsExactly(Map.entry(hat, 2));
+            assertThat(snapshot.getTotalItems()).isEqualTo(2);
+            assertThat(snapshot.getTotalPrice()).isEqualTo(450.0);
+            assertThat(cart.getQuantity(hat)).isEqualTo(1);
+            assertThat(cart.getTotalPrice()).isEqualTo(475.0);
+        }
+
+        /**
+         * Verifies that every change to the cart is detected through its version.
+         */
+        @Test
+        void isModifiedSince_shouldDetectChanges() {
+            // Arrange
+            Product hat = new Product("Hat", 250.0);
+            cart.addItem(hat);
+            CartSnapshot snapshot = cart.snapshot();
+            // Act + Assert
+            assertThat(cart.isModifiedSince(snapshot)).isFalse();
+            assertThat(cart.removeItem(new Product("Pants", 700.0))).isFalse();
+            assertThat(cart.isModifiedSince(snapshot)).isFalse();
+            cart.applyDiscount(0.1);
+            assertThat(cart.isModifiedSince(snapshot)).isTrue();
+            assertThat(cart.snapshot().getVersion()).isGreaterThan(snapshot.getVersion());
+        }
+
+        /**
+         * Verifies that snapshots of another cart are rejected.
+         */
+        @Test
+        void isModifiedSince_shouldThrowException_whenSnapshotIsFromAnotherCart() {
+            // Arrange
+            CartSnapshot foreign = new ShoppingCart().snapshot();
+            // Act + Assert
+            assertThatThrownBy(() -> cart.isModifiedSince(foreign))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Snapshot must be taken from this cart");
+        }
+    }
+
+    /**
+     * Tests for bulk cart operations.
+     * <p>
+     * Covers addAll(), merge() and applyDeltas().
+     */
+    @Nested
+    @DisplayName("Bulk operations")
+    class BulkOperationTests {
+
+        private final Product hat = new Product("Hat", 250.0);
+        private final Product pants = new Product("Pants", 700.0);
+
+        /**
+         * Verifies that addAll adds to existing lines and updates the totals.
+         */
+        @Test
+        void addAll_shouldAddQuantitiesToExistingLines() {
+            // Arrange
+            cart.addItem(hat);
+            // Act
+            cart.addAll(Map.of(hat, 2, pants, 1));
+            // Assert
+            assertThat(cart.getQuantity(hat)).isEqualTo(3);
+            assertThat(cart.getQuantity(pants)).isEqualTo(1);
+            assertThat(cart.getTotalItems()).isEqualTo(4);
+            assertThat(cart.getTotalPrice()).isEqualTo(1450.0);
+        }
+
+        /**
+         * Verifies that an invalid line rejects the whole batch.
+         */
+        @Test
+        void addAll_shouldLeaveCartUnchanged_whenAnyLineIsInvalid() {
+            // Arrange
+            cart.addItem(hat);
+            Product euroHat = new Product("Hat", Money.of(25.0, Currency.getInstance("EUR")));
+            Map<Product, Integer> withZero = new LinkedHashMap<>();
+            withZero.put(pants, 1);
+            withZero.put(hat, 0);
+            // Act + Assert
+            assertThatThrownBy(() -> cart.addAll(withZero))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Quantity must be positive");
+            assertThatThrownBy(() -> cart.addAll(Map.of(pants, 1, euroHat, 1)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Product currency does not match cart currency");
+            assertThat(cart.getItemCount()).isEqualTo(1);
+            assertThat(cart.getTotalPrice()).isEqualTo(250.0);
+        }
+
+        /**
+         * Verifies that a large batch is added in one call.
+         */
+        @Test
+        void addAll_shouldAddLargeBatch() {
+            // Arrange
+            Map<Product, Integer> template = new HashMap<>();
+            for (int i = 0; i < 5_000; i++) {
+                template.put(new Product("Product " + i, 1.0), 2);
+            }
+            // Act
+            cart.addAll(template);
+            // Assert
+            assertThat(cart.getItemCount()).isEqualTo(5_000);
+            assertThat(cart.getTotalItems()).isEqualTo(10_000);
+            assertThat(cart.getTotalPrice()).isEqualTo(10_000.0);
+        }
+
+        /**
+         * Verifies that merge adds the other cart's lines and leaves it unchanged.
+         */
+        @Test
+        void merge_shouldAddLinesOfOtherCart() {
+            // Arrange
+            ShoppingCart guest = new ShoppingCart();
+            guest.updateQuantity(hat, 2);
+            guest.addItem(pants);
+            guest.applyDiscount(0.5);
+            cart.addItem(hat);
+            // Act
+            cart.merge(guest);
+            // Assert
+            assertThat(cart.getQuantity(hat)).isEqualTo(3);
+            assertThat(cart.getQuantity(pants)).isEqualTo(1);
+            assertThat(cart.getTotalPrice()).isEqualTo(1450.0);
+            assertThat(guest.getQuantity(hat)).isEqualTo(2);
+        }
+
+        /**
+         * Verifies that a cart can be merged into itself.
+         */
+        @Test
+        void merge_shouldDoubleQuantities_whenMergedWithItself() {
+            // Arrange
+            cart.updateQuantity(hat, 2);
+            // Act
+            cart.merge(cart);
+            // Assert
+            assertThat(cart.getQuantity(hat)).isEqualTo(4);
+            assertThat(cart.getTotalPrice()).isEqualTo(1000.0);
+        }
+
+        /**
+         * Verifies that deltas add and remove units and drop empty lines.
+         */
+        @Test
+        void applyDeltas_shouldAddAndRemoveUnits() {
+            // Arrange
+            cart.updateQuantity(hat, 3);
+            cart.addItem(pants);
+            // Act
+            cart.applyDeltas(Map.of(hat, -1, pants, -1, new Product("Scarf", 300.0), 2));
+            // Assert
+            assertThat(cart.getQuantity(hat)).isEqualTo(2);
+            assertThat(cart.getQuantity(pants)).isZero();
+            assertThat(cart.getItemCount()).isEqualTo(2);
+            assertThat(cart.getTotalPrice()).isEqualTo(1100.0);
+        }
+
+        /**
+         * Verifies that a delta below zero rejects the whole batch.
+         */
+        @Test
+        void applyDeltas_shouldThrowException_whenQuantityWouldBecomeNegative() {
+            // Arrange
+            cart.addItem(hat);
+            // Act + Assert
+            assertThatThrownBy(() -> cart.applyDeltas(Map.of(hat, -2, pants, 1)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Quantity cannot be negative");
+            assertThat(cart.getQuantity(hat)).isEqualTo(1);
+            assertThat(cart.getQuantity(pants)).isZero();
+        }
+    }
+}